@@ -0,0 +1,177 @@
+-- Benchmark: per-row vs. statement-level match trigger for 1k-row like inserts
+--
+-- Runs against a plain local Postgres (13+), no Supabase needed:
+--   createdb campusconnect_bench
+--   psql -d campusconnect_bench -f sql/benchmarks/match_trigger_benchmark.sql
+--
+-- Everything lives in the schema "match_bench", which is dropped at the start and the end.
+-- The tables mirror public.user_actions, public.matches and public.like_pairs without the
+-- auth.users foreign keys. The per-statement variant is the trigger function that ships in
+-- schema.sql; the seed likes go through it too, so like_pairs holds the state it would in production.
+-- Each round inserts 1000 likes in one statement, half of which answer an existing like,
+-- and reports the elapsed time per variant as a NOTICE.
+
+\set ON_ERROR_STOP on
+
+DROP SCHEMA IF EXISTS match_bench CASCADE;
+CREATE SCHEMA match_bench;
+SET search_path = match_bench;
+
+CREATE TABLE user_actions (
+  id uuid not null default gen_random_uuid (),
+  user_id uuid not null,
+  target_user_id uuid not null,
+  action text not null,
+  created_at timestamp with time zone null default now(),
+  constraint user_actions_pkey primary key (id),
+  constraint unique_user_action unique (user_id, target_user_id)
+);
+
+create index idx_user_actions_match_check on user_actions using btree (user_id, target_user_id, action);
+
+CREATE TABLE matches (
+  id uuid not null default gen_random_uuid (),
+  user1_id uuid not null,
+  user2_id uuid not null,
+  matched_at timestamp with time zone null default now(),
+  constraint matches_pkey primary key (id),
+  constraint unique_match unique (user1_id, user2_id)
+);
+
+-- Former per-row trigger function
+CREATE FUNCTION match_per_row()
+RETURNS TRIGGER AS $$
+BEGIN
+    IF NEW.action = 'like' AND EXISTS(
+        SELECT 1 FROM user_actions
+        WHERE user_id = NEW.target_user_id
+        AND target_user_id = NEW.user_id
+        AND action = 'like'
+    ) THEN
+        INSERT INTO matches (user1_id, user2_id)
+        VALUES (LEAST(NEW.user_id, NEW.target_user_id), GREATEST(NEW.user_id, NEW.target_user_id))
+        ON CONFLICT (user1_id, user2_id) DO NOTHING;
+    END IF;
+    RETURN NEW;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Pair state used by the statement-level trigger, as in schema.sql
+CREATE TABLE like_pairs (
+  user_low uuid not null,
+  user_high uuid not null,
+  low_likes_high boolean not null default false,
+  high_likes_low boolean not null default false,
+  constraint like_pairs_pkey primary key (user_low, user_high),
+  constraint like_pairs_ordered check (user_low < user_high)
+);
+
+-- Statement-level trigger function, the like_pairs upsert of create_matches_on_mutual_likes in schema.sql
+CREATE FUNCTION match_per_statement()
+RETURNS TRIGGER AS $$
+BEGIN
+    WITH new_likes AS (
+        SELECT
+            LEAST(user_id, target_user_id) AS user_low,
+            GREATEST(user_id, target_user_id) AS user_high,
+            bool_or(user_id < target_user_id) AS low_likes_high,
+            bool_or(user_id > target_user_id) AS high_likes_low
+        FROM new_actions
+        WHERE action = 'like'
+        GROUP BY 1, 2
+    ), pairs AS (
+        INSERT INTO like_pairs AS pair (user_low, user_high, low_likes_high, high_likes_low)
+        SELECT user_low, user_high, low_likes_high, high_likes_low
+        FROM new_likes
+        ORDER BY user_low, user_high
+        ON CONFLICT (user_low, user_high) DO UPDATE
+            SET low_likes_high = pair.low_likes_high OR EXCLUDED.low_likes_high,
+                high_likes_low = pair.high_likes_low OR EXCLUDED.high_likes_low
+        RETURNING user_low, user_high, low_likes_high, high_likes_low
+    )
+    INSERT INTO matches (user1_id, user2_id)
+    SELECT user_low, user_high
+    FROM pairs
+    WHERE low_likes_high AND high_likes_low
+    ON CONFLICT (user1_id, user2_id) DO NOTHING;
+
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+-- 2000 users: the first 1000 swipe, the second 1000 are swiped on
+CREATE TABLE users AS
+SELECT n, gen_random_uuid() AS id FROM generate_series(1, 2000) AS n;
+
+-- One round: reset, seed about 10k background actions plus 500 likes that will be answered,
+-- then time a single 1000-row insert of likes. The background actions never use a timed pair,
+-- so all 1000 rows are inserted; the notice reports the row count to show it.
+CREATE PROCEDURE run_round(variant text, round_number integer)
+LANGUAGE plpgsql AS $$
+DECLARE
+    started timestamptz;
+    elapsed interval;
+    inserted bigint;
+    created bigint;
+BEGIN
+    TRUNCATE user_actions, matches, like_pairs;
+
+    INSERT INTO user_actions (user_id, target_user_id, action)
+    SELECT a.id, b.id, CASE WHEN random() < 0.5 THEN 'like' ELSE 'pass' END
+    FROM users a
+    JOIN users b ON b.n = 1001 + ((a.n * 7 + s) % 1000)
+    CROSS JOIN generate_series(1, 10) AS s
+    WHERE a.n <= 1000
+      AND b.n <> a.n + 1000 -- Keep the timed pairs free, or the timed insert skips them as conflicts
+    ON CONFLICT DO NOTHING;
+
+    -- Users 1001..1500 liked users 1..500 back
+    INSERT INTO user_actions (user_id, target_user_id, action)
+    SELECT b.id, a.id, 'like'
+    FROM users a
+    JOIN users b ON b.n = a.n + 1000
+    WHERE a.n <= 500
+    ON CONFLICT DO NOTHING;
+
+    ANALYZE user_actions;
+
+    started := clock_timestamp();
+    INSERT INTO user_actions (user_id, target_user_id, action)
+    SELECT a.id, b.id, 'like'
+    FROM users a
+    JOIN users b ON b.n = a.n + 1000
+    WHERE a.n <= 1000
+    ON CONFLICT DO NOTHING;
+    elapsed := clock_timestamp() - started;
+    GET DIAGNOSTICS inserted = ROW_COUNT;
+
+    SELECT count(*) INTO created FROM matches;
+    RAISE NOTICE '% round %: %-row insert took % ms, % matches',
+        variant, round_number, inserted, round((extract(epoch FROM elapsed) * 1000)::numeric, 2), created;
+END;
+$$;
+
+CREATE TRIGGER bench_match_trigger
+AFTER INSERT ON user_actions
+FOR EACH ROW EXECUTE FUNCTION match_per_row();
+
+CALL run_round('per-row', 1);
+CALL run_round('per-row', 2);
+CALL run_round('per-row', 3);
+CALL run_round('per-row', 4);
+CALL run_round('per-row', 5);
+
+DROP TRIGGER bench_match_trigger ON user_actions;
+CREATE TRIGGER bench_match_trigger
+AFTER INSERT ON user_actions
+REFERENCING NEW TABLE AS new_actions
+FOR EACH STATEMENT EXECUTE FUNCTION match_per_statement();
+
+CALL run_round('per-statement', 1);
+CALL run_round('per-statement', 2);
+CALL run_round('per-statement', 3);
+CALL run_round('per-statement', 4);
+CALL run_round('per-statement', 5);
+
+RESET search_path;
+DROP SCHEMA match_bench CASCADE;
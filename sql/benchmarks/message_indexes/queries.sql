@@ -0,0 +1,65 @@
+-- The chat queries of the app as PostgREST runs them, included twice by run.sql.
+-- Each filter ends with the RLS policy of the signed-in user.
+
+\echo '-- Chat list item: last message of a match (ChatService.getLastMessage)'
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT * FROM messages
+WHERE match_id = :'match_id'
+  AND (sender_id = :'user_id' OR receiver_id = :'user_id')
+ORDER BY created_at DESC
+LIMIT 1;
+
+\echo '-- Opening a chat: latest page (ChatService.getMessagesBefore without cursor)'
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT * FROM messages
+WHERE match_id = :'match_id'
+  AND (sender_id = :'user_id' OR receiver_id = :'user_id')
+ORDER BY created_at DESC, id DESC
+LIMIT 50;
+
+\echo '-- Scrolling up: older page from the middle of the chat (ChatService.getMessagesBefore)'
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT * FROM messages
+WHERE match_id = :'match_id'
+  AND created_at <= :'cursor_created_at'
+  AND (created_at < :'cursor_created_at' OR (created_at = :'cursor_created_at' AND id < :'cursor_id'))
+  AND (sender_id = :'user_id' OR receiver_id = :'user_id')
+ORDER BY created_at DESC, id DESC
+LIMIT 50;
+
+\echo '-- Scrolling down: newer page from the middle of the chat (ChatService.getMessagesAfter)'
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT * FROM messages
+WHERE match_id = :'match_id'
+  AND created_at >= :'cursor_created_at'
+  AND (created_at > :'cursor_created_at' OR (created_at = :'cursor_created_at' AND id > :'cursor_id'))
+  AND (sender_id = :'user_id' OR receiver_id = :'user_id')
+ORDER BY created_at ASC, id ASC
+LIMIT 50;
+
+\echo '-- Opening a chat: first unread message (ChatService.getFirstUnreadMessage)'
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT * FROM messages
+WHERE match_id = :'match_id'
+  AND receiver_id = :'user_id'
+  AND is_read = false
+  AND (sender_id = :'user_id' OR receiver_id = :'user_id')
+ORDER BY created_at ASC, id ASC
+LIMIT 1;
+
+\echo '-- Unread badge (ChatService.getUnreadCount)'
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT count(*) FROM messages
+WHERE receiver_id = :'user_id'
+  AND is_read = false
+  AND (sender_id = :'user_id' OR receiver_id = :'user_id');
+
+\echo '-- Mark read (ChatService.markMessagesAsRead), rolled back so both passes see the same data'
+BEGIN;
+EXPLAIN (ANALYZE, BUFFERS)
+UPDATE messages SET is_read = true
+WHERE match_id = :'match_id'
+  AND receiver_id = :'user_id'
+  AND is_read = false
+  AND (sender_id = :'user_id' OR receiver_id = :'user_id');
+ROLLBACK;
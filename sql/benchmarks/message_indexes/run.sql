@@ -0,0 +1,105 @@
+-- Benchmark: chat queries on messages with the old single-column indexes vs. the composite
+-- (match_id, created_at desc, id desc) and the partial unread index from schema.sql
+--
+-- Runs against a plain local Postgres (13+), no Supabase needed:
+--   createdb campusconnect_bench
+--   psql -d campusconnect_bench -v messages=10000000 -f sql/benchmarks/message_indexes/run.sql
+--
+-- messages defaults to 10M. Seeding takes a few minutes at that size. Messages are spread over
+-- 50k matches with a strong skew, so match 1 is a long chat (about 3% of all messages) and most
+-- are short. Everything older than two days is read. Every query in queries.sql is run with
+-- EXPLAIN (ANALYZE, BUFFERS) once per index set. Each query carries the RLS policy as an extra
+-- condition, the way PostgREST runs it for the signed-in user. Compare the plans and the
+-- execution times of the two passes, and record them in RESULTS.md next to this script.
+--
+-- Everything lives in the schema "message_bench", which is dropped at the start and the end.
+-- The table mirrors public.messages without the foreign keys.
+
+\set ON_ERROR_STOP on
+\if :{?messages}
+\else
+\set messages 10000000
+\endif
+
+DROP SCHEMA IF EXISTS message_bench CASCADE;
+CREATE SCHEMA message_bench;
+SET search_path = message_bench;
+
+CREATE TABLE messages (
+  id uuid not null default gen_random_uuid (),
+  match_id uuid not null,
+  sender_id uuid not null,
+  receiver_id uuid not null,
+  content text not null,
+  is_read boolean not null default false,
+  created_at timestamp with time zone null default now(),
+  constraint messages_pkey primary key (id)
+);
+
+-- 20k users in 50k matches
+CREATE TABLE matches AS
+SELECT n, gen_random_uuid() AS id, n % 20000 AS user1_n, (n * 7 + 1) % 20000 AS user2_n
+FROM generate_series(1, 50000) AS n;
+
+CREATE TABLE users AS
+SELECT n, gen_random_uuid() AS id FROM generate_series(0, 19999) AS n;
+
+-- random()^3 skews the messages towards the low match numbers
+INSERT INTO messages (match_id, sender_id, receiver_id, content, is_read, created_at)
+SELECT m.id,
+       CASE WHEN pick.first_sends THEN u1.id ELSE u2.id END,
+       CASE WHEN pick.first_sends THEN u2.id ELSE u1.id END,
+       'message ' || pick.g,
+       pick.created_at < now() - interval '2 days',
+       pick.created_at
+FROM (
+    SELECT g,
+           floor(50000 * power(random(), 3))::int + 1 AS match_n,
+           random() < 0.5 AS first_sends,
+           now() - random() * interval '730 days' AS created_at
+    FROM generate_series(1, :messages) AS g
+) pick
+JOIN matches m ON m.n = pick.match_n
+JOIN users u1 ON u1.n = m.user1_n
+JOIN users u2 ON u2.n = m.user2_n;
+
+-- The long chat, seen by its first user, and a cursor deep in its history
+SELECT m.id AS match_id, u1.id AS user_id
+FROM matches m JOIN users u1 ON u1.n = m.user1_n
+WHERE m.n = 1 \gset
+
+SELECT created_at AS cursor_created_at, id AS cursor_id
+FROM messages
+WHERE match_id = :'match_id'
+ORDER BY created_at DESC, id DESC
+OFFSET (SELECT count(*) / 2 FROM messages WHERE match_id = :'match_id') LIMIT 1 \gset
+
+SELECT count(*) AS chat_messages FROM messages WHERE match_id = :'match_id';
+SELECT count(*) AS unread_messages FROM messages WHERE NOT is_read;
+
+-- Before: the single-column indexes
+create index idx_messages_match_id on messages using btree (match_id);
+create index idx_messages_sender_id on messages using btree (sender_id);
+create index idx_messages_receiver_id on messages using btree (receiver_id);
+create index idx_messages_created_at on messages using btree (created_at desc);
+VACUUM ANALYZE messages;
+
+\echo '==== Before: single-column indexes ===='
+\ir queries.sql
+
+-- After: the indexes of schema.sql
+create index idx_messages_match_created_at on messages using btree (match_id, created_at desc, id desc);
+create index idx_messages_unread on messages using btree (receiver_id, match_id) where not is_read;
+DROP INDEX idx_messages_match_id;
+VACUUM ANALYZE messages;
+
+\echo '==== After: composite and partial unread indexes ===='
+\ir queries.sql
+
+SELECT indexrelname AS index, pg_size_pretty(pg_relation_size(indexrelid)) AS size
+FROM pg_stat_user_indexes
+WHERE schemaname = 'message_bench'
+ORDER BY indexrelname;
+
+RESET search_path;
+DROP SCHEMA message_bench CASCADE;
@@ -0,0 +1,98 @@
+-- Stress test: concurrent reciprocal likes must never miss a match
+--
+-- Runs against a plain local Postgres (13+) with pgbench, no Supabase needed:
+--   createdb campusconnect_bench
+--   psql -d campusconnect_bench -v pairs=5000 -f sql/benchmarks/mutual_like_stress/setup.sql
+--   pgbench -d campusconnect_bench -n -c 32 -j 8 -t 400 -D pairs=5000 \
+--       -f sql/benchmarks/mutual_like_stress/reciprocal_like.pgbench
+--   psql -d campusconnect_bench -f sql/benchmarks/mutual_like_stress/verify.sql
+--
+-- Every pgbench transaction inserts one like for a random pair in a random direction, so both
+-- users of a pair regularly like each other from different connections at the same moment.
+-- Fewer pairs means more contention. pgbench reports the throughput (tps = likes per second),
+-- verify.sql must report zero missed matches.
+--
+-- Everything lives in the schema "like_bench". The tables mirror public.user_actions,
+-- public.matches and public.like_pairs without the auth.users foreign keys; the trigger
+-- function is the one from schema.sql.
+
+\set ON_ERROR_STOP on
+
+DROP SCHEMA IF EXISTS like_bench CASCADE;
+CREATE SCHEMA like_bench;
+SET search_path = like_bench;
+
+CREATE TABLE user_actions (
+  id uuid not null default gen_random_uuid (),
+  user_id uuid not null,
+  target_user_id uuid not null,
+  action text not null,
+  created_at timestamp with time zone null default now(),
+  constraint user_actions_pkey primary key (id),
+  constraint unique_user_action unique (user_id, target_user_id)
+);
+
+CREATE TABLE matches (
+  id uuid not null default gen_random_uuid (),
+  user1_id uuid not null,
+  user2_id uuid not null,
+  matched_at timestamp with time zone null default now(),
+  constraint matches_pkey primary key (id),
+  constraint unique_match unique (user1_id, user2_id)
+);
+
+CREATE TABLE like_pairs (
+  user_low uuid not null,
+  user_high uuid not null,
+  low_likes_high boolean not null default false,
+  high_likes_low boolean not null default false,
+  constraint like_pairs_pkey primary key (user_low, user_high),
+  constraint like_pairs_ordered check (user_low < user_high)
+);
+
+CREATE FUNCTION create_matches_on_mutual_likes()
+RETURNS TRIGGER
+SET search_path = like_bench
+AS $$
+BEGIN
+    WITH new_likes AS (
+        SELECT
+            LEAST(user_id, target_user_id) AS user_low,
+            GREATEST(user_id, target_user_id) AS user_high,
+            bool_or(user_id < target_user_id) AS low_likes_high,
+            bool_or(user_id > target_user_id) AS high_likes_low
+        FROM new_actions
+        WHERE action = 'like'
+        GROUP BY 1, 2
+    ), pairs AS (
+        INSERT INTO like_pairs AS pair (user_low, user_high, low_likes_high, high_likes_low)
+        SELECT user_low, user_high, low_likes_high, high_likes_low
+        FROM new_likes
+        ORDER BY user_low, user_high
+        ON CONFLICT (user_low, user_high) DO UPDATE
+            SET low_likes_high = pair.low_likes_high OR EXCLUDED.low_likes_high,
+                high_likes_low = pair.high_likes_low OR EXCLUDED.high_likes_low
+        RETURNING user_low, user_high, low_likes_high, high_likes_low
+    )
+    INSERT INTO matches (user1_id, user2_id)
+    SELECT user_low, user_high
+    FROM pairs
+    WHERE low_likes_high AND high_likes_low
+    ON CONFLICT (user1_id, user2_id) DO NOTHING;
+
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER create_matches_on_likes
+AFTER INSERT ON user_actions
+REFERENCING NEW TABLE AS new_actions
+FOR EACH STATEMENT
+EXECUTE FUNCTION create_matches_on_mutual_likes();
+
+-- The two users of each pair
+CREATE TABLE pairs AS
+SELECT n AS id, gen_random_uuid() AS user_a, gen_random_uuid() AS user_b
+FROM generate_series(1, :pairs) AS n;
+
+ALTER TABLE pairs ADD PRIMARY KEY (id);
@@ -0,0 +1,17 @@
+-- Verify the stress test (see setup.sql): every pair with likes in both directions has a match
+
+SET search_path = like_bench;
+
+SELECT
+    (SELECT count(*) FROM user_actions) AS likes,
+    (SELECT count(*) FROM user_actions a
+     JOIN user_actions b ON b.user_id = a.target_user_id AND b.target_user_id = a.user_id
+     WHERE a.user_id < a.target_user_id) AS mutual_pairs,
+    (SELECT count(*) FROM matches) AS matches,
+    (SELECT count(*) FROM user_actions a
+     JOIN user_actions b ON b.user_id = a.target_user_id AND b.target_user_id = a.user_id
+     WHERE a.user_id < a.target_user_id
+       AND NOT EXISTS (
+           SELECT 1 FROM matches m
+           WHERE m.user1_id = a.user_id AND m.user2_id = a.target_user_id
+       )) AS missed_matches;
@@ -63,10 +63,34 @@ CREATE TABLE IF NOT EXISTS public.profiles (
 
 create index IF not exists idx_profiles_user_id on public.profiles using btree (user_id) TABLESPACE pg_default;
 
+-- Age range the user wants to see in discover, null means no limit
+ALTER TABLE public.profiles ADD COLUMN IF NOT EXISTS preferred_age_min smallint null;
+ALTER TABLE public.profiles ADD COLUMN IF NOT EXISTS preferred_age_max smallint null;
+
+ALTER TABLE public.profiles DROP CONSTRAINT IF EXISTS check_preferred_age_range;
+ALTER TABLE public.profiles ADD CONSTRAINT check_preferred_age_range check (
+  (preferred_age_min is null or preferred_age_min >= 18)
+  and (preferred_age_max is null or preferred_age_max >= 18)
+  and (preferred_age_min is null or preferred_age_max is null or preferred_age_min <= preferred_age_max)
+);
+
+-- Discover pool query: the age preference arrives as a birthdate range, the compatibility
+-- columns and user_id ride along so the range scan (and the user_id-only reconcile query)
+-- can be answered from the index
+create index IF not exists idx_profiles_birthdate_compatibility on public.profiles using btree (
+  birthdate, gender, looking_for, interested_in
+) INCLUDE (user_id) TABLESPACE pg_default;
+
 DROP TRIGGER IF EXISTS set_updated_at ON profiles;
 CREATE TRIGGER set_updated_at BEFORE UPDATE ON profiles 
 FOR EACH ROW EXECUTE FUNCTION update_timestamp();
 
+-- Older versions of the settings view saved "Male"/"Female" and "Dates" instead of the values
+-- profile setup uses. The trigger bumps updated_at, so cached candidate pools pick the fix up.
+UPDATE profiles SET gender = 'Man' WHERE gender = 'Male';
+UPDATE profiles SET gender = 'Woman' WHERE gender = 'Female';
+UPDATE profiles SET looking_for = 'Dating' WHERE looking_for = 'Dates';
+
 CREATE TABLE IF NOT EXISTS public.user_actions (
   id uuid not null default gen_random_uuid (),
   user_id uuid not null,
@@ -226,11 +250,23 @@ CREATE TABLE IF NOT EXISTS public.messages (
   constraint messages_receiver_id_fkey foreign KEY (receiver_id) references auth.users (id) on delete CASCADE
 ) TABLESPACE pg_default;
 
-create index IF not exists idx_messages_match_id on public.messages using btree (match_id) TABLESPACE pg_default;
 create index IF not exists idx_messages_sender_id on public.messages using btree (sender_id) TABLESPACE pg_default;
 create index IF not exists idx_messages_receiver_id on public.messages using btree (receiver_id) TABLESPACE pg_default;
 create index IF not exists idx_messages_created_at on public.messages using btree (created_at desc) TABLESPACE pg_default;
 
+-- One conversation in keyset order: history pages (scanned forward for older, backward for
+-- newer), the last message of a chat list item and the cascade from matches. Replaces the
+-- match_id index, which is its prefix.
+create index IF not exists idx_messages_match_created_at on public.messages using btree (
+  match_id, created_at desc, id desc
+) TABLESPACE pg_default;
+DROP INDEX IF EXISTS idx_messages_match_id;
+
+-- Unread messages only, which stay few however long the chats get: the unread badge count,
+-- the first unread message of a chat and the mark-read update
+create index IF not exists idx_messages_unread on public.messages using btree (receiver_id, match_id) TABLESPACE pg_default
+where not is_read;
+
 ALTER TABLE messages ENABLE ROW LEVEL SECURITY;
 
 CREATE POLICY "Users can view messages in their matches"
@@ -264,52 +300,365 @@ CREATE POLICY "Users can create their own actions"
     TO authenticated
     WITH CHECK (auth.uid() = user_id);
 
--- Function to create match when both users like each other
-CREATE OR REPLACE FUNCTION create_match_on_mutual_like()
+-- Pass expiry: passes older than pass_expiry_days stop excluding a profile from discover and
+-- are moved to user_actions_archive by compact_expired_passes, so the exclusion set only grows
+-- with recent activity. Likes never expire. Single row, read by the app and record_actions.
+CREATE TABLE IF NOT EXISTS public.action_settings (
+  id boolean not null default true,
+  pass_expiry_days integer not null default 90,
+  constraint action_settings_pkey primary key (id),
+  constraint action_settings_single_row check (id),
+  constraint action_settings_pass_expiry_days_check check (pass_expiry_days > 0)
+) TABLESPACE pg_default;
+
+INSERT INTO action_settings (id) VALUES (true) ON CONFLICT (id) DO NOTHING;
+
+ALTER TABLE action_settings ENABLE ROW LEVEL SECURITY;
+
+CREATE POLICY "Authenticated users can read the action settings"
+    ON public.action_settings
+    FOR SELECT
+    TO authenticated
+    USING (true);
+
+-- Lets record_actions (which runs as the user) clear an expired pass the compaction has not reached yet
+CREATE POLICY "Users can delete their own expired passes"
+    ON public.user_actions
+    FOR DELETE
+    TO authenticated
+    USING (
+        auth.uid() = user_id
+        AND action = 'pass'
+        AND created_at < now() - make_interval(days => (SELECT pass_expiry_days FROM action_settings))
+    );
+
+CREATE TABLE IF NOT EXISTS public.user_actions_archive (
+  id uuid not null,
+  user_id uuid not null,
+  target_user_id uuid not null,
+  action text not null,
+  created_at timestamp with time zone null,
+  archived_at timestamp with time zone not null default now(),
+  constraint user_actions_archive_pkey primary key (id),
+  constraint user_actions_archive_user_id_fkey foreign KEY (user_id) references auth.users (id) on delete CASCADE,
+  constraint user_actions_archive_target_user_id_fkey foreign KEY (target_user_id) references auth.users (id) on delete CASCADE
+) TABLESPACE pg_default;
+
+-- No policies: only the service role and the compaction see the archive
+ALTER TABLE user_actions_archive ENABLE ROW LEVEL SECURITY;
+
+-- Finds the expired passes in created_at order without scanning the likes
+create index IF not exists idx_user_actions_pass_created_at on public.user_actions using btree (created_at) TABLESPACE pg_default
+where action = 'pass';
+
+-- Move expired passes to the archive in batches, committing after each batch so locks are held
+-- only briefly and swipes keep going while it runs. Rows locked by a running swipe are skipped
+-- and picked up next time. No SET search_path / SECURITY DEFINER here: both would forbid COMMIT.
+CREATE OR REPLACE PROCEDURE compact_expired_passes(batch_size integer DEFAULT 5000)
+AS $$
+DECLARE
+    cutoff timestamptz := now() - make_interval(days => (SELECT pass_expiry_days FROM public.action_settings));
+    moved integer;
+BEGIN
+    LOOP
+        WITH batch AS (
+            SELECT id
+            FROM public.user_actions
+            WHERE action = 'pass' AND created_at < cutoff
+            ORDER BY created_at
+            LIMIT batch_size
+            FOR UPDATE SKIP LOCKED
+        ), deleted AS (
+            DELETE FROM public.user_actions ua
+            USING batch
+            WHERE ua.id = batch.id
+            RETURNING ua.id, ua.user_id, ua.target_user_id, ua.action, ua.created_at
+        )
+        INSERT INTO public.user_actions_archive (id, user_id, target_user_id, action, created_at)
+        SELECT id, user_id, target_user_id, action, created_at
+        FROM deleted
+        ON CONFLICT (id) DO NOTHING;
+
+        GET DIAGNOSTICS moved = ROW_COUNT;
+        COMMIT;
+        EXIT WHEN moved < batch_size;
+    END LOOP;
+END;
+$$ LANGUAGE plpgsql;
+
+REVOKE EXECUTE ON PROCEDURE compact_expired_passes(integer) FROM public, anon, authenticated;
+
+-- Nightly compaction with pg_cron where it is installed (Supabase: Database > Extensions)
+DO $$
+BEGIN
+    IF EXISTS (SELECT 1 FROM pg_extension WHERE extname = 'pg_cron') THEN
+        PERFORM cron.schedule('compact-expired-passes', '30 3 * * *', 'CALL public.compact_expired_passes()');
+    END IF;
+END;
+$$;
+
+-- Like state per pair of users, one row per unordered pair (user_low < user_high).
+-- Both users' likes meet on the same row, so concurrent likes are serialized by its row lock.
+CREATE TABLE IF NOT EXISTS public.like_pairs (
+  user_low uuid not null,
+  user_high uuid not null,
+  low_likes_high boolean not null default false,
+  high_likes_low boolean not null default false,
+  constraint like_pairs_pkey primary key (user_low, user_high),
+  constraint like_pairs_user_low_fkey foreign KEY (user_low) references auth.users (id) on delete CASCADE,
+  constraint like_pairs_user_high_fkey foreign KEY (user_high) references auth.users (id) on delete CASCADE,
+  constraint like_pairs_ordered check (user_low < user_high)
+) TABLESPACE pg_default;
+
+-- Only the trigger function (SECURITY DEFINER) reads and writes pair state
+ALTER TABLE like_pairs ENABLE ROW LEVEL SECURITY;
+
+-- Create matches for mutual likes, once per INSERT statement.
+-- The new likes are aggregated per pair and upserted into like_pairs. Under READ COMMITTED the
+-- upsert waits for a concurrent transaction touching the same pair and then updates its committed
+-- row, so RETURNING always sees the other user's like if it was committed first. Looking for the
+-- reverse like in user_actions instead could miss it when both likes commit at the same moment.
+-- Pairs are upserted in key order, so two batches touching the same pairs cannot deadlock.
+CREATE OR REPLACE FUNCTION create_matches_on_mutual_likes()
 RETURNS TRIGGER
 SECURITY DEFINER
 SET search_path = public
 AS $$
-DECLARE
-    mutual_like_exists boolean;
-    user1 uuid;
-    user2 uuid;
 BEGIN
-    -- Only proceed if the action is a 'like'
-    IF NEW.action = 'like' THEN
-        -- Check if the target user has also liked this user
-        SELECT EXISTS(
-            SELECT 1 FROM user_actions
-            WHERE user_id = NEW.target_user_id
-            AND target_user_id = NEW.user_id
-            AND action = 'like'
-        ) INTO mutual_like_exists;
-        
-        -- If mutual like exists, create a match
-        IF mutual_like_exists THEN
-            -- Order user IDs consistently (smaller UUID first)
-            IF NEW.user_id < NEW.target_user_id THEN
-                user1 := NEW.user_id;
-                user2 := NEW.target_user_id;
-            ELSE
-                user1 := NEW.target_user_id;
-                user2 := NEW.user_id;
-            END IF;
-            
-            -- Insert match (ignore if already exists)
-            INSERT INTO matches (user1_id, user2_id)
-            VALUES (user1, user2)
-            ON CONFLICT (user1_id, user2_id) DO NOTHING;
-        END IF;
-    END IF;
-    
-    RETURN NEW;
+    WITH new_likes AS (
+        SELECT
+            LEAST(user_id, target_user_id) AS user_low,
+            GREATEST(user_id, target_user_id) AS user_high,
+            bool_or(user_id < target_user_id) AS low_likes_high,
+            bool_or(user_id > target_user_id) AS high_likes_low
+        FROM new_actions
+        WHERE action = 'like'
+        GROUP BY 1, 2
+    ), pairs AS (
+        INSERT INTO like_pairs AS pair (user_low, user_high, low_likes_high, high_likes_low)
+        SELECT user_low, user_high, low_likes_high, high_likes_low
+        FROM new_likes
+        ORDER BY user_low, user_high
+        ON CONFLICT (user_low, user_high) DO UPDATE
+            SET low_likes_high = pair.low_likes_high OR EXCLUDED.low_likes_high,
+                high_likes_low = pair.high_likes_low OR EXCLUDED.high_likes_low
+        RETURNING user_low, user_high, low_likes_high, high_likes_low
+    )
+    INSERT INTO matches (user1_id, user2_id)
+    SELECT user_low, user_high
+    FROM pairs
+    WHERE low_likes_high AND high_likes_low
+    ON CONFLICT (user1_id, user2_id) DO NOTHING;
+
+    RETURN NULL;
 END;
 $$ LANGUAGE plpgsql;
 
--- Create trigger for automatic match creation
+-- Replaces the former per-row trigger
 DROP TRIGGER IF EXISTS create_match_on_like ON user_actions;
-CREATE TRIGGER create_match_on_like
+DROP FUNCTION IF EXISTS create_match_on_mutual_like();
+
+DROP TRIGGER IF EXISTS create_matches_on_likes ON user_actions;
+CREATE TRIGGER create_matches_on_likes
 AFTER INSERT ON user_actions
-FOR EACH ROW
-EXECUTE FUNCTION create_match_on_mutual_like();
\ No newline at end of file
+REFERENCING NEW TABLE AS new_actions
+FOR EACH STATEMENT
+EXECUTE FUNCTION create_matches_on_mutual_likes();
+
+-- Backfill pair state from existing likes and create matches the old trigger missed
+INSERT INTO like_pairs AS pair (user_low, user_high, low_likes_high, high_likes_low)
+SELECT
+    LEAST(user_id, target_user_id),
+    GREATEST(user_id, target_user_id),
+    bool_or(user_id < target_user_id),
+    bool_or(user_id > target_user_id)
+FROM user_actions
+WHERE action = 'like'
+GROUP BY 1, 2
+ON CONFLICT (user_low, user_high) DO UPDATE
+    SET low_likes_high = pair.low_likes_high OR EXCLUDED.low_likes_high,
+        high_likes_low = pair.high_likes_low OR EXCLUDED.high_likes_low;
+
+INSERT INTO matches (user1_id, user2_id)
+SELECT user_low, user_high
+FROM like_pairs
+WHERE low_likes_high AND high_likes_low
+ON CONFLICT (user1_id, user2_id) DO NOTHING;
+
+-- Record a batch of the current user's actions and return the matches they created.
+-- The client gets a new match in the same round trip as the like, no polling needed.
+-- Actions that already exist are skipped, so a batch can be retried safely; an expired pass is
+-- replaced by the new action.
+CREATE OR REPLACE FUNCTION record_actions(actions jsonb)
+RETURNS SETOF matches
+SET search_path = public
+AS $$
+DECLARE
+    liked uuid[];
+BEGIN
+    -- An expired pass that was not compacted yet must not swallow the new action
+    DELETE FROM user_actions ua
+    USING jsonb_array_elements(actions) AS item
+    WHERE ua.user_id = auth.uid()
+      AND ua.target_user_id = (item->>'target_user_id')::uuid
+      AND ua.action = 'pass'
+      AND ua.created_at < now() - make_interval(days => (SELECT pass_expiry_days FROM action_settings));
+
+    WITH inserted AS (
+        INSERT INTO user_actions (user_id, target_user_id, action)
+        SELECT auth.uid(), (item->>'target_user_id')::uuid, item->>'action'
+        FROM jsonb_array_elements(actions) AS item
+        ON CONFLICT (user_id, target_user_id) DO NOTHING
+        RETURNING target_user_id, action
+    )
+    SELECT coalesce(array_agg(target_user_id) FILTER (WHERE action = 'like'), '{}')
+    INTO liked
+    FROM inserted;
+
+    -- The match trigger has run by now, its rows are visible to the next statement
+    RETURN QUERY
+    SELECT m.*
+    FROM matches m
+    WHERE (m.user1_id = auth.uid() AND m.user2_id = ANY(liked))
+       OR (m.user2_id = auth.uid() AND m.user1_id = ANY(liked));
+END;
+$$ LANGUAGE plpgsql;
+
+-- Precomputed discover queue: ranked candidates per user, written by the DiscoverQueueJob tool.
+-- The app reads the head of its queue instead of ranking the whole pool on every open.
+CREATE TABLE IF NOT EXISTS public.discover_queue (
+  user_id uuid not null,
+  position integer not null,
+  candidate_id uuid not null,
+  constraint discover_queue_pkey primary key (user_id, position),
+  constraint discover_queue_user_id_fkey foreign KEY (user_id) references auth.users (id) on delete CASCADE,
+  constraint discover_queue_candidate_id_fkey foreign KEY (candidate_id) references auth.users (id) on delete CASCADE
+) TABLESPACE pg_default;
+
+-- When each user's queue was last computed, used by the job to find stale queues
+CREATE TABLE IF NOT EXISTS public.discover_queue_state (
+  user_id uuid not null,
+  computed_at timestamp with time zone not null default now(),
+  constraint discover_queue_state_pkey primary key (user_id),
+  constraint discover_queue_state_user_id_fkey foreign KEY (user_id) references auth.users (id) on delete CASCADE
+) TABLESPACE pg_default;
+
+ALTER TABLE discover_queue ENABLE ROW LEVEL SECURITY;
+ALTER TABLE discover_queue_state ENABLE ROW LEVEL SECURITY;
+
+CREATE POLICY "Users can view their own discover queue"
+    ON public.discover_queue
+    FOR SELECT
+    TO authenticated
+    USING (auth.uid() = user_id);
+
+-- The app skips a queue computed before the user's last profile change
+CREATE POLICY "Users can view their own discover queue state"
+    ON public.discover_queue_state
+    FOR SELECT
+    TO authenticated
+    USING (auth.uid() = user_id);
+
+-- Replace the queues of several users in one transaction (called by the job with the service role).
+-- queues: [{"user_id": ..., "computed_at": ..., "candidates": [uuid, ...]}, ...]
+CREATE OR REPLACE FUNCTION replace_discover_queues(queues jsonb)
+RETURNS void
+SET search_path = public
+AS $$
+BEGIN
+    DELETE FROM discover_queue
+    WHERE user_id IN (SELECT (queue->>'user_id')::uuid FROM jsonb_array_elements(queues) AS queue);
+
+    INSERT INTO discover_queue (user_id, position, candidate_id)
+    SELECT (queue->>'user_id')::uuid, candidate.position - 1, candidate.id::uuid
+    FROM jsonb_array_elements(queues) AS queue
+    CROSS JOIN LATERAL jsonb_array_elements_text(queue->'candidates') WITH ORDINALITY AS candidate(id, position);
+
+    INSERT INTO discover_queue_state (user_id, computed_at)
+    SELECT (queue->>'user_id')::uuid, (queue->>'computed_at')::timestamptz
+    FROM jsonb_array_elements(queues) AS queue
+    ON CONFLICT (user_id) DO UPDATE SET computed_at = EXCLUDED.computed_at;
+END;
+$$ LANGUAGE plpgsql;
+
+REVOKE EXECUTE ON FUNCTION replace_discover_queues(jsonb) FROM public, anon, authenticated;
+
+-- Collaborative-filtering factors, written by the CollaborativeFilteringJob tool and read by the
+-- DiscoverQueueJob: taste (as swiper) · appeal (as target) estimates how likely a like is.
+-- 16 floats each. Row level security without policies: only the service role can read them.
+CREATE TABLE IF NOT EXISTS public.user_factors (
+  user_id uuid not null,
+  taste real[] not null,
+  appeal real[] not null,
+  trained_at timestamp with time zone not null default now(),
+  constraint user_factors_pkey primary key (user_id),
+  constraint user_factors_user_id_fkey foreign KEY (user_id) references auth.users (id) on delete CASCADE
+) TABLESPACE pg_default;
+
+ALTER TABLE user_factors ENABLE ROW LEVEL SECURITY;
+
+-- Supabase Realtime: RealtimeClient subscribes to inserts on messages and matches. Only tables in
+-- the supabase_realtime publication are streamed, and RLS still decides which rows a user receives.
+DO $$
+BEGIN
+    IF NOT EXISTS (SELECT 1 FROM pg_publication_tables
+                   WHERE pubname = 'supabase_realtime' AND schemaname = 'public' AND tablename = 'messages') THEN
+        ALTER PUBLICATION supabase_realtime ADD TABLE public.messages;
+    END IF;
+    IF NOT EXISTS (SELECT 1 FROM pg_publication_tables
+                   WHERE pubname = 'supabase_realtime' AND schemaname = 'public' AND tablename = 'matches') THEN
+        ALTER PUBLICATION supabase_realtime ADD TABLE public.matches;
+    END IF;
+END;
+$$;
+
+-- Inbox of the current user in one round trip: every match with the other person's card fields,
+-- the last message and the unread count, most recent activity first. Runs with the caller's
+-- rights, so RLS applies as for the single requests it replaces. The last message comes from
+-- idx_messages_match_created_at and the unread count from idx_messages_unread.
+CREATE OR REPLACE FUNCTION get_inbox()
+RETURNS TABLE (
+    match_id uuid,
+    user1_id uuid,
+    user2_id uuid,
+    matched_at timestamp with time zone,
+    profile jsonb,
+    last_message jsonb,
+    unread_count integer,
+    last_activity_at timestamp with time zone
+)
+STABLE
+SET search_path = public
+AS $$
+    SELECT m.id,
+           m.user1_id,
+           m.user2_id,
+           m.matched_at,
+           jsonb_build_object(
+               'user_id', p.user_id,
+               'first_name', p.first_name,
+               'last_name', p.last_name,
+               'study_program', p.study_program,
+               'semester', p.semester,
+               'image_urls', p.image_urls
+           ),
+           CASE WHEN last_message.id IS NULL THEN NULL ELSE to_jsonb(last_message) END,
+           unread.count::integer,
+           greatest(m.matched_at, last_message.created_at)
+    FROM matches m
+    JOIN profiles p ON p.user_id = CASE WHEN m.user1_id = auth.uid() THEN m.user2_id ELSE m.user1_id END
+    LEFT JOIN LATERAL (
+        SELECT msg.*
+        FROM messages msg
+        WHERE msg.match_id = m.id
+        ORDER BY msg.created_at DESC, msg.id DESC
+        LIMIT 1
+    ) last_message ON true
+    CROSS JOIN LATERAL (
+        SELECT count(*) AS count
+        FROM messages msg
+        WHERE msg.receiver_id = auth.uid() AND msg.match_id = m.id AND NOT msg.is_read
+    ) unread
+    WHERE m.user1_id = auth.uid() OR m.user2_id = auth.uid()
+    ORDER BY greatest(m.matched_at, last_message.created_at) DESC NULLS LAST;
+$$ LANGUAGE sql;
@@ -74,6 +74,9 @@ public class CampusConnectApplication extends Application {
         stage.setOnCloseRequest(e -> {
             prefs.putDouble("window.width", stage.getWidth());
             prefs.putDouble("window.height", stage.getHeight());
+
+            // Send swipes that are still queued
+            sessionManager.shutdown();
         });
 
         stage.setScene(scene);
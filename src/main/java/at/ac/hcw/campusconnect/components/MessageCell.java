@@ -0,0 +1,75 @@
+package at.ac.hcw.campusconnect.components;
+
+import at.ac.hcw.campusconnect.models.Message;
+import javafx.geometry.Insets;
+import javafx.geometry.Pos;
+import javafx.scene.control.ContentDisplay;
+import javafx.scene.control.Label;
+import javafx.scene.control.ListCell;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.Region;
+import javafx.scene.layout.VBox;
+
+import java.util.function.Function;
+
+/**
+ * A chat bubble in the messages ListView. The list only creates cells for the visible rows and
+ * refills them while scrolling, so the bubble nodes are built once per cell and a new message
+ * only changes texts, alignment and the sent/received style class.
+ */
+public class MessageCell extends ListCell<Message> {
+    private final String currentUserId;
+    private final Function<String, String> timeFormatter;
+
+    private final HBox container;
+    private final VBox bubble;
+    private final Label textLabel;
+    private final Label timeLabel;
+
+    /**
+     * @param currentUserId Messages from this user are shown as sent
+     * @param timeFormatter Formats the created_at timestamp of a message
+     */
+    public MessageCell(String currentUserId, Function<String, String> timeFormatter) {
+        this.currentUserId = currentUserId;
+        this.timeFormatter = timeFormatter;
+        getStyleClass().add("message-cell");
+
+        textLabel = new Label();
+        textLabel.getStyleClass().add("message-text");
+        textLabel.setWrapText(true);
+        // The row height follows the wrapped text instead of cutting it off
+        textLabel.setMinHeight(Region.USE_PREF_SIZE);
+
+        timeLabel = new Label();
+        timeLabel.getStyleClass().add("message-time");
+
+        bubble = new VBox(5, textLabel, timeLabel);
+        bubble.setMaxWidth(300);
+        bubble.getStyleClass().add("message-bubble");
+
+        container = new HBox(bubble);
+        container.setPadding(new Insets(5, 0, 5, 0));
+
+        setContentDisplay(ContentDisplay.GRAPHIC_ONLY);
+    }
+
+    @Override
+    protected void updateItem(Message message, boolean empty) {
+        super.updateItem(message, empty);
+
+        if (empty || message == null) {
+            setGraphic(null);
+            return;
+        }
+
+        boolean isSent = message.getSenderId().equals(currentUserId);
+        container.setAlignment(isSent ? Pos.CENTER_RIGHT : Pos.CENTER_LEFT);
+        bubble.getStyleClass().removeAll("message-sent", "message-received");
+        bubble.getStyleClass().add(isSent ? "message-sent" : "message-received");
+
+        textLabel.setText(message.getContent());
+        timeLabel.setText(timeFormatter.apply(message.getCreatedAt()));
+        setGraphic(container);
+    }
+}
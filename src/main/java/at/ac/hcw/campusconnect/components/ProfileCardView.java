@@ -0,0 +1,204 @@
+package at.ac.hcw.campusconnect.components;
+
+import at.ac.hcw.campusconnect.models.Profile;
+import at.ac.hcw.campusconnect.util.DiscoverDeck;
+import javafx.collections.ObservableList;
+import javafx.css.PseudoClass;
+import javafx.geometry.Insets;
+import javafx.geometry.Pos;
+import javafx.scene.Node;
+import javafx.scene.control.Label;
+import javafx.scene.image.Image;
+import javafx.scene.image.ImageView;
+import javafx.scene.layout.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The discover profile card. The nodes are built once and then refilled for every card:
+ * interest tags and image indicators come from pools that only grow, so showing another
+ * profile changes texts and images instead of creating nodes, and the indicator state is
+ * a pseudo-class instead of an inline style.
+ * <p>
+ * DiscoverController keeps two of these and fills the hidden one with the next card ahead
+ * of time, so a swipe only swaps which one is visible.
+ */
+public class ProfileCardView extends VBox {
+    private static final PseudoClass ACTIVE = PseudoClass.getPseudoClass("active");
+
+    private final StackPane imageSection;
+    private final ImageView profileImage;
+    private final HBox imageIndicators;
+    private final Label profileName;
+    private final Label profileStudyProgram;
+    private final Label profileSemester;
+    private final Label profileBio;
+    private final FlowPane interestsPane;
+    private final Label lookingForLabel;
+    private final Label interestedInLabel;
+
+    private final List<Label> tagPool = new ArrayList<>();
+    private final List<StackPane> indicatorPool = new ArrayList<>();
+
+    private DiscoverDeck.Card card;
+    private int currentImageIndex = 0;
+
+    public ProfileCardView() {
+        getStyleClass().add("profile-card");
+
+        // Image section
+        profileName = new Label();
+        profileName.getStyleClass().add("profile-name");
+        profileStudyProgram = new Label();
+        profileStudyProgram.getStyleClass().add("profile-info");
+        profileSemester = new Label();
+        profileSemester.getStyleClass().add("profile-info");
+
+        VBox overlay = new VBox(2, profileName, profileStudyProgram, profileSemester);
+        overlay.getStyleClass().add("profile-overlay");
+        overlay.setPadding(new Insets(80, 20, 20, 20));
+        StackPane.setAlignment(overlay, Pos.BOTTOM_LEFT);
+
+        profileImage = new ImageView();
+        profileImage.setPreserveRatio(true);
+        profileImage.setFitWidth(400);
+        profileImage.setFitHeight(350);
+
+        imageIndicators = new HBox(8);
+        imageIndicators.setAlignment(Pos.CENTER);
+        StackPane.setAlignment(imageIndicators, Pos.BOTTOM_CENTER);
+        StackPane.setMargin(imageIndicators, new Insets(0, 0, -320, 0));
+
+        imageSection = new StackPane(overlay, profileImage, imageIndicators);
+        imageSection.getStyleClass().add("profile-image-section");
+        VBox.setVgrow(imageSection, Priority.ALWAYS);
+        imageSection.setOnMouseClicked(event ->
+                showImage(event.getX() < imageSection.getWidth() / 2 ? currentImageIndex - 1 : currentImageIndex + 1));
+
+        // Info section
+        profileBio = new Label();
+        profileBio.setWrapText(true);
+        profileBio.getStyleClass().add("profile-bio");
+
+        interestsPane = new FlowPane(8, 8);
+
+        lookingForLabel = new Label();
+        lookingForLabel.getStyleClass().add("info-value");
+        interestedInLabel = new Label();
+        interestedInLabel.getStyleClass().add("info-value");
+
+        HBox preferences = new HBox(20,
+                new VBox(5, styledLabel("Looking For", "info-label"), lookingForLabel),
+                new VBox(5, styledLabel("Interested In", "info-label"), interestedInLabel));
+
+        VBox infoSection = new VBox(15,
+                new VBox(8, styledLabel("About", "info-section-title"), profileBio),
+                new VBox(8, styledLabel("Interests", "info-section-title"), interestsPane),
+                preferences);
+        infoSection.getStyleClass().add("profile-info-section");
+        infoSection.setPadding(new Insets(20));
+
+        getChildren().addAll(imageSection, infoSection);
+    }
+
+    public DiscoverDeck.Card getCard() {
+        return card;
+    }
+
+    /**
+     * Fills the card and lays it out right away, so a hidden card is ready to be swapped in.
+     */
+    public void show(DiscoverDeck.Card card) {
+        this.card = card;
+        Profile profile = card.getProfile();
+
+        // Texts precomputed by the deck
+        profileName.setText(card.getTitle());
+        profileStudyProgram.setText(profile.getStudyProgram());
+        profileSemester.setText(card.getSemesterText());
+        profileBio.setText(profile.getBio());
+        lookingForLabel.setText(profile.getLookingFor());
+        interestedInLabel.setText(profile.getInterestedIn());
+
+        int tagCount = 0;
+        if (profile.getInterests() != null) {
+            for (String interest : profile.getInterests()) {
+                tagAt(tagCount++).setText(interest);
+            }
+        }
+        setPooledChildren(interestsPane, tagPool, tagCount);
+
+        int imageCount = card.getImages().size();
+        for (int i = 0; i < imageCount; i++) {
+            indicatorAt(i);
+        }
+        setPooledChildren(imageIndicators, indicatorPool, imageCount);
+        // Hide indicators if only one image
+        imageIndicators.setVisible(imageCount > 1);
+        imageIndicators.setManaged(imageCount > 1);
+        showImage(0);
+
+        applyCss();
+        layout();
+    }
+
+    /**
+     * Releases the shown card, e.g. when there is no next card to buffer.
+     */
+    public void clear() {
+        card = null;
+        profileImage.setImage(null);
+    }
+
+    private void showImage(int index) {
+        if (card == null || card.getImages().isEmpty()) {
+            profileImage.setImage(null);
+            return;
+        }
+        // Wraps around in both directions
+        List<Image> images = card.getImages();
+        currentImageIndex = Math.floorMod(index, images.size());
+        profileImage.setImage(images.get(currentImageIndex));
+        for (int i = 0; i < images.size(); i++) {
+            indicatorPool.get(i).pseudoClassStateChanged(ACTIVE, i == currentImageIndex);
+        }
+    }
+
+    private Label tagAt(int index) {
+        while (tagPool.size() <= index) {
+            tagPool.add(styledLabel(null, "interest-tag-selected"));
+        }
+        return tagPool.get(index);
+    }
+
+    private StackPane indicatorAt(int index) {
+        while (indicatorPool.size() <= index) {
+            StackPane indicator = new StackPane();
+            indicator.getStyleClass().add("image-indicator");
+            indicator.setPrefWidth(30);
+            indicator.setMaxHeight(3);
+            indicator.setMaxWidth(30);
+            indicatorPool.add(indicator);
+        }
+        return indicatorPool.get(index);
+    }
+
+    /**
+     * Makes the first count pool nodes the children of the pane, touching only the difference
+     */
+    private static void setPooledChildren(Pane pane, List<? extends Node> pool, int count) {
+        ObservableList<Node> children = pane.getChildren();
+        if (children.size() > count) {
+            children.remove(count, children.size());
+        } else if (children.size() < count) {
+            children.addAll(pool.subList(children.size(), count));
+        }
+    }
+
+    private static Label styledLabel(String text, String styleClass) {
+        Label label = new Label(text);
+        label.getStyleClass().add(styleClass);
+        return label;
+    }
+}
@@ -0,0 +1,45 @@
+package at.ac.hcw.campusconnect.config;
+
+import io.github.cdimascio.dotenv.Dotenv;
+
+import java.util.Locale;
+
+/**
+ * Discover ranking weights from the .env file, e.g. RANKING_WEIGHT_SHARED_INTERESTS=2.
+ * A weight of 0 turns a scorer off; weights are clamped to 0..MAX_WEIGHT.
+ */
+public class RankingConfig {
+    // Keeps the total scores small enough for the ranking's counting sort
+    public static final int MAX_WEIGHT = 100;
+
+    private static Dotenv dotenv;
+
+    /**
+     * @param scorerName Name of the scorer, see Scorer.getName()
+     * @param defaultWeight Weight if none (or an invalid one) is configured
+     */
+    public static synchronized int getWeight(String scorerName, int defaultWeight) {
+        if (dotenv == null) {
+            dotenv = Dotenv.configure()
+                    .filename(".env")
+                    .ignoreIfMalformed()
+                    .ignoreIfMissing()
+                    .load();
+        }
+
+        String value = dotenv.get("RANKING_WEIGHT_" + scorerName.toUpperCase(Locale.ROOT));
+        if (value == null) {
+            return defaultWeight;
+        }
+        try {
+            int weight = Integer.parseInt(value.trim());
+            if (weight < 0 || weight > MAX_WEIGHT) {
+                System.err.println("Ranking weight for " + scorerName + " out of range 0.." + MAX_WEIGHT + ": " + value);
+            }
+            return Math.min(MAX_WEIGHT, Math.max(0, weight));
+        } catch (NumberFormatException e) {
+            System.err.println("Invalid ranking weight for " + scorerName + ": " + value);
+            return defaultWeight;
+        }
+    }
+}
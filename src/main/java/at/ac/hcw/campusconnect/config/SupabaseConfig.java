@@ -5,6 +5,7 @@ import lombok.Getter;
 
 public class SupabaseConfig {
     private static String supabaseUrl;
+    private static String realtimeUrl;
     @Getter
     private static String supabaseKey;
 
@@ -17,6 +18,8 @@ public class SupabaseConfig {
 
         supabaseUrl = dotenv.get("SUPABASE_URL");
         supabaseKey = dotenv.get("SUPABASE_ANON_KEY");
+        // Optional, e.g. ws://localhost:4000/socket for the RealtimeStandInServer
+        realtimeUrl = dotenv.get("SUPABASE_REALTIME_URL");
 
         if (supabaseUrl == null || supabaseKey == null) {
             System.out.println("Warning: Supabase configuration not found. Using demo mode.");
@@ -35,4 +38,11 @@ public class SupabaseConfig {
     public static String getStorageUrl() {
         return supabaseUrl + "/storage/v1";
     }
+
+    public static String getRealtimeUrl() {
+        if (realtimeUrl != null) {
+            return realtimeUrl;
+        }
+        return supabaseUrl.replaceFirst("^http", "ws") + "/realtime/v1/websocket";
+    }
 }
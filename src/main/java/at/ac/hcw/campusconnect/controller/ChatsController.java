@@ -1,20 +1,28 @@
 package at.ac.hcw.campusconnect.controller;
 
 import at.ac.hcw.campusconnect.components.ErrorBox;
+import at.ac.hcw.campusconnect.components.MessageCell;
 import at.ac.hcw.campusconnect.models.Match;
 import at.ac.hcw.campusconnect.models.Message;
 import at.ac.hcw.campusconnect.models.Profile;
 import at.ac.hcw.campusconnect.services.ChatService;
 import at.ac.hcw.campusconnect.services.MatchService;
+import at.ac.hcw.campusconnect.services.MessageSync;
+import at.ac.hcw.campusconnect.services.RealtimeClient;
 import at.ac.hcw.campusconnect.services.SessionManager;
+import at.ac.hcw.campusconnect.util.MessageWindow;
 import javafx.application.Platform;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
 import javafx.fxml.FXML;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
 import javafx.scene.control.Button;
+import javafx.scene.control.IndexedCell;
 import javafx.scene.control.Label;
-import javafx.scene.control.ScrollPane;
+import javafx.scene.control.ListView;
 import javafx.scene.control.TextField;
+import javafx.scene.control.skin.VirtualFlow;
 import javafx.scene.image.Image;
 import javafx.scene.image.ImageView;
 import javafx.scene.layout.HBox;
@@ -28,9 +36,16 @@ import java.time.format.DateTimeFormatter;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
 public class ChatsController {
 
+    private static final long POLL_INTERVAL_MILLIS = 3_000;
+    // With realtime pushes the poll is only a safety net that also moves the sync cursor
+    private static final long LIVE_POLL_INTERVAL_MILLIS = 60_000;
+
     @FXML
     private ErrorBox errorBox;
     @FXML
@@ -46,9 +61,7 @@ public class ChatsController {
     @FXML
     private Label chatUserInfo;
     @FXML
-    private ScrollPane messagesScrollPane;
-    @FXML
-    private VBox messagesContainer;
+    private ListView<Message> messagesList;
     @FXML
     private TextField messageInput;
     @FXML
@@ -59,24 +72,59 @@ public class ChatsController {
     private SessionManager sessionManager;
     private MatchService matchService;
     private ChatService chatService;
+    private MessageSync messageSync;
 
     private List<Match> matches;
     private Match selectedMatch;
     private Profile selectedProfile;
-    private Map<String, Profile> profileCache = new HashMap<>();
-
-    private Thread messageRefreshThread;
+    private final Map<String, HBox> chatItems = new HashMap<>(); // Chat list items by match ID
+    private final ObservableList<Message> messageItems = FXCollections.observableArrayList();
+    private MessageWindow messageWindow; // Of the selected match
+    private boolean loadingPage;
+
+    private volatile Thread messageRefreshThread; // Null while the view is not shown
+    private RealtimeClient realtime; // The client the listeners are registered with
+    private Consumer<Message> messageListener;
+    private Consumer<Boolean> statusListener;
+    private final Runnable stopOnShutdown = this::stopMessageRefresh;
+    private final Semaphore pollNow = new Semaphore(0);
 
     public void initialize() {
         sessionManager = SessionManager.getInstance();
         matchService = new MatchService(sessionManager);
         chatService = new ChatService(sessionManager);
+        messageSync = sessionManager.getMessageSync();
+
+        // Only the visible messages get cells, which are reused while scrolling
+        String currentUserId = sessionManager.getCurrentUser().getId();
+        messagesList.setItems(messageItems);
+        messagesList.setCellFactory(list -> new MessageCell(currentUserId, this::formatTime));
+        // Older and newer pages are loaded when the list is scrolled to its top or bottom
+        messagesList.skinProperty().addListener((observable, oldSkin, skin) -> {
+            VirtualFlow<?> flow = virtualFlow();
+            if (flow != null) {
+                flow.positionProperty().addListener((position, oldValue, value) -> loadPageAtEdge(value.doubleValue()));
+            }
+        });
+
+        // New messages update the chat list while the view is shown, also before a chat is opened
+        messagesList.sceneProperty().addListener((observable, oldScene, scene) -> {
+            if (scene != null) {
+                startMessageRefresh();
+            } else {
+                stopMessageRefresh();
+            }
+        });
+        if (messagesList.getScene() != null) {
+            startMessageRefresh();
+        }
 
         loadMatches();
     }
 
     private void loadMatches() {
-        matchService.getMatches()
+        // One request for the whole list: profiles, last messages and unread counts come with the matches
+        matchService.getInbox()
                 .thenAccept(loadedMatches -> {
                     Platform.runLater(() -> {
                         if (loadedMatches == null || loadedMatches.isEmpty()) {
@@ -99,62 +147,18 @@ public class ChatsController {
 
     private void displayChatList() {
         chatList.getChildren().clear();
+        chatItems.clear();
         chatList.setVisible(true);
         chatListEmptyState.setVisible(false);
 
-        String currentUserId = sessionManager.getCurrentUser().getId();
-
+        // Already sorted by last activity
         for (Match match : matches) {
-            String matchedUserId = match.getUser1Id().equals(currentUserId) ?
-                    match.getUser2Id() : match.getUser1Id();
-
-            // Create chat item
-            HBox chatItem = createChatItemPlaceholder();
+            HBox chatItem = createChatItem(match, match.getMatchedProfile(), match.getLastMessage());
             chatList.getChildren().add(chatItem);
-
-            // Load profile
-            matchService.getMatchedProfile(matchedUserId)
-                    .thenAccept(profile -> {
-                        if (profile != null) {
-                            profileCache.put(matchedUserId, profile);
-                            match.setMatchedProfile(profile);
-
-                            // Load last message
-                            chatService.getLastMessage(match.getId())
-                                    .thenAccept(lastMessage -> {
-                                        Platform.runLater(() -> {
-                                            match.setLastMessage(lastMessage);
-                                            HBox filledItem = createChatItem(match, profile, lastMessage);
-                                            int index = chatList.getChildren().indexOf(chatItem);
-                                            if (index >= 0) {
-                                                chatList.getChildren().set(index, filledItem);
-                                            }
-                                        });
-                                    });
-                        }
-                    });
+            chatItems.put(match.getId(), chatItem);
         }
     }
 
-    private HBox createChatItemPlaceholder() {
-        HBox item = new HBox(15);
-        item.setAlignment(Pos.CENTER_LEFT);
-        item.getStyleClass().add("chat-item");
-        item.setPadding(new Insets(15, 20, 15, 20));
-
-        StackPane avatar = new StackPane();
-        avatar.setPrefSize(50, 50);
-        avatar.getStyleClass().add("profile-avatar-small");
-
-        VBox textContainer = new VBox(5);
-        Label nameLabel = new Label("Loading...");
-        nameLabel.getStyleClass().add("chat-name");
-        textContainer.getChildren().add(nameLabel);
-
-        item.getChildren().addAll(avatar, textContainer);
-        return item;
-    }
-
     private HBox createChatItem(Match match, Profile profile, Message lastMessage) {
         HBox item = new HBox(15);
         item.setAlignment(Pos.CENTER_LEFT);
@@ -215,6 +219,12 @@ public class ChatsController {
             timeContainer.getChildren().add(timeLabel);
         }
 
+        if (match.getUnreadCount() > 0) {
+            Label unreadLabel = new Label(String.valueOf(match.getUnreadCount()));
+            unreadLabel.getStyleClass().add("badge");
+            timeContainer.getChildren().add(unreadLabel);
+        }
+
         item.getChildren().addAll(avatarContainer, textContainer, timeContainer);
 
         // Click handler
@@ -227,6 +237,12 @@ public class ChatsController {
         selectedMatch = match;
         selectedProfile = profile;
 
+        // Opening the chat marks its messages as read
+        if (match.getUnreadCount() > 0) {
+            match.setUnreadCount(0);
+            updateChatItem(match.getId(), match.getLastMessage());
+        }
+
         // Update header
         chatUserName.setText(profile.getFirstName() + " " + profile.getLastName());
         chatUserInfo.setText(profile.getStudyProgram() + " • Semester " + profile.getSemester());
@@ -255,21 +271,15 @@ public class ChatsController {
 
         // Hide empty state
         emptyChatState.setVisible(false);
-        messagesScrollPane.setVisible(true);
+        messagesList.setVisible(true);
         messageInput.setDisable(false);
         sendButton.setDisable(false);
 
         // Highlight selected chat
         updateSelectedChatStyle();
 
-        // Load messages
+        // Load messages, marks them as read once the first unread one is known
         loadMessages();
-
-        // Mark as read
-        chatService.markMessagesAsRead(match.getId());
-
-        // Start message refresh
-        startMessageRefresh();
     }
 
     private void updateSelectedChatStyle() {
@@ -300,10 +310,21 @@ public class ChatsController {
     private void loadMessages() {
         if (selectedMatch == null) return;
 
-        chatService.getMessages(selectedMatch.getId())
-                .thenAccept(messages -> {
+        String matchId = selectedMatch.getId();
+        messageWindow = null;
+        messageItems.clear();
+        messageSync.loadConversation(matchId)
+                .thenAccept(window -> {
                     Platform.runLater(() -> {
-                        displayMessages(messages);
+                        if (selectedMatch == null || !selectedMatch.getId().equals(matchId)) {
+                            return;
+                        }
+                        if (window == null) {
+                            errorBox.showError("Failed to load messages.");
+                            return;
+                        }
+                        displayMessages(window);
+                        messageSync.markConversationRead(matchId);
                     });
                 })
                 .exceptionally(throwable -> {
@@ -315,51 +336,162 @@ public class ChatsController {
                 });
     }
 
-    private void displayMessages(List<Message> messages) {
-        messagesContainer.getChildren().clear();
+    /**
+     * Show the loaded window, starting at the first unread message if there is one, otherwise at the bottom
+     */
+    private void displayMessages(MessageWindow window) {
+        messageWindow = window;
+        messageItems.setAll(window.getMessages());
 
-        if (messages == null || messages.isEmpty()) {
-            Label emptyLabel = new Label("No messages yet. Say hi!");
-            emptyLabel.getStyleClass().add("empty-subtitle");
-            messagesContainer.getChildren().add(emptyLabel);
-            return;
+        String currentUserId = sessionManager.getCurrentUser().getId();
+        for (int i = 0; i < messageItems.size(); i++) {
+            Message message = messageItems.get(i);
+            if (currentUserId.equals(message.getReceiverId()) && !Boolean.TRUE.equals(message.getIsRead())) {
+                messagesList.scrollTo(i);
+                return;
+            }
         }
+        // Scroll to bottom
+        if (!messageItems.isEmpty()) {
+            messagesList.scrollTo(messageItems.size() - 1);
+        }
+    }
+
+    /**
+     * Load the next page when the list reaches the top or the bottom of the window.
+     * The rows in view stay in place while the page is added and the far side is dropped.
+     */
+    private void loadPageAtEdge(double position) {
+        MessageWindow window = messageWindow;
+        if (window == null || loadingPage || selectedMatch == null) return;
+
+        String matchId = selectedMatch.getId();
+        int firstVisible = firstVisibleIndex();
+        if (position <= 0 && window.hasOlder()) {
+            loadingPage = true;
+            messageSync.loadOlder(matchId, window).thenAccept(added -> Platform.runLater(() -> {
+                loadingPage = false;
+                if (added > 0 && window == messageWindow) {
+                    // The dropped messages were at the bottom, so only the added ones shift the rows
+                    messageItems.setAll(window.getMessages());
+                    messagesList.scrollTo(firstVisible + added);
+                }
+            }));
+        } else if (position >= 1 && window.hasNewer()) {
+            loadingPage = true;
+            messageSync.loadNewer(matchId, window).thenAccept(dropped -> Platform.runLater(() -> {
+                loadingPage = false;
+                if (dropped >= 0 && window == messageWindow) {
+                    messageItems.setAll(window.getMessages());
+                    messagesList.scrollTo(Math.max(0, firstVisible - dropped));
+                }
+            }));
+        }
+    }
+
+    /**
+     * Append new messages of the open conversation that went into its window, the existing rows stay as they are.
+     * Follows them to the bottom unless the user scrolled up to read older messages.
+     */
+    private void appendMessages(List<Message> messages) {
+        MessageWindow window = messageWindow;
+        if (window == null) return;
+
+        // A window away from the live end loads them with its newer pages
+        List<Message> inWindow = messages.stream().filter(message -> window.contains(message.getId())).toList();
+        if (inWindow.isEmpty()) return;
 
         String currentUserId = sessionManager.getCurrentUser().getId();
+        boolean follow = isScrolledToBottom()
+                || inWindow.stream().anyMatch(message -> message.getSenderId().equals(currentUserId));
+        messageItems.addAll(inWindow);
+
+        // Drop the rows the window dropped to stay within its capacity
+        int dropped = 0;
+        while (dropped < messageItems.size() && !window.contains(messageItems.get(dropped).getId())) {
+            dropped++;
+        }
+        if (dropped > 0) {
+            int firstVisible = firstVisibleIndex();
+            messageItems.remove(0, dropped);
+            if (!follow) {
+                messagesList.scrollTo(Math.max(0, firstVisible - dropped));
+            }
+        }
 
-        for (Message message : messages) {
-            boolean isSent = message.getSenderId().equals(currentUserId);
-            HBox messageBox = createMessageBubble(message, isSent);
-            messagesContainer.getChildren().add(messageBox);
+        if (follow) {
+            messagesList.scrollTo(messageItems.size() - 1);
         }
+    }
 
-        // Scroll to bottom
-        Platform.runLater(() -> {
-            messagesScrollPane.setVvalue(1.0);
-        });
+    private boolean isScrolledToBottom() {
+        VirtualFlow<?> flow = virtualFlow();
+        IndexedCell<?> lastVisible = flow != null ? flow.getLastVisibleCell() : null;
+        return lastVisible == null || lastVisible.getIndex() >= messageItems.size() - 1;
     }
 
-    private HBox createMessageBubble(Message message, boolean isSent) {
-        HBox container = new HBox();
-        container.setAlignment(isSent ? Pos.CENTER_RIGHT : Pos.CENTER_LEFT);
-        container.setPadding(new Insets(5, 0, 5, 0));
+    private int firstVisibleIndex() {
+        VirtualFlow<?> flow = virtualFlow();
+        IndexedCell<?> firstVisible = flow != null ? flow.getFirstVisibleCell() : null;
+        return firstVisible != null ? Math.max(0, firstVisible.getIndex()) : 0;
+    }
 
-        VBox bubble = new VBox(5);
-        bubble.setMaxWidth(300);
-        bubble.getStyleClass().add("message-bubble");
-        bubble.getStyleClass().add(isSent ? "message-sent" : "message-received");
+    private VirtualFlow<?> virtualFlow() {
+        return messagesList.lookup(".virtual-flow") instanceof VirtualFlow<?> flow ? flow : null;
+    }
 
-        Label textLabel = new Label(message.getContent());
-        textLabel.getStyleClass().add("message-text");
-        textLabel.setWrapText(true);
+    /**
+     * Apply the messages that arrived since the last poll: bubbles for the open conversation,
+     * last message and time for the affected chat list items
+     */
+    private void applyNewMessages(Map<String, List<Message>> newMessages) {
+        String currentUserId = sessionManager.getCurrentUser().getId();
+        for (Map.Entry<String, List<Message>> entry : newMessages.entrySet()) {
+            List<Message> messages = entry.getValue();
+            long incoming = messages.stream().filter(message -> !message.getSenderId().equals(currentUserId)).count();
+            boolean selected = selectedMatch != null && selectedMatch.getId().equals(entry.getKey());
+
+            if (!selected && incoming > 0 && matches != null) {
+                matches.stream()
+                        .filter(match -> match.getId().equals(entry.getKey()))
+                        .findFirst()
+                        .ifPresent(match -> match.setUnreadCount(match.getUnreadCount() + (int) incoming));
+            }
+            updateChatItem(entry.getKey(), messages.get(messages.size() - 1));
 
-        Label timeLabel = new Label(formatTime(message.getCreatedAt()));
-        timeLabel.getStyleClass().add("message-time");
+            if (selected) {
+                appendMessages(messages);
+                if (incoming > 0) {
+                    messageSync.markConversationRead(selectedMatch.getId());
+                }
+            }
+        }
+    }
 
-        bubble.getChildren().addAll(textLabel, timeLabel);
-        container.getChildren().add(bubble);
+    /**
+     * Rebuild a chat list item; a chat with a new last message moves to the top, as the inbox is sorted by activity
+     */
+    private void updateChatItem(String matchId, Message lastMessage) {
+        HBox item = chatItems.get(matchId);
+        if (item == null || matches == null) return;
 
-        return container;
+        for (Match match : matches) {
+            if (match.getId().equals(matchId) && match.getMatchedProfile() != null) {
+                boolean newActivity = lastMessage != null && lastMessage != match.getLastMessage();
+                match.setLastMessage(lastMessage);
+                HBox updated = createChatItem(match, match.getMatchedProfile(), lastMessage);
+                if (item.getStyleClass().contains("chat-item-selected")) {
+                    updated.getStyleClass().add("chat-item-selected");
+                }
+                int index = chatList.getChildren().indexOf(item);
+                if (index >= 0) {
+                    chatList.getChildren().remove(index);
+                    chatList.getChildren().add(newActivity ? 0 : index, updated);
+                    chatItems.put(matchId, updated);
+                }
+                break;
+            }
+        }
     }
 
     @FXML
@@ -382,8 +514,19 @@ public class ChatsController {
                         sendButton.setDisable(false);
 
                         if (message != null) {
-                            // Reload messages to show the new one
-                            loadMessages();
+                            // Show it right away, the sync skips it when the next poll returns it
+                            if (messageSync.addMessage(message)) {
+                                if (selectedMatch != null && selectedMatch.getId().equals(message.getMatchId())) {
+                                    if (messageWindow != null && messageWindow.hasNewer()) {
+                                        // Scrolled back in the history, jump to the latest messages
+                                        messageSync.closeConversation(message.getMatchId());
+                                        loadMessages();
+                                    } else {
+                                        appendMessages(List.of(message));
+                                    }
+                                }
+                                updateChatItem(message.getMatchId(), message);
+                            }
                         } else {
                             errorBox.showError("Failed to send message.");
                         }
@@ -401,26 +544,43 @@ public class ChatsController {
     }
 
     private void startMessageRefresh() {
-        // Stop previous refresh thread if exists
-        if (messageRefreshThread != null && messageRefreshThread.isAlive()) {
-            messageRefreshThread.interrupt();
+        // One poll covers all conversations, so the thread runs for as long as the view is shown
+        if (messageRefreshThread != null) {
+            return;
         }
 
-        // Start new refresh thread
+        // Pushed messages show up right away; after a reconnect a poll catches up on what was missed
+        RealtimeClient realtime = sessionManager.getRealtimeClient();
+        this.realtime = realtime;
+        messageListener = message -> {
+            if (messageSync.addMessage(message)) {
+                Platform.runLater(() -> applyNewMessages(Map.of(message.getMatchId(), List.of(message))));
+            }
+        };
+        statusListener = live -> {
+            if (live) {
+                pollNow.release();
+            }
+        };
+        realtime.addMessageListener(messageListener);
+        realtime.addStatusListener(statusListener);
+        // Signing out replaces the whole scene, the list never gets detached from its own
+        sessionManager.addShutdownListener(stopOnShutdown);
+
         messageRefreshThread = new Thread(() -> {
-            while (!Thread.currentThread().isInterrupted() && selectedMatch != null) {
+            Thread current = Thread.currentThread();
+            // Stops when the chats view has been left, see stopMessageRefresh
+            while (messageRefreshThread == current) {
                 try {
-                    Thread.sleep(3000); // Refresh every 3 seconds
-
-                    if (selectedMatch != null) {
-                        chatService.getMessages(selectedMatch.getId())
-                                .thenAccept(messages -> {
-                                    Platform.runLater(() -> {
-                                        if (selectedMatch != null) {
-                                            displayMessages(messages);
-                                        }
-                                    });
-                                });
+                    // Polls every 3 seconds while realtime is down
+                    pollNow.tryAcquire(realtime.isLive() ? LIVE_POLL_INTERVAL_MILLIS : POLL_INTERVAL_MILLIS,
+                            TimeUnit.MILLISECONDS);
+                    pollNow.drainPermits();
+
+                    // A poll still running when the view is left does not merge, the next view polls those messages
+                    Map<String, List<Message>> newMessages = messageSync.poll(() -> messageRefreshThread == current).join();
+                    if (!newMessages.isEmpty()) {
+                        Platform.runLater(() -> applyNewMessages(newMessages));
                     }
                 } catch (InterruptedException e) {
                     break;
@@ -431,13 +591,35 @@ public class ChatsController {
         messageRefreshThread.start();
     }
 
+    /**
+     * Stop polling and listening for pushes as soon as the view is detached or the session ends
+     */
+    private void stopMessageRefresh() {
+        if (messageRefreshThread == null) {
+            return;
+        }
+        realtime.removeMessageListener(messageListener);
+        realtime.removeStatusListener(statusListener);
+        sessionManager.removeShutdownListener(stopOnShutdown);
+        realtime = null;
+        messageListener = null;
+        statusListener = null;
+
+        Thread thread = messageRefreshThread;
+        messageRefreshThread = null;
+        thread.interrupt();
+    }
+
     public void selectChatByProfile(Profile profile) {
-        if (matches == null || profile == null) return;
-        
+        if (profile == null) return;
+
+        // The list may still be loading, the session's match cache already knows recent matches
+        List<Match> candidates = matches != null ? matches : sessionManager.getMatchCache().getMatches();
+
         // Find the match that contains this profile
         String currentUserId = sessionManager.getCurrentUser().getId();
         
-        for (Match match : matches) {
+        for (Match match : candidates) {
             String matchedUserId = match.getUser1Id().equals(currentUserId) ?
                     match.getUser2Id() : match.getUser1Id();
             
@@ -1,56 +1,68 @@
 package at.ac.hcw.campusconnect.controller;
 
 import at.ac.hcw.campusconnect.components.ErrorBox;
+import at.ac.hcw.campusconnect.components.ProfileCardView;
+import at.ac.hcw.campusconnect.models.DiscoverFilter;
 import at.ac.hcw.campusconnect.models.Profile;
 import at.ac.hcw.campusconnect.services.MatchService;
 import at.ac.hcw.campusconnect.services.SessionManager;
+import at.ac.hcw.campusconnect.util.DiscoverDeck;
+import at.ac.hcw.campusconnect.util.SceneNavigator;
 import javafx.application.Platform;
+import javafx.collections.FXCollections;
 import javafx.fxml.FXML;
-import javafx.geometry.Pos;
+import javafx.scene.Parent;
 import javafx.scene.control.Button;
+import javafx.scene.control.ComboBox;
 import javafx.scene.control.Label;
 import javafx.scene.control.ProgressIndicator;
-import javafx.scene.image.Image;
-import javafx.scene.image.ImageView;
 import javafx.scene.layout.*;
-import javafx.scene.shape.Circle;
 
-import java.time.LocalDate;
-import java.time.Period;
-import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 public class DiscoverController {
 
+    private static final String ANY_DEGREE = "Any degree";
+    private static final String ANY_PROGRAM = "Any program";
+
+    // Filter options mapped to their inclusive {min, max} bounds, null means unrestricted
+    private static final Map<String, Integer[]> SEMESTER_RANGES = new LinkedHashMap<>();
+    private static final Map<String, Integer[]> AGE_RANGES = new LinkedHashMap<>();
+
+    static {
+        SEMESTER_RANGES.put("Any semester", new Integer[]{null, null});
+        SEMESTER_RANGES.put("Semester 1-2", new Integer[]{1, 2});
+        SEMESTER_RANGES.put("Semester 3-4", new Integer[]{3, 4});
+        SEMESTER_RANGES.put("Semester 5-6", new Integer[]{5, 6});
+
+        AGE_RANGES.put("Any age", new Integer[]{null, null});
+        AGE_RANGES.put("18-21", new Integer[]{18, 21});
+        AGE_RANGES.put("22-25", new Integer[]{22, 25});
+        AGE_RANGES.put("26-30", new Integer[]{26, 30});
+        AGE_RANGES.put("31+", new Integer[]{31, null});
+    }
+
     @FXML
     private ErrorBox errorBox;
     @FXML
-    private StackPane cardContainer;
-    @FXML
-    private VBox emptyState;
-    @FXML
-    private VBox profileCard;
-    @FXML
-    private StackPane imageSection;
+    private ComboBox<String> degreeFilter;
     @FXML
-    private ImageView profileImage;
+    private ComboBox<String> programFilter;
     @FXML
-    private HBox imageIndicators;
+    private ComboBox<String> semesterFilter;
     @FXML
-    private Label profileName;
+    private ComboBox<String> ageFilter;
     @FXML
-    private Label profileStudyProgram;
-    @FXML
-    private Label profileSemester;
-    @FXML
-    private Label profileBio;
+    private StackPane cardContainer;
     @FXML
-    private FlowPane interestsPane;
+    private VBox emptyState;
     @FXML
-    private Label lookingForLabel;
+    private ProfileCardView frontCard;
     @FXML
-    private Label interestedInLabel;
+    private ProfileCardView backCard;
     @FXML
     private HBox actionButtons;
     @FXML
@@ -59,39 +71,84 @@ public class DiscoverController {
     private Button likeButton;
     @FXML
     private ProgressIndicator loadingIndicator;
+    @FXML
+    private StackPane matchOverlay;
+    @FXML
+    private Label matchOverlayText;
 
     private SessionManager sessionManager;
     private MatchService matchService;
-    private List<Profile> profiles;
-    private int currentProfileIndex = 0;
-    private int currentImageIndex = 0;
+    private final DiscoverDeck deck = new DiscoverDeck(DiscoverDeck.DEFAULT_LOOKAHEAD);
+    // Double buffer: the visible card and the hidden one that already shows the next card
+    private ProfileCardView visibleCard;
+    private ProfileCardView bufferCard;
+    private boolean updatingFilters = false;
+    private boolean resumed = false; // Showing the last session's deck while it is revalidated
+    private Profile matchedProfile;
 
     public void initialize() {
         sessionManager = SessionManager.getInstance();
         matchService = new MatchService(sessionManager);
+        visibleCard = frontCard;
+        bufferCard = backCard;
 
+        setupFilters();
         loadProfiles();
-        
-        // Setup image navigation
-        setupImageNavigation();
     }
 
     private void loadProfiles() {
         loadingIndicator.setVisible(true);
-        profileCard.setVisible(false);
+        visibleCard.setVisible(false);
+        bufferCard.setVisible(false);
         actionButtons.setVisible(false);
         emptyState.setVisible(false);
 
-        matchService.getDiscoverProfiles()
+        // Show the deck left over from the last session right away, then revalidate it
+        matchService.getResumedDiscoverProfiles()
+                .thenAccept(resumedProfiles -> Platform.runLater(() -> {
+                    if (!resumedProfiles.isEmpty() && loadingIndicator.isVisible()) {
+                        resumed = true;
+                        loadingIndicator.setVisible(false);
+                        updateProgramFilterOptions();
+                        deck.reset(resumedProfiles);
+                        showCurrentProfile();
+                    }
+                }))
+                .thenCompose(ignored -> matchService.getDiscoverProfiles())
                 .thenAccept(loadedProfiles -> {
                     Platform.runLater(() -> {
                         loadingIndicator.setVisible(false);
-                        
-                        if (loadedProfiles == null || loadedProfiles.isEmpty()) {
+
+                        if (loadedProfiles == null) {
+                            if (resumed) {
+                                // Revalidation failed: keep the resumed cards rather than wiping them
+                                resumed = false;
+                                errorBox.showError("Could not refresh profiles. Showing your last deck.");
+                            } else {
+                                errorBox.showError("Failed to load profiles. Please try again.");
+                                showEmptyState();
+                            }
+                            return;
+                        }
+
+                        updateProgramFilterOptions();
+
+                        DiscoverFilter filter = buildFilter();
+                        List<Profile> profiles = filter.isEmpty() ? loadedProfiles : matchService.filterDiscoverProfiles(filter);
+                        if (resumed) {
+                            // Keep the card the user is looking at, replace the ones behind it
+                            resumed = false;
+                            DiscoverDeck.Card shown = deck.current();
+                            deck.replaceUpcoming(profiles);
+                            if (shown != null && deck.current() == shown) {
+                                prepareNextCard();
+                            } else {
+                                showCurrentProfile();
+                            }
+                        } else if (loadedProfiles.isEmpty()) {
                             showEmptyState();
                         } else {
-                            profiles = new ArrayList<>(loadedProfiles);
-                            currentProfileIndex = 0;
+                            deck.reset(profiles);
                             showCurrentProfile();
                         }
                     });
@@ -106,179 +163,183 @@ public class DiscoverController {
                 });
     }
 
-    private void showCurrentProfile() {
-        if (profiles == null || currentProfileIndex >= profiles.size()) {
-            showEmptyState();
-            return;
-        }
+    private void setupFilters() {
+        updatingFilters = true;
+        degreeFilter.setItems(FXCollections.observableArrayList(ANY_DEGREE, "Bachelor", "Master"));
+        degreeFilter.setValue(ANY_DEGREE);
+        programFilter.setItems(FXCollections.observableArrayList(ANY_PROGRAM));
+        programFilter.setValue(ANY_PROGRAM);
+        semesterFilter.setItems(FXCollections.observableArrayList(SEMESTER_RANGES.keySet()));
+        semesterFilter.getSelectionModel().selectFirst();
+        ageFilter.setItems(FXCollections.observableArrayList(AGE_RANGES.keySet()));
+        ageFilter.getSelectionModel().selectFirst();
+        updatingFilters = false;
 
-        Profile profile = profiles.get(currentProfileIndex);
-        currentImageIndex = 0;
+        degreeFilter.setOnAction(e -> applyFilters());
+        programFilter.setOnAction(e -> applyFilters());
+        semesterFilter.setOnAction(e -> applyFilters());
+        ageFilter.setOnAction(e -> applyFilters());
+    }
 
-        // Show card and buttons
-        profileCard.setVisible(true);
-        actionButtons.setVisible(true);
-        emptyState.setVisible(false);
+    private void updateProgramFilterOptions() {
+        String selected = programFilter.getValue();
+        List<String> options = new ArrayList<>();
+        options.add(ANY_PROGRAM);
+        options.addAll(matchService.getDiscoverStudyPrograms());
 
-        // Set profile data
-        int age = calculateAge(profile.getBirthdate());
-        profileName.setText(profile.getFirstName() + ", " + age);
-        profileStudyProgram.setText(profile.getStudyProgram());
-        profileSemester.setText("Semester " + profile.getSemester());
-        profileBio.setText(profile.getBio());
-        lookingForLabel.setText(profile.getLookingFor());
-        interestedInLabel.setText(profile.getInterestedIn());
-
-        // Load images
-        if (profile.getImageUrls() != null && !profile.getImageUrls().isEmpty()) {
-            displayImage(profile.getImageUrls().get(0));
-            setupImageIndicators(profile.getImageUrls().size());
-        } else {
-            profileImage.setImage(null);
-        }
+        updatingFilters = true;
+        programFilter.setItems(FXCollections.observableArrayList(options));
+        programFilter.setValue(options.contains(selected) ? selected : ANY_PROGRAM);
+        updatingFilters = false;
+    }
 
-        // Load interests
-        interestsPane.getChildren().clear();
-        if (profile.getInterests() != null) {
-            for (String interest : profile.getInterests()) {
-                Label tag = new Label(interest);
-                tag.getStyleClass().add("interest-tag-selected");
-                interestsPane.getChildren().add(tag);
-            }
+    private DiscoverFilter buildFilter() {
+        DiscoverFilter filter = new DiscoverFilter();
+        if (degreeFilter.getValue() != null && !ANY_DEGREE.equals(degreeFilter.getValue())) {
+            filter.getDegreeTypes().add(degreeFilter.getValue());
+        }
+        if (programFilter.getValue() != null && !ANY_PROGRAM.equals(programFilter.getValue())) {
+            filter.getStudyPrograms().add(programFilter.getValue());
+        }
+        Integer[] semesters = SEMESTER_RANGES.get(semesterFilter.getValue());
+        if (semesters != null) {
+            filter.setMinSemester(semesters[0]);
+            filter.setMaxSemester(semesters[1]);
         }
+        Integer[] ages = AGE_RANGES.get(ageFilter.getValue());
+        if (ages != null) {
+            filter.setMinAge(ages[0]);
+            filter.setMaxAge(ages[1]);
+        }
+        return filter;
     }
 
-    private void displayImage(String imageUrl) {
-        try {
-            Image image = new Image(imageUrl, true);
-            profileImage.setImage(image);
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
+    private void applyFilters() {
+        if (updatingFilters || loadingIndicator.isVisible()) return;
+
+        // Resolved in memory on the bitmap indexes, no request needed
+        deck.reset(matchService.filterDiscoverProfiles(buildFilter()));
+        showCurrentProfile();
     }
 
-    private void setupImageIndicators(int count) {
-        imageIndicators.getChildren().clear();
-        
-        // Hide indicators if only one image
-        if (count <= 1) {
-            imageIndicators.setVisible(false);
-            imageIndicators.setManaged(false);
+    private void showCurrentProfile() {
+        DiscoverDeck.Card card = deck.current();
+        if (card == null) {
+            showEmptyState();
             return;
         }
-        
-        imageIndicators.setVisible(true);
-        imageIndicators.setManaged(true);
-        
-        for (int i = 0; i < count; i++) {
-            StackPane indicator = new StackPane();
-            indicator.setPrefWidth(30);
-            indicator.setMaxHeight(3);
-            indicator.setMaxWidth(30);
-            indicator.setStyle(i == 0 ? 
-                    "-fx-background-color: white; -fx-background-radius: 2px; -fx-effect: dropshadow(gaussian, rgba(0,0,0,0.3), 3, 0, 0, 1);" :
-                    "-fx-background-color: rgba(255,255,255,0.4); -fx-background-radius: 2px; -fx-effect: dropshadow(gaussian, rgba(0,0,0,0.3), 3, 0, 0, 1);");
-            imageIndicators.getChildren().add(indicator);
+
+        if (bufferCard.getCard() == card) {
+            // Already filled and laid out while hidden, a swipe only swaps the two cards
+            ProfileCardView previous = visibleCard;
+            visibleCard = bufferCard;
+            bufferCard = previous;
+        } else {
+            visibleCard.show(card);
         }
-    }
 
-    private void setupImageNavigation() {
-        imageSection.setOnMouseClicked(event -> {
-            if (profiles == null || currentProfileIndex >= profiles.size()) return;
-            
-            Profile profile = profiles.get(currentProfileIndex);
-            if (profile.getImageUrls() == null || profile.getImageUrls().isEmpty()) return;
-
-            double clickX = event.getX();
-            double width = imageSection.getWidth();
-
-            if (clickX < width / 2) {
-                // Left side clicked - previous image
-                currentImageIndex--;
-                if (currentImageIndex < 0) {
-                    currentImageIndex = profile.getImageUrls().size() - 1;
-                }
-            } else {
-                // Right side clicked - next image
-                currentImageIndex++;
-                if (currentImageIndex >= profile.getImageUrls().size()) {
-                    currentImageIndex = 0;
-                }
-            }
+        // Show card and buttons
+        visibleCard.setVisible(true);
+        bufferCard.setVisible(false);
+        actionButtons.setVisible(true);
+        emptyState.setVisible(false);
 
-            displayImage(profile.getImageUrls().get(currentImageIndex));
-            updateImageIndicators();
-        });
+        // Build the next card after this pulse, so the swap itself stays cheap
+        Platform.runLater(this::prepareNextCard);
     }
 
-    private void updateImageIndicators() {
-        for (int i = 0; i < imageIndicators.getChildren().size(); i++) {
-            StackPane indicator = (StackPane) imageIndicators.getChildren().get(i);
-            indicator.setStyle(i == currentImageIndex ?
-                    "-fx-background-color: white; -fx-background-radius: 2px; -fx-effect: dropshadow(gaussian, rgba(0,0,0,0.3), 3, 0, 0, 1);" :
-                    "-fx-background-color: rgba(255,255,255,0.4); -fx-background-radius: 2px; -fx-effect: dropshadow(gaussian, rgba(0,0,0,0.3), 3, 0, 0, 1);");
+    private void prepareNextCard() {
+        DiscoverDeck.Card next = deck.next();
+        if (next == null) {
+            bufferCard.clear();
+        } else if (bufferCard.getCard() != next) {
+            bufferCard.show(next);
         }
     }
 
     @FXML
     private void handleLike() {
-        if (profiles == null || currentProfileIndex >= profiles.size()) return;
+        if (!deck.hasCurrent()) return;
 
-        Profile profile = profiles.get(currentProfileIndex);
-        recordActionAndMoveNext("like", profile.getUserId());
+        recordActionAndMoveNext("like", deck.current().getProfile());
     }
 
     @FXML
     private void handlePass() {
-        if (profiles == null || currentProfileIndex >= profiles.size()) return;
+        if (!deck.hasCurrent()) return;
 
-        Profile profile = profiles.get(currentProfileIndex);
-        recordActionAndMoveNext("pass", profile.getUserId());
+        recordActionAndMoveNext("pass", deck.current().getProfile());
     }
 
-    private void recordActionAndMoveNext(String action, String targetUserId) {
-        // Disable buttons during action
-        likeButton.setDisable(true);
-        passButton.setDisable(true);
-
-        matchService.recordAction(targetUserId, action)
-                .thenAccept(success -> {
-                    Platform.runLater(() -> {
-                        likeButton.setDisable(false);
-                        passButton.setDisable(false);
+    private void recordActionAndMoveNext(String action, Profile profile) {
+        // Optimistic: show the next card right away, the action is sent in the background
+        deck.advance();
+        showCurrentProfile();
 
-                        if (success) {
-                            // Move to next profile
-                            currentProfileIndex++;
-                            showCurrentProfile();
-                        } else {
-                            errorBox.showError("Failed to record action. Please try again.");
-                        }
-                    });
+        matchService.recordAction(profile.getUserId(), action)
+                .thenAccept(result -> {
+                    if (result.getMatch() != null) {
+                        Platform.runLater(() -> showMatchOverlay(profile));
+                    } else if (!result.isStored()) {
+                        Platform.runLater(() -> {
+                            errorBox.showError("Failed to record action. The profile was put back in your deck.");
+                            boolean wasEmpty = !deck.hasCurrent();
+                            deck.append(profile);
+                            if (wasEmpty) {
+                                showCurrentProfile();
+                            } else {
+                                prepareNextCard();
+                            }
+                        });
+                    }
                 })
                 .exceptionally(throwable -> {
-                    Platform.runLater(() -> {
-                        likeButton.setDisable(false);
-                        passButton.setDisable(false);
-                        errorBox.showError("An error occurred. Please try again.");
-                    });
                     throwable.printStackTrace();
                     return null;
                 });
     }
 
-    private void showEmptyState() {
-        profileCard.setVisible(false);
-        actionButtons.setVisible(false);
-        emptyState.setVisible(true);
+    private void showMatchOverlay(Profile profile) {
+        matchedProfile = profile;
+        matchOverlayText.setText("You and " + profile.getFirstName() + " liked each other.");
+        matchOverlay.setVisible(true);
+    }
+
+    @FXML
+    private void handleCloseMatchOverlay() {
+        matchOverlay.setVisible(false);
+        matchedProfile = null;
     }
 
-    private int calculateAge(String birthdate) {
+    @FXML
+    private void handleOpenMatchChat() {
+        Profile profile = matchedProfile;
+        handleCloseMatchOverlay();
+        if (profile == null) return;
+
         try {
-            LocalDate birth = LocalDate.parse(birthdate, DateTimeFormatter.ISO_DATE);
-            return Period.between(birth, LocalDate.now()).getYears();
+            Parent root = errorBox.getScene().getRoot();
+            if (root instanceof BorderPane borderPane) {
+                StackPane contentArea = (StackPane) borderPane.getCenter();
+                ChatsController controller = SceneNavigator.loadViewIntoContainerWithController(contentArea, "chats.fxml");
+                controller.selectChatByProfile(profile);
+
+                if (borderPane.getUserData() instanceof MainController mainController) {
+                    mainController.activateChatsButton();
+                }
+            }
         } catch (Exception e) {
-            return 0;
+            e.printStackTrace();
+            errorBox.showError("Failed to open chat.");
         }
     }
+
+    private void showEmptyState() {
+        visibleCard.setVisible(false);
+        bufferCard.setVisible(false);
+        bufferCard.clear();
+        actionButtons.setVisible(false);
+        emptyState.setVisible(true);
+    }
+
 }
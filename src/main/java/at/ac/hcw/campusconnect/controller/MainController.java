@@ -1,8 +1,11 @@
 package at.ac.hcw.campusconnect.controller;
 
+import at.ac.hcw.campusconnect.models.Match;
+import at.ac.hcw.campusconnect.models.Message;
 import at.ac.hcw.campusconnect.models.Profile;
 import at.ac.hcw.campusconnect.services.ChatService;
 import at.ac.hcw.campusconnect.services.ProfileService;
+import at.ac.hcw.campusconnect.services.RealtimeClient;
 import at.ac.hcw.campusconnect.services.SessionManager;
 import at.ac.hcw.campusconnect.util.SceneNavigator;
 import javafx.application.Platform;
@@ -15,9 +18,16 @@ import javafx.scene.layout.StackPane;
 import javafx.scene.shape.Circle;
 
 import java.io.IOException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
 public class MainController {
 
+    private static final long UNREAD_POLL_INTERVAL_MILLIS = 30_000;
+    // With realtime pushes the count is refreshed when a message arrives, the poll is only a safety net
+    private static final long LIVE_UNREAD_POLL_INTERVAL_MILLIS = 5 * 60_000;
+
     @FXML
     private Button discoverButton;
     @FXML
@@ -39,6 +49,13 @@ public class MainController {
     private ProfileService profileService;
     private ChatService chatService;
     private Profile currentProfile;
+    private final Semaphore countUnreadNow = new Semaphore(0);
+
+    private Thread unreadChecker;
+    private RealtimeClient realtime; // The client the listeners are registered with
+    private Consumer<Message> messageListener;
+    private Consumer<Boolean> statusListener;
+    private Consumer<Match> matchListener;
 
     public void initialize() {
         sessionManager = SessionManager.getInstance();
@@ -59,6 +76,9 @@ public class MainController {
         // Setup unread messages checker
         setupUnreadChecker();
 
+        // Resend swipes the previous session could not deliver
+        sessionManager.getSwipeQueue();
+
         // Load discover view by default
         showDiscover();
     }
@@ -99,9 +119,30 @@ public class MainController {
     }
 
     private void setupUnreadChecker() {
-        // Check for unread messages every 30 seconds
-        Thread unreadChecker = new Thread(() -> {
-            while (true) {
+        String currentUserId = sessionManager.getCurrentUser().getId();
+        RealtimeClient realtime = sessionManager.getRealtimeClient();
+        this.realtime = realtime;
+        messageListener = message -> {
+            if (currentUserId.equals(message.getReceiverId())) {
+                countUnreadNow.release();
+            }
+        };
+        statusListener = live -> {
+            if (live) {
+                countUnreadNow.release();
+            }
+        };
+        // New matches (also the ones made by the other person) are known before the next matches request
+        matchListener = match -> sessionManager.getMatchCache().putMatch(match);
+        realtime.addMessageListener(messageListener);
+        realtime.addStatusListener(statusListener);
+        realtime.addMatchListener(matchListener);
+        // Runs on sign out (before the user is cleared) and when the app closes
+        sessionManager.addShutdownListener(this::stopUnreadChecker);
+
+        // Check for unread messages every 30 seconds while realtime is down, on every pushed message otherwise
+        unreadChecker = new Thread(() -> {
+            while (!Thread.currentThread().isInterrupted()) {
                 chatService.getUnreadCount().thenAccept(count -> {
                     Platform.runLater(() -> {
                         if (count > 0) {
@@ -116,7 +157,9 @@ public class MainController {
                 });
 
                 try {
-                    Thread.sleep(30000); // 30 seconds
+                    countUnreadNow.tryAcquire(realtime.isLive() ? LIVE_UNREAD_POLL_INTERVAL_MILLIS : UNREAD_POLL_INTERVAL_MILLIS,
+                            TimeUnit.MILLISECONDS);
+                    countUnreadNow.drainPermits();
                 } catch (InterruptedException e) {
                     break;
                 }
@@ -126,6 +169,16 @@ public class MainController {
         unreadChecker.start();
     }
 
+    /**
+     * Stop counting unread messages and remove the realtime listeners of this session
+     */
+    private void stopUnreadChecker() {
+        realtime.removeMessageListener(messageListener);
+        realtime.removeStatusListener(statusListener);
+        realtime.removeMatchListener(matchListener);
+        unreadChecker.interrupt();
+    }
+
     @FXML
     private void showDiscover() {
         loadView("/at/ac/hcw/campusconnect/discover.fxml");
@@ -18,6 +18,8 @@ import javafx.scene.image.ImageView;
 import javafx.scene.layout.*;
 import javafx.scene.shape.Rectangle;
 
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
 
 public class MatchesController {
@@ -46,7 +48,8 @@ public class MatchesController {
         matchesGrid.setVisible(false);
         emptyState.setVisible(false);
 
-        matchService.getMatches()
+        // The inbox brings the matched profiles along, no request per card
+        matchService.getInbox()
                 .thenAccept(matches -> {
                     Platform.runLater(() -> {
                         loadingIndicator.setVisible(false);
@@ -72,34 +75,14 @@ public class MatchesController {
         matchesGrid.getChildren().clear();
         matchesGrid.setVisible(true);
 
-        String currentUserId = sessionManager.getCurrentUser().getId();
-        
-        // Load profiles for each match
-        for (int i = 0; i < matches.size(); i++) {
-            Match match = matches.get(i);
-            
-            // Determine the other user's ID
-            String matchedUserId = match.getUser1Id().equals(currentUserId) ? 
-                    match.getUser2Id() : match.getUser1Id();
+        // Newest matches first, the inbox itself is sorted by last message
+        List<Match> sorted = new ArrayList<>(matches);
+        sorted.sort(Comparator.comparing(Match::getMatchedAt, Comparator.nullsLast(Comparator.reverseOrder())));
 
+        for (int i = 0; i < sorted.size(); i++) {
             int row = i / 3;
             int col = i % 3;
-
-            // Create placeholder card
-            VBox card = createMatchCard(null);
-            matchesGrid.add(card, col, row);
-
-            // Load the matched user's profile
-            matchService.getMatchedProfile(matchedUserId)
-                    .thenAccept(profile -> {
-                        Platform.runLater(() -> {
-                            if (profile != null) {
-                                VBox filledCard = createMatchCard(profile);
-                                matchesGrid.getChildren().remove(card);
-                                matchesGrid.add(filledCard, col, row);
-                            }
-                        });
-                    });
+            matchesGrid.add(createMatchCard(sorted.get(i).getMatchedProfile()), col, row);
         }
     }
 
@@ -2,7 +2,10 @@ package at.ac.hcw.campusconnect.controller;
 
 import at.ac.hcw.campusconnect.components.AutoCompleteTextField;
 import at.ac.hcw.campusconnect.components.ErrorBox;
+import at.ac.hcw.campusconnect.models.Gender;
+import at.ac.hcw.campusconnect.models.LookingFor;
 import at.ac.hcw.campusconnect.models.Profile;
+import at.ac.hcw.campusconnect.services.DiscoverSession;
 import at.ac.hcw.campusconnect.services.ImageStorageService;
 import at.ac.hcw.campusconnect.services.ProfileService;
 import at.ac.hcw.campusconnect.services.SessionManager;
@@ -22,6 +25,9 @@ import java.time.format.DateTimeFormatter;
 import java.util.*;
 
 public class SettingsController {
+    private static final String NO_AGE_LIMIT = "No limit";
+    private static final int MIN_AGE = 18;
+    private static final int MAX_AGE_OPTION = 60;
 
     @FXML
     private ErrorBox errorBox;
@@ -50,6 +56,10 @@ public class SettingsController {
     @FXML
     private ComboBox<String> interestedInComboBox;
     @FXML
+    private ComboBox<String> minAgeComboBox;
+    @FXML
+    private ComboBox<String> maxAgeComboBox;
+    @FXML
     private TextArea aboutMeArea;
     @FXML
     private FlowPane academicInterestsPane;
@@ -94,14 +104,18 @@ public class SettingsController {
         pronounsComboBox.getItems().addAll("he/him", "she/her", "they/them", "other", "prefer not to say");
         
         // Setup gender
-        genderComboBox.getItems().addAll("Male", "Female", "Non-binary", "Other", "Prefer not to say");
+        genderComboBox.getItems().addAll("Woman", "Man", "Non-binary", "Genderfluid", "Other", "Prefer not to say");
         
         // Setup looking for
-        lookingForComboBox.getItems().addAll("Friends", "Dates", "Both");
+        lookingForComboBox.getItems().addAll("Friends", "Dating", "Both");
         
         // Setup interested in
         interestedInComboBox.getItems().addAll("Men", "Women", "Everyone");
 
+        // Setup age range preference
+        setupAgeOptions(minAgeComboBox);
+        setupAgeOptions(maxAgeComboBox);
+
         // Setup study programs
         setupStudyPrograms();
         
@@ -247,7 +261,9 @@ public class SettingsController {
             e.printStackTrace();
         }
         
-        genderComboBox.setValue(profile.getGender());
+        // Profiles saved by older versions may still hold a legacy value
+        Gender gender = Gender.fromValue(profile.getGender());
+        genderComboBox.setValue(gender != Gender.UNKNOWN ? gender.getValue() : profile.getGender());
         pronounsComboBox.setValue(profile.getPronouns());
         degreeTypeComboBox.setValue(profile.getDegreeType());
         
@@ -255,8 +271,11 @@ public class SettingsController {
         semesterComboBox.setValue(profile.getSemester());
         
         studyProgramField.setText(profile.getStudyProgram());
-        lookingForComboBox.setValue(profile.getLookingFor());
+        LookingFor lookingFor = LookingFor.fromValue(profile.getLookingFor());
+        lookingForComboBox.setValue(lookingFor != LookingFor.UNKNOWN ? lookingFor.getValue() : profile.getLookingFor());
         interestedInComboBox.setValue(profile.getInterestedIn());
+        minAgeComboBox.setValue(formatAge(profile.getPreferredAgeMin()));
+        maxAgeComboBox.setValue(formatAge(profile.getPreferredAgeMax()));
         aboutMeArea.setText(profile.getBio());
         
         // Load interests
@@ -433,6 +452,8 @@ public class SettingsController {
         updatedProfile.setStudyProgram(studyProgramField.getText().trim());
         updatedProfile.setLookingFor(lookingForComboBox.getValue());
         updatedProfile.setInterestedIn(interestedInComboBox.getValue());
+        updatedProfile.setPreferredAgeMin(parseAge(minAgeComboBox.getValue()));
+        updatedProfile.setPreferredAgeMax(parseAge(maxAgeComboBox.getValue()));
         updatedProfile.setBio(aboutMeArea.getText().trim());
         updatedProfile.setInterests(selectedInterests);
         updatedProfile.setImageUrls(existingImageUrls);
@@ -445,6 +466,10 @@ public class SettingsController {
                         
                         if (updatedProfileResult != null) {
                             currentProfile = updatedProfileResult;
+                            // The resumable discover deck was ranked for the old preferences
+                            DiscoverSession discoverSession = sessionManager.getDiscoverSession();
+                            discoverSession.invalidate();
+                            discoverSession.save();
                             errorBox.showError("Profile updated successfully!");
                         } else {
                             errorBox.showError("Failed to update profile. Please try again.");
@@ -462,6 +487,22 @@ public class SettingsController {
                 });
     }
 
+    private void setupAgeOptions(ComboBox<String> comboBox) {
+        comboBox.getItems().add(NO_AGE_LIMIT);
+        for (int age = MIN_AGE; age <= MAX_AGE_OPTION; age++) {
+            comboBox.getItems().add(String.valueOf(age));
+        }
+        comboBox.setValue(NO_AGE_LIMIT);
+    }
+
+    private static String formatAge(Integer age) {
+        return age != null ? String.valueOf(age) : NO_AGE_LIMIT;
+    }
+
+    private static Integer parseAge(String value) {
+        return value == null || NO_AGE_LIMIT.equals(value) ? null : Integer.valueOf(value);
+    }
+
     @FXML
     private void handleCancel() {
         loadCurrentProfile();
@@ -517,6 +558,13 @@ public class SettingsController {
             errorBox.showError("Please select who you're interested in");
             return false;
         }
+
+        Integer minAge = parseAge(minAgeComboBox.getValue());
+        Integer maxAge = parseAge(maxAgeComboBox.getValue());
+        if (minAge != null && maxAge != null && minAge > maxAge) {
+            errorBox.showError("The minimum age must not be above the maximum age");
+            return false;
+        }
         
         if (aboutMeArea.getText().trim().isEmpty()) {
             errorBox.showError("Please write something about yourself");
@@ -0,0 +1,36 @@
+package at.ac.hcw.campusconnect.models;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * On-disk format of the locally cached discover candidate pool
+ */
+@Data
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class CandidatePoolSnapshot {
+    @JsonProperty("version")
+    private int version;
+
+    // Newest created_at/updated_at seen so far
+    @JsonProperty("watermark")
+    private String watermark;
+
+    @JsonProperty("reconciled_at")
+    private long reconciledAt;
+
+    // Age preference the pool was downloaded for, empty for none
+    @JsonProperty("scope")
+    private String scope = "";
+
+    // Latest birthdate allowed by the lower age limit at the last sync, null without one
+    @JsonProperty("latest_birthdate")
+    private String latestBirthdate;
+
+    @JsonProperty("profiles")
+    private List<Profile> profiles = new ArrayList<>();
+}
@@ -0,0 +1,26 @@
+package at.ac.hcw.campusconnect.models;
+
+import lombok.Data;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Filters the user can toggle on the discover page.
+ * Empty sets and null bounds mean "no restriction".
+ */
+@Data
+public class DiscoverFilter {
+    private Set<String> degreeTypes = new HashSet<>();
+    private Set<String> studyPrograms = new HashSet<>();
+    private Integer minSemester;
+    private Integer maxSemester;
+    private Integer minAge;
+    private Integer maxAge;
+
+    public boolean isEmpty() {
+        return degreeTypes.isEmpty() && studyPrograms.isEmpty()
+                && minSemester == null && maxSemester == null
+                && minAge == null && maxAge == null;
+    }
+}
@@ -0,0 +1,18 @@
+package at.ac.hcw.campusconnect.models;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Data;
+
+@Data
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class DiscoverQueueEntry {
+    @JsonProperty("user_id")
+    private String userId;
+
+    @JsonProperty("position")
+    private Integer position;
+
+    @JsonProperty("candidate_id")
+    private String candidateId;
+}
@@ -0,0 +1,15 @@
+package at.ac.hcw.campusconnect.models;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Data;
+
+@Data
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class DiscoverQueueState {
+    @JsonProperty("user_id")
+    private String userId;
+
+    @JsonProperty("computed_at")
+    private String computedAt;
+}
@@ -0,0 +1,29 @@
+package at.ac.hcw.campusconnect.models;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * On-disk format of the last discover session: the ranked deck and how far the user got
+ */
+@Data
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class DiscoverSessionSnapshot {
+    @JsonProperty("version")
+    private int version;
+
+    // Preferences and catalog version the ranking was computed for
+    @JsonProperty("ranking_key")
+    private String rankingKey;
+
+    @JsonProperty("ranked_ids")
+    private List<String> rankedIds = new ArrayList<>();
+
+    // Position of the first ranked candidate not swiped yet
+    @JsonProperty("cursor")
+    private int cursor;
+}
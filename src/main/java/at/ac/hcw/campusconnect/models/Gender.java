@@ -0,0 +1,48 @@
+package at.ac.hcw.campusconnect.models;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Gender values as stored in profiles.gender
+ */
+public enum Gender {
+    WOMAN("Woman"),
+    MAN("Man"),
+    NON_BINARY("Non-binary"),
+    GENDERFLUID("Genderfluid"),
+    OTHER("Other"),
+    PREFER_NOT_TO_SAY("Prefer not to say"),
+    UNKNOWN(null); // Anything the app does not know (yet)
+
+    private static final Map<String, Gender> BY_VALUE = new HashMap<>();
+
+    static {
+        for (Gender gender : values()) {
+            if (gender.value != null) {
+                BY_VALUE.put(gender.value, gender);
+            }
+        }
+        // Written by older versions of the settings view
+        BY_VALUE.put("Male", MAN);
+        BY_VALUE.put("Female", WOMAN);
+    }
+
+    private final String value;
+
+    Gender(String value) {
+        this.value = value;
+    }
+
+    public String getValue() {
+        return value;
+    }
+
+    /**
+     * Decode a database value, unknown or missing values map to UNKNOWN.
+     * Legacy values ("Male", "Female") map to their current counterparts.
+     */
+    public static Gender fromValue(String value) {
+        return value == null ? UNKNOWN : BY_VALUE.getOrDefault(value, UNKNOWN);
+    }
+}
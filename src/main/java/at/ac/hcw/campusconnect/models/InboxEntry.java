@@ -0,0 +1,37 @@
+package at.ac.hcw.campusconnect.models;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Data;
+
+/**
+ * One row of the get_inbox RPC: a match with what the chat list and the matches grid show of it
+ */
+@Data
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class InboxEntry {
+    @JsonProperty("match_id")
+    private String matchId;
+
+    @JsonProperty("user1_id")
+    private String user1Id;
+
+    @JsonProperty("user2_id")
+    private String user2Id;
+
+    @JsonProperty("matched_at")
+    private String matchedAt;
+
+    // Card fields of the other person only
+    @JsonProperty("profile")
+    private Profile profile;
+
+    @JsonProperty("last_message")
+    private Message lastMessage;
+
+    @JsonProperty("unread_count")
+    private Integer unreadCount;
+
+    @JsonProperty("last_activity_at")
+    private String lastActivityAt;
+}
@@ -0,0 +1,54 @@
+package at.ac.hcw.campusconnect.models;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Values of profiles.interested_in
+ */
+public enum InterestedIn {
+    WOMEN("Women", Gender.WOMAN),
+    MEN("Men", Gender.MAN),
+    NON_BINARY_PEOPLE("Non-binary people", Gender.NON_BINARY),
+    EVERYONE("Everyone", null),
+    UNKNOWN(null, null); // Anything the app does not know (yet)
+
+    private static final Map<String, InterestedIn> BY_VALUE = new HashMap<>();
+
+    static {
+        for (InterestedIn interestedIn : values()) {
+            if (interestedIn.value != null) {
+                BY_VALUE.put(interestedIn.value, interestedIn);
+            }
+        }
+    }
+
+    private final String value;
+    private final Gender gender;
+
+    InterestedIn(String value, Gender gender) {
+        this.value = value;
+        this.gender = gender;
+    }
+
+    public String getValue() {
+        return value;
+    }
+
+    /**
+     * "Everyone" accepts every gender, an unknown preference accepts nobody
+     */
+    public boolean accepts(Gender other) {
+        if (this == EVERYONE) {
+            return true;
+        }
+        return gender != null && gender == other;
+    }
+
+    /**
+     * Decode a database value, unknown or missing values map to UNKNOWN
+     */
+    public static InterestedIn fromValue(String value) {
+        return value == null ? UNKNOWN : BY_VALUE.getOrDefault(value, UNKNOWN);
+    }
+}
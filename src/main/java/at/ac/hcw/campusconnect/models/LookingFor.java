@@ -0,0 +1,55 @@
+package at.ac.hcw.campusconnect.models;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Values of profiles.looking_for
+ */
+public enum LookingFor {
+    FRIENDS("Friends"),
+    DATING("Dating"),
+    BOTH("Both"),
+    UNKNOWN(null); // Anything the app does not know (yet)
+
+    private static final Map<String, LookingFor> BY_VALUE = new HashMap<>();
+
+    static {
+        for (LookingFor lookingFor : values()) {
+            if (lookingFor.value != null) {
+                BY_VALUE.put(lookingFor.value, lookingFor);
+            }
+        }
+        // Written by older versions of the settings view
+        BY_VALUE.put("Dates", DATING);
+    }
+
+    private final String value;
+
+    LookingFor(String value) {
+        this.value = value;
+    }
+
+    public String getValue() {
+        return value;
+    }
+
+    /**
+     * "Both" is compatible with everything, otherwise both sides have to want the same.
+     * Unknown values only match "Both".
+     */
+    public boolean isCompatibleWith(LookingFor other) {
+        if (this == BOTH || other == BOTH) {
+            return true;
+        }
+        return this != UNKNOWN && this == other;
+    }
+
+    /**
+     * Decode a database value, unknown or missing values map to UNKNOWN.
+     * The legacy value "Dates" maps to DATING.
+     */
+    public static LookingFor fromValue(String value) {
+        return value == null ? UNKNOWN : BY_VALUE.getOrDefault(value, UNKNOWN);
+    }
+}
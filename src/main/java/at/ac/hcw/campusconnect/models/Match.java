@@ -22,4 +22,5 @@ public class Match {
     // Helper fields (not from database)
     private Profile matchedProfile; // The other user's profile
     private Message lastMessage; // Last message in this match
+    private int unreadCount; // Messages to the current user not read yet
 }
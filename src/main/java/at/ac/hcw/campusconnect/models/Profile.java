@@ -1,9 +1,16 @@
 package at.ac.hcw.campusconnect.models;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AccessLevel;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.Setter;
+import lombok.ToString;
 
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
 import java.util.List;
 import java.util.Set;
 
@@ -60,4 +67,40 @@ public class Profile {
 
     @JsonProperty("updated_at")
     private String updatedAt;
+
+    // Discover preference, null means no limit. Always sent, so clearing it reaches the server.
+    @JsonProperty("preferred_age_min")
+    @JsonInclude(JsonInclude.Include.ALWAYS)
+    private Integer preferredAgeMin;
+
+    @JsonProperty("preferred_age_max")
+    @JsonInclude(JsonInclude.Include.ALWAYS)
+    private Integer preferredAgeMax;
+
+    // Parsed once: filtering, ranking and the discover cards all need it
+    @JsonIgnore
+    @Setter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private LocalDate parsedBirthdate;
+
+    public void setBirthdate(String birthdate) {
+        this.birthdate = birthdate;
+        this.parsedBirthdate = null;
+    }
+
+    /**
+     * The birthdate as a date, null if it is missing or malformed
+     */
+    @JsonIgnore
+    public LocalDate getParsedBirthdate() {
+        if (parsedBirthdate == null && birthdate != null) {
+            try {
+                parsedBirthdate = LocalDate.parse(birthdate, DateTimeFormatter.ISO_DATE);
+            } catch (Exception e) {
+                return null;
+            }
+        }
+        return parsedBirthdate;
+    }
 }
@@ -0,0 +1,21 @@
+package at.ac.hcw.campusconnect.models;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Data;
+
+@Data
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class UserFactors {
+    @JsonProperty("user_id")
+    private String userId;
+
+    @JsonProperty("taste")
+    private float[] taste; // What the user likes, as swiper
+
+    @JsonProperty("appeal")
+    private float[] appeal; // Who likes the user, as target
+
+    @JsonProperty("trained_at")
+    private String trainedAt;
+}
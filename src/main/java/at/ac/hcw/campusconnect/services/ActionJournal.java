@@ -0,0 +1,267 @@
+package at.ac.hcw.campusconnect.services;
+
+import at.ac.hcw.campusconnect.util.LocalStorage;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only write-ahead journal for user actions that are not confirmed by the server yet.
+ * <p>
+ * An action is written and fsynced before the UI moves on, so it survives the app being
+ * closed or crashing while offline. Confirmations are appended as small ack records without
+ * an fsync of their own (replaying a confirmed action is harmless, inserts are idempotent).
+ * Once nothing is pending the file is truncated.
+ * <p>
+ * Record layout (big endian), each followed by a CRC32 of the record bytes:
+ * <pre>
+ * ACTION: type(1) sequence(8) action(1) target uuid(16) crc(4)  = 30 bytes
+ * ACK:    type(1) sequence(8) crc(4)                            = 13 bytes
+ * </pre>
+ * Replay stops at the first torn or corrupt record and cuts the file there.
+ */
+public class ActionJournal {
+    private static final String FILE_NAME = "action-journal.bin";
+    private static final byte TYPE_ACTION = 1;
+    private static final byte TYPE_ACK = 2;
+    private static final int ACTION_RECORD_SIZE = 30;
+    private static final int ACK_RECORD_SIZE = 13;
+    private static final long COMPACT_THRESHOLD_BYTES = 64 * 1024;
+
+    private final Path file;
+    private final Object syncLock = new Object();
+    private final Map<Long, Entry> pending = new LinkedHashMap<>();
+    // Lock order: this before syncLock. syncUpTo takes only syncLock and reads writtenPosition instead of the channel.
+    private FileChannel channel;
+    private long nextSequence = 1;
+    private volatile long writtenPosition;
+    private long syncedPosition;
+
+    public ActionJournal(String userId) throws IOException {
+        this(LocalStorage.getUserDirectory(userId).resolve(FILE_NAME));
+    }
+
+    ActionJournal(Path file) throws IOException {
+        this.file = file;
+        this.channel = open(file);
+        replay();
+    }
+
+    /**
+     * Actions that were written but never confirmed, in the order they were made
+     */
+    public synchronized List<Entry> getPending() {
+        return new ArrayList<>(pending.values());
+    }
+
+    /**
+     * Write an action durably. Returns once it is on disk; concurrent callers share one fsync.
+     *
+     * @return The sequence number to acknowledge the action with
+     */
+    public long append(String targetUserId, String action) throws IOException {
+        UUID target = UUID.fromString(targetUserId);
+        long sequence;
+        long end;
+        synchronized (this) {
+            sequence = nextSequence++;
+            ByteBuffer record = ByteBuffer.allocate(ACTION_RECORD_SIZE);
+            record.put(TYPE_ACTION);
+            record.putLong(sequence);
+            record.put("like".equals(action) ? (byte) 0 : (byte) 1);
+            record.putLong(target.getMostSignificantBits());
+            record.putLong(target.getLeastSignificantBits());
+            writeRecord(record);
+            end = channel.position();
+            pending.put(sequence, new Entry(sequence, targetUserId, action));
+        }
+        syncUpTo(end);
+        return sequence;
+    }
+
+    /**
+     * Mark actions as confirmed by the server. Truncates or compacts the file when possible.
+     */
+    public synchronized void acknowledge(Collection<Long> sequences) {
+        try {
+            for (Long sequence : sequences) {
+                if (pending.remove(sequence) != null) {
+                    ByteBuffer record = ByteBuffer.allocate(ACK_RECORD_SIZE);
+                    record.put(TYPE_ACK);
+                    record.putLong(sequence);
+                    writeRecord(record);
+                }
+            }
+
+            if (pending.isEmpty()) {
+                synchronized (syncLock) {
+                    channel.truncate(0);
+                    channel.position(0);
+                    channel.force(false);
+                    writtenPosition = 0;
+                    syncedPosition = 0;
+                }
+            } else if (channel.size() > COMPACT_THRESHOLD_BYTES) {
+                compact();
+            }
+        } catch (IOException e) {
+            // Worst case the acknowledged actions are sent again after a restart
+            e.printStackTrace();
+        }
+    }
+
+    public synchronized void close() {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private void writeRecord(ByteBuffer record) throws IOException {
+        CRC32 crc = new CRC32();
+        crc.update(record.array(), 0, record.capacity() - 4);
+        record.putInt((int) crc.getValue());
+        record.flip();
+        while (record.hasRemaining()) {
+            channel.write(record);
+        }
+        writtenPosition = channel.position();
+    }
+
+    private void syncUpTo(long position) throws IOException {
+        synchronized (syncLock) {
+            if (syncedPosition >= position) {
+                return; // Another caller's fsync already covered this record
+            }
+            // Everything written so far; records written meanwhile are synced by their own caller
+            long target = writtenPosition;
+            channel.force(false);
+            syncedPosition = target;
+        }
+    }
+
+    private void replay() throws IOException {
+        Set<Long> acknowledged = new HashSet<>();
+        List<Entry> actions = new ArrayList<>();
+        ByteBuffer buffer = ByteBuffer.allocate((int) channel.size());
+        channel.read(buffer, 0);
+        buffer.flip();
+
+        long validEnd = 0;
+        while (buffer.hasRemaining()) {
+            int start = buffer.position();
+            byte type = buffer.get(start);
+            int size = type == TYPE_ACTION ? ACTION_RECORD_SIZE : type == TYPE_ACK ? ACK_RECORD_SIZE : -1;
+            if (size < 0 || buffer.remaining() < size) {
+                break; // Torn write at the end of the file
+            }
+
+            CRC32 crc = new CRC32();
+            crc.update(buffer.array(), start, size - 4);
+            if ((int) crc.getValue() != buffer.getInt(start + size - 4)) {
+                break; // Corrupt record, nothing after it can be trusted
+            }
+
+            buffer.position(start + 1);
+            long sequence = buffer.getLong();
+            if (type == TYPE_ACTION) {
+                String action = buffer.get() == 0 ? "like" : "pass";
+                UUID target = new UUID(buffer.getLong(), buffer.getLong());
+                actions.add(new Entry(sequence, target.toString(), action));
+            } else {
+                acknowledged.add(sequence);
+            }
+            buffer.position(start + size);
+            validEnd = buffer.position();
+            nextSequence = Math.max(nextSequence, sequence + 1);
+        }
+
+        for (Entry entry : actions) {
+            if (!acknowledged.contains(entry.getSequence())) {
+                pending.put(entry.getSequence(), entry);
+            }
+        }
+
+        if (validEnd < channel.size()) {
+            channel.truncate(validEnd);
+            channel.force(false);
+        }
+        channel.position(validEnd);
+        writtenPosition = validEnd;
+        syncedPosition = validEnd;
+    }
+
+    /**
+     * Rewrite the journal with only the pending actions
+     */
+    private void compact() throws IOException {
+        synchronized (syncLock) {
+            Path temp = file.resolveSibling(FILE_NAME + ".tmp");
+            try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                FileChannel current = channel;
+                channel = out;
+                try {
+                    for (Entry entry : pending.values()) {
+                        UUID target = UUID.fromString(entry.getTargetUserId());
+                        ByteBuffer record = ByteBuffer.allocate(ACTION_RECORD_SIZE);
+                        record.put(TYPE_ACTION);
+                        record.putLong(entry.getSequence());
+                        record.put("like".equals(entry.getAction()) ? (byte) 0 : (byte) 1);
+                        record.putLong(target.getMostSignificantBits());
+                        record.putLong(target.getLeastSignificantBits());
+                        writeRecord(record);
+                    }
+                    out.force(false);
+                } finally {
+                    channel = current;
+                }
+            }
+            channel.close();
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            channel = open(file);
+            channel.position(channel.size());
+            writtenPosition = channel.size();
+            syncedPosition = channel.size();
+        }
+    }
+
+    private static FileChannel open(Path file) throws IOException {
+        return FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    /**
+     * An action waiting for confirmation
+     */
+    public static class Entry {
+        private final long sequence;
+        private final String targetUserId;
+        private final String action;
+
+        private Entry(long sequence, String targetUserId, String action) {
+            this.sequence = sequence;
+            this.targetUserId = targetUserId;
+            this.action = action;
+        }
+
+        public long getSequence() {
+            return sequence;
+        }
+
+        public String getTargetUserId() {
+            return targetUserId;
+        }
+
+        public String getAction() {
+            return action;
+        }
+    }
+}
@@ -0,0 +1,312 @@
+package at.ac.hcw.campusconnect.services;
+
+import at.ac.hcw.campusconnect.models.UserAction;
+import at.ac.hcw.campusconnect.util.LocalStorage;
+
+import java.io.*;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.util.Arrays;
+import java.util.UUID;
+
+/**
+ * Users the current user has already liked or passed, kept locally so discover
+ * does not have to download the whole user_actions history on every load.
+ * <p>
+ * UUIDs are stored packed as two longs in sorted primitive arrays, next to the time of the
+ * pass (0 for likes, which never expire), 24 bytes per user. Passes older than the pass expiry
+ * are dropped by {@link #expirePasses}, so those profiles show up in discover again.
+ * On disk the file is a small header followed by the entries; local swipes are
+ * appended to the end of the file right away and get sorted in on the next load.
+ */
+public class ActionedUserSet {
+    private static final String FILE_NAME = "actioned-users.bin";
+    private static final int MAGIC = 0x43434155; // "CCAU"
+    private static final int FORMAT_VERSION = 2; // 2: pass times, files of version 1 are downloaded again
+    private static final int ENTRY_SIZE = 24;
+
+    private Path file;
+    private long[] high = new long[64];
+    private long[] low = new long[64];
+    private long[] passedAt = new long[64]; // Epoch second of the pass, 0 for a like
+    private int size;
+    private String watermark; // Newest created_at of the server rows merged so far
+
+    /**
+     * An empty set that only lives in memory
+     */
+    public ActionedUserSet() {
+    }
+
+    public ActionedUserSet(String userId) {
+        try {
+            open(LocalStorage.getUserDirectory(userId).resolve(FILE_NAME));
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    ActionedUserSet(Path file) {
+        open(file);
+    }
+
+    private void open(Path file) {
+        this.file = file;
+        try {
+            if (Files.exists(file)) {
+                load();
+            }
+        } catch (Exception e) {
+            // A broken file only costs one full download
+            e.printStackTrace();
+            size = 0;
+            watermark = null;
+        }
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    public synchronized String getWatermark() {
+        return watermark;
+    }
+
+    public synchronized boolean contains(String userId) {
+        UUID uuid = parse(userId);
+        return uuid != null && contains(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits());
+    }
+
+    public synchronized boolean contains(long uuidHigh, long uuidLow) {
+        return indexOf(uuidHigh, uuidLow) >= 0;
+    }
+
+    /**
+     * Add a user the current user just swiped and append it to the file immediately
+     *
+     * @param pass Whether it was a pass (expires) or a like
+     */
+    public synchronized void add(String userId, boolean pass) {
+        UUID uuid = parse(userId);
+        long time = pass ? Instant.now().getEpochSecond() : 0;
+        if (uuid == null || !insert(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits(), time)) {
+            return;
+        }
+        if (file == null) {
+            return;
+        }
+        try {
+            if (!Files.exists(file)) {
+                save();
+                return;
+            }
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                    Files.newOutputStream(file, StandardOpenOption.APPEND)))) {
+                out.writeLong(uuid.getMostSignificantBits());
+                out.writeLong(uuid.getLeastSignificantBits());
+                out.writeLong(time);
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Forget a user again, e.g. because the server rejected the swipe.
+     * Only changes memory; call {@link #save} to drop the appended entry from the file.
+     *
+     * @return Whether the user was in the set
+     */
+    public synchronized boolean remove(String userId) {
+        UUID uuid = parse(userId);
+        int index = uuid != null ? indexOf(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits()) : -1;
+        if (index < 0) {
+            return false;
+        }
+        System.arraycopy(high, index + 1, high, index, size - index - 1);
+        System.arraycopy(low, index + 1, low, index, size - index - 1);
+        System.arraycopy(passedAt, index + 1, passedAt, index, size - index - 1);
+        size--;
+        return true;
+    }
+
+    /**
+     * Merge action rows pulled from the server and advance the watermark
+     *
+     * @param actions The new rows (target_user_id, action and created_at are used)
+     * @param newestCreatedAt Newest created_at among the rows, null if there were none
+     * @return Whether anything changed; rows merged before change nothing
+     */
+    public synchronized boolean merge(Iterable<UserAction> actions, String newestCreatedAt) {
+        boolean changed = false;
+        for (UserAction action : actions) {
+            UUID uuid = parse(action.getTargetUserId());
+            if (uuid != null) {
+                changed |= insert(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits(), passTime(action));
+            }
+        }
+        if (newestCreatedAt != null && isNewer(newestCreatedAt, watermark)) {
+            watermark = newestCreatedAt;
+            changed = true;
+        }
+        return changed;
+    }
+
+    /**
+     * Drop the passes older than the expiry, so those users can be shown again
+     *
+     * @return Whether anything was dropped
+     */
+    public synchronized boolean expirePasses(Duration expiry) {
+        long cutoff = Instant.now().minus(expiry).getEpochSecond();
+        int kept = 0;
+        for (int i = 0; i < size; i++) {
+            if (passedAt[i] == 0 || passedAt[i] >= cutoff) {
+                high[kept] = high[i];
+                low[kept] = low[i];
+                passedAt[kept] = passedAt[i];
+                kept++;
+            }
+        }
+        boolean dropped = kept < size;
+        size = kept;
+        return dropped;
+    }
+
+    /**
+     * Rewrite the file with the current (sorted) contents and watermark
+     */
+    public synchronized void save() {
+        if (file == null) {
+            return;
+        }
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(32 + size * ENTRY_SIZE);
+            try (DataOutputStream out = new DataOutputStream(bytes)) {
+                out.writeInt(MAGIC);
+                out.writeInt(FORMAT_VERSION);
+                out.writeUTF(watermark != null ? watermark : "");
+                for (int i = 0; i < size; i++) {
+                    out.writeLong(high[i]);
+                    out.writeLong(low[i]);
+                    out.writeLong(passedAt[i]);
+                }
+            }
+            LocalStorage.writeAtomically(file, bytes.toByteArray());
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private void load() throws IOException {
+        byte[] bytes = Files.readAllBytes(file);
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+        if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+            return;
+        }
+        String storedWatermark = in.readUTF();
+        watermark = storedWatermark.isEmpty() ? null : storedWatermark;
+
+        // Rewritten entries are sorted, appended ones are not: insert() handles both
+        while (in.available() >= ENTRY_SIZE) {
+            insert(in.readLong(), in.readLong(), in.readLong());
+        }
+        if (in.available() > 0) {
+            // Torn append: cut it off, or the next appends would be read shifted behind it
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                channel.truncate(bytes.length - in.available());
+            }
+        }
+    }
+
+    /**
+     * Insert a user, or update the pass time of a known one: a like makes the entry permanent,
+     * a newer pass replaces an older one
+     *
+     * @return Whether anything changed
+     */
+    private boolean insert(long uuidHigh, long uuidLow, long time) {
+        int index = indexOf(uuidHigh, uuidLow);
+        if (index >= 0) {
+            long current = passedAt[index];
+            long updated = current == 0 || time == 0 ? 0 : Math.max(current, time);
+            passedAt[index] = updated;
+            return updated != current;
+        }
+        int insertAt = -index - 1;
+        if (size == high.length) {
+            high = Arrays.copyOf(high, size * 2);
+            low = Arrays.copyOf(low, size * 2);
+            passedAt = Arrays.copyOf(passedAt, size * 2);
+        }
+        System.arraycopy(high, insertAt, high, insertAt + 1, size - insertAt);
+        System.arraycopy(low, insertAt, low, insertAt + 1, size - insertAt);
+        System.arraycopy(passedAt, insertAt, passedAt, insertAt + 1, size - insertAt);
+        high[insertAt] = uuidHigh;
+        low[insertAt] = uuidLow;
+        passedAt[insertAt] = time;
+        size++;
+        return true;
+    }
+
+    /**
+     * Pass time of a server row: epoch second of created_at for passes, 0 for likes
+     */
+    private static long passTime(UserAction action) {
+        if (!"pass".equals(action.getAction())) {
+            return 0;
+        }
+        try {
+            return Math.max(1, OffsetDateTime.parse(action.getCreatedAt()).toEpochSecond());
+        } catch (Exception e) {
+            return Instant.now().getEpochSecond();
+        }
+    }
+
+    /**
+     * Binary search over the packed UUIDs, same contract as Arrays.binarySearch
+     */
+    private int indexOf(long uuidHigh, long uuidLow) {
+        int from = 0;
+        int to = size - 1;
+        while (from <= to) {
+            int middle = (from + to) >>> 1;
+            int comparison = Long.compare(high[middle], uuidHigh);
+            if (comparison == 0) {
+                comparison = Long.compare(low[middle], uuidLow);
+            }
+            if (comparison < 0) {
+                from = middle + 1;
+            } else if (comparison > 0) {
+                to = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -(from + 1);
+    }
+
+    private static UUID parse(String userId) {
+        try {
+            return userId != null ? UUID.fromString(userId) : null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static boolean isNewer(String timestamp, String than) {
+        if (than == null) {
+            return true;
+        }
+        try {
+            return OffsetDateTime.parse(timestamp).isAfter(OffsetDateTime.parse(than));
+        } catch (Exception e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package at.ac.hcw.campusconnect.services;
+
+import at.ac.hcw.campusconnect.models.Profile;
+import at.ac.hcw.campusconnect.util.HnswIndex;
+import at.ac.hcw.campusconnect.util.TextVectorizer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Bio text similarity over a candidate pool, as a ranking bonus for the candidates whose bios
+ * are closest to the viewer's.
+ * <p>
+ * Bios are turned into TF-IDF based vectors fitted on the pool. With an index, neighbours come
+ * from an HNSW index, which pays off when many viewers are ranked against the same pool
+ * (DiscoverQueueJob). Without one, a single viewer's neighbours are found with an exact scan,
+ * which is cheaper than building an index for one query (discover in the app).
+ * Rows are the positions in the profile list, the same as in a CandidateStore built from it;
+ * as a Scorer it must only be used with such a store.
+ */
+public class BioSimilarity implements Scorer {
+    public static final int DEFAULT_NEIGHBOURS = 100;
+    public static final int MAX_BONUS = 3;
+
+    private static final int DIMENSIONS = 64;
+    private static final int INDEX_LINKS = 16;
+    private static final int INDEX_EF_CONSTRUCTION = 100;
+    private static final int SEARCH_EF = 200;
+
+    private final TextVectorizer vectorizer;
+    private final float[][] vectors;
+    private final HnswIndex index;
+    private final int[] indexRows; // Index node -> row, only rows with a non-empty bio vector are indexed
+
+    private BioSimilarity(TextVectorizer vectorizer, float[][] vectors, HnswIndex index, int[] indexRows) {
+        this.vectorizer = vectorizer;
+        this.vectors = vectors;
+        this.index = index;
+        this.indexRows = indexRows;
+    }
+
+    /**
+     * Vectorize the bios of a pool
+     *
+     * @param buildIndex Whether to build an HNSW index, worth it when ranking for many viewers
+     */
+    public static BioSimilarity of(List<Profile> profiles, boolean buildIndex) {
+        List<String> bios = new ArrayList<>(profiles.size());
+        profiles.forEach(profile -> bios.add(profile.getBio()));
+        TextVectorizer vectorizer = TextVectorizer.fit(bios, DIMENSIONS);
+
+        float[][] vectors = new float[profiles.size()][];
+        for (int row = 0; row < vectors.length; row++) {
+            vectors[row] = vectorizer.vectorize(bios.get(row));
+        }
+
+        HnswIndex index = null;
+        int[] indexRows = null;
+        if (buildIndex) {
+            index = new HnswIndex(INDEX_LINKS, INDEX_EF_CONSTRUCTION, 42);
+            indexRows = new int[vectors.length];
+            for (int row = 0; row < vectors.length; row++) {
+                if (!isZero(vectors[row])) {
+                    indexRows[index.add(vectors[row])] = row;
+                }
+            }
+        }
+        return new BioSimilarity(vectorizer, vectors, index, indexRows);
+    }
+
+    /**
+     * Ranking bonus per row: the viewer's nearest bios get up to MAX_BONUS points, scaled by
+     * cosine similarity; all other rows get 0.
+     *
+     * @param neighbours How many nearest bios get a bonus
+     */
+    public int[] bonusFor(Profile viewer, int neighbours) {
+        int[] bonus = new int[vectors.length];
+        float[] query = vectorizer.vectorize(viewer.getBio());
+        if (isZero(query)) {
+            return bonus;
+        }
+
+        int[] rows = index != null ? searchIndex(query, neighbours) : scan(query, neighbours);
+        for (int row : rows) {
+            float similarity = TextVectorizer.dot(query, vectors[row]);
+            if (similarity > 0) {
+                bonus[row] = Math.round(similarity * MAX_BONUS);
+            }
+        }
+        return bonus;
+    }
+
+    @Override
+    public String getName() {
+        return "bio_similarity";
+    }
+
+    @Override
+    public int getDefaultWeight() {
+        return 1;
+    }
+
+    @Override
+    public void score(CandidateStore store, Profile viewer, int[] rows, int weight, int[] scores) {
+        int[] bonus = bonusFor(viewer, DEFAULT_NEIGHBOURS);
+        for (int row : rows) {
+            scores[row] += weight * bonus[row];
+        }
+    }
+
+    private int[] searchIndex(float[] query, int neighbours) {
+        int[] nodes = index.search(query, neighbours, Math.max(SEARCH_EF, neighbours));
+        int[] rows = new int[nodes.length];
+        for (int i = 0; i < nodes.length; i++) {
+            rows[i] = indexRows[nodes[i]];
+        }
+        return rows;
+    }
+
+    /**
+     * Exact top-n by similarity with a small bounded insertion list
+     */
+    private int[] scan(float[] query, int neighbours) {
+        int limit = Math.min(neighbours, vectors.length);
+        if (limit <= 0) {
+            return new int[0];
+        }
+        int[] rows = new int[limit];
+        float[] similarities = new float[limit];
+        int count = 0;
+        for (int row = 0; row < vectors.length; row++) {
+            float similarity = TextVectorizer.dot(query, vectors[row]);
+            if (count == limit && similarity <= similarities[count - 1]) {
+                continue;
+            }
+            int position = count < limit ? count++ : count - 1;
+            while (position > 0 && similarities[position - 1] < similarity) {
+                similarities[position] = similarities[position - 1];
+                rows[position] = rows[position - 1];
+                position--;
+            }
+            similarities[position] = similarity;
+            rows[position] = row;
+        }
+        return count == limit ? rows : Arrays.copyOf(rows, count);
+    }
+
+    private static boolean isZero(float[] vector) {
+        for (float value : vector) {
+            if (value != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,139 @@
+package at.ac.hcw.campusconnect.services;
+
+import at.ac.hcw.campusconnect.models.DiscoverFilter;
+import at.ac.hcw.campusconnect.models.Profile;
+import at.ac.hcw.campusconnect.util.BirthdateRange;
+
+import java.time.LocalDate;
+import java.util.*;
+
+/**
+ * Bitmap secondary indexes over a CandidateStore.
+ * Every attribute value has one bitmap of candidate rows; a filter is resolved by
+ * OR-ing the bitmaps of the selected values per attribute and AND-ing the attributes.
+ */
+public class CandidateIndex {
+    private final CandidateStore store;
+    private final BitSet allRows;
+    private final Map<String, BitSet> byDegreeType = new HashMap<>();
+    private final Map<String, BitSet> byStudyProgram = new TreeMap<>();
+    private final Map<Integer, BitSet> bySemester = new HashMap<>();
+    private final Map<Integer, BitSet> byBirthYear = new HashMap<>();
+
+    private CandidateIndex(CandidateStore store) {
+        this.store = store;
+        this.allRows = new BitSet(store.size());
+        allRows.set(0, store.size());
+
+        for (int row = 0; row < store.size(); row++) {
+            Profile profile = store.getProfile(row);
+            if (profile.getDegreeType() != null) {
+                byDegreeType.computeIfAbsent(profile.getDegreeType(), k -> new BitSet()).set(row);
+            }
+            if (profile.getStudyProgram() != null) {
+                byStudyProgram.computeIfAbsent(profile.getStudyProgram(), k -> new BitSet()).set(row);
+            }
+            bySemester.computeIfAbsent(store.getSemester(row), k -> new BitSet()).set(row);
+
+            int birthDay = store.getBirthDay(row);
+            if (birthDay != CandidateStore.UNKNOWN_BIRTHDAY) {
+                int year = LocalDate.ofEpochDay(birthDay).getYear();
+                byBirthYear.computeIfAbsent(year, k -> new BitSet()).set(row);
+            }
+        }
+    }
+
+    /**
+     * Build the indexes for all rows of the store
+     */
+    public static CandidateIndex of(CandidateStore store) {
+        return new CandidateIndex(store);
+    }
+
+    /**
+     * Study programs present in the pool, sorted alphabetically
+     */
+    public Set<String> getStudyPrograms() {
+        return Collections.unmodifiableSet(byStudyProgram.keySet());
+    }
+
+    /**
+     * Resolve a filter to the set of matching rows
+     *
+     * @param filter The filter to apply
+     * @return A new bitmap the caller may modify
+     */
+    public BitSet resolve(DiscoverFilter filter) {
+        BitSet result = (BitSet) allRows.clone();
+
+        if (!filter.getDegreeTypes().isEmpty()) {
+            result.and(union(byDegreeType, filter.getDegreeTypes()));
+        }
+        if (!filter.getStudyPrograms().isEmpty()) {
+            result.and(union(byStudyProgram, filter.getStudyPrograms()));
+        }
+        if (filter.getMinSemester() != null || filter.getMaxSemester() != null) {
+            result.and(semesterRange(filter.getMinSemester(), filter.getMaxSemester()));
+        }
+        if (filter.getMinAge() != null || filter.getMaxAge() != null) {
+            result.and(ageRange(filter.getMinAge(), filter.getMaxAge()));
+        }
+        return result;
+    }
+
+    private static <K> BitSet union(Map<K, BitSet> bitmaps, Collection<K> keys) {
+        BitSet result = new BitSet();
+        for (K key : keys) {
+            BitSet bitmap = bitmaps.get(key);
+            if (bitmap != null) {
+                result.or(bitmap);
+            }
+        }
+        return result;
+    }
+
+    private BitSet semesterRange(Integer min, Integer max) {
+        BitSet result = new BitSet();
+        for (Map.Entry<Integer, BitSet> entry : bySemester.entrySet()) {
+            int semester = entry.getKey();
+            if ((min == null || semester >= min) && (max == null || semester <= max)) {
+                result.or(entry.getValue());
+            }
+        }
+        return result;
+    }
+
+    private BitSet ageRange(Integer minAge, Integer maxAge) {
+        // Someone aged minAge..maxAge today was born between these two days (inclusive)
+        LocalDate today = LocalDate.now();
+        LocalDate latestDate = BirthdateRange.latest(minAge, today);
+        LocalDate earliestDate = BirthdateRange.earliest(maxAge, today);
+        long latest = latestDate != null ? latestDate.toEpochDay() : Long.MAX_VALUE;
+        long earliest = earliestDate != null ? earliestDate.toEpochDay() : Long.MIN_VALUE;
+
+        BitSet result = new BitSet();
+        for (Map.Entry<Integer, BitSet> entry : byBirthYear.entrySet()) {
+            int year = entry.getKey();
+            long firstDay = LocalDate.of(year, 1, 1).toEpochDay();
+            long lastDay = LocalDate.of(year, 12, 31).toEpochDay();
+
+            if (lastDay < earliest || firstDay > latest) {
+                continue;
+            }
+            if (firstDay >= earliest && lastDay <= latest) {
+                result.or(entry.getValue());
+                continue;
+            }
+
+            // Boundary year: only part of it is inside the range, check the exact birthdays
+            BitSet rows = entry.getValue();
+            for (int row = rows.nextSetBit(0); row >= 0; row = rows.nextSetBit(row + 1)) {
+                int birthDay = store.getBirthDay(row);
+                if (birthDay >= earliest && birthDay <= latest) {
+                    result.set(row);
+                }
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,174 @@
+package at.ac.hcw.campusconnect.services;
+
+import at.ac.hcw.campusconnect.models.CandidatePoolSnapshot;
+import at.ac.hcw.campusconnect.models.Profile;
+import at.ac.hcw.campusconnect.util.LocalStorage;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.util.*;
+
+/**
+ * Local copy of the discover candidate pool, keyed by user_id and persisted across restarts.
+ * Kept fresh by merging profiles changed since the watermark; deletions are reconciled periodically.
+ * The pool only holds candidates within the user's age preference (its scope); a new scope starts over.
+ */
+public class CandidatePoolCache {
+    private static final String FILE_NAME = "candidate-pool.json";
+    private static final int FORMAT_VERSION = 1;
+    private static final long RECONCILE_INTERVAL_MILLIS = 6 * 60 * 60 * 1000L; // 6 hours
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Map<String, Profile> profilesByUserId = new LinkedHashMap<>();
+    private Path file;
+    private String watermark;
+    private long reconciledAt;
+    private String scope = "";
+    private String latestBirthdate;
+    private boolean dirty;
+
+    public CandidatePoolCache(String userId) {
+        try {
+            file = LocalStorage.getUserDirectory(userId).resolve(FILE_NAME);
+            if (Files.exists(file)) {
+                CandidatePoolSnapshot snapshot = objectMapper.readValue(file.toFile(), CandidatePoolSnapshot.class);
+                if (snapshot.getVersion() == FORMAT_VERSION) {
+                    for (Profile profile : snapshot.getProfiles()) {
+                        profilesByUserId.put(profile.getUserId(), profile);
+                    }
+                    watermark = snapshot.getWatermark();
+                    reconciledAt = snapshot.getReconciledAt();
+                    scope = snapshot.getScope() != null ? snapshot.getScope() : "";
+                    latestBirthdate = snapshot.getLatestBirthdate();
+                }
+            }
+        } catch (Exception e) {
+            // A broken cache only costs one full download
+            e.printStackTrace();
+            profilesByUserId.clear();
+            watermark = null;
+            reconciledAt = 0;
+        }
+    }
+
+    public synchronized List<Profile> getProfiles() {
+        return new ArrayList<>(profilesByUserId.values());
+    }
+
+    /**
+     * Newest created_at/updated_at in the pool, or null if the pool has never been synced
+     */
+    public synchronized String getWatermark() {
+        return watermark;
+    }
+
+    /**
+     * Insert or replace changed profiles and advance the watermark.
+     * Profiles already known with the same created_at and updated_at are skipped, syncs overlap.
+     */
+    public synchronized void merge(List<Profile> changedProfiles) {
+        for (Profile profile : changedProfiles) {
+            Profile known = profilesByUserId.get(profile.getUserId());
+            if (known != null && Objects.equals(known.getUpdatedAt(), profile.getUpdatedAt())
+                    && Objects.equals(known.getCreatedAt(), profile.getCreatedAt())) {
+                continue;
+            }
+            profilesByUserId.put(profile.getUserId(), profile);
+            watermark = newest(watermark, profile.getCreatedAt());
+            watermark = newest(watermark, profile.getUpdatedAt());
+            dirty = true;
+        }
+    }
+
+    /**
+     * Switch to the pool for another age preference, dropping everything downloaded for the old one
+     *
+     * @param scope Key of the preference, empty for none
+     */
+    public synchronized void setScope(String scope) {
+        if (scope.equals(this.scope)) {
+            return;
+        }
+        this.scope = scope;
+        profilesByUserId.clear();
+        watermark = null;
+        reconciledAt = 0;
+        latestBirthdate = null;
+        dirty = true;
+    }
+
+    public synchronized String getLatestBirthdate() {
+        return latestBirthdate;
+    }
+
+    public synchronized void setLatestBirthdate(String latestBirthdate) {
+        if (!Objects.equals(latestBirthdate, this.latestBirthdate)) {
+            this.latestBirthdate = latestBirthdate;
+            dirty = true;
+        }
+    }
+
+    /**
+     * Drop candidates born before the given day, who have aged out of the upper age limit
+     */
+    public synchronized void dropBornBefore(LocalDate earliest) {
+        if (profilesByUserId.values().removeIf(profile ->
+                profile.getParsedBirthdate() != null && profile.getParsedBirthdate().isBefore(earliest))) {
+            dirty = true;
+        }
+    }
+
+    public synchronized boolean needsReconcile() {
+        return System.currentTimeMillis() - reconciledAt > RECONCILE_INTERVAL_MILLIS;
+    }
+
+    /**
+     * Drop profiles that no longer exist on the server
+     *
+     * @param existingUserIds All user IDs currently in the profiles table
+     */
+    public synchronized void reconcile(Set<String> existingUserIds) {
+        profilesByUserId.keySet().retainAll(existingUserIds);
+        reconciledAt = System.currentTimeMillis();
+        dirty = true;
+    }
+
+    /**
+     * Write the pool to disk if it changed since the last save
+     */
+    public synchronized void save() {
+        if (!dirty || file == null) {
+            return;
+        }
+        try {
+            CandidatePoolSnapshot snapshot = new CandidatePoolSnapshot();
+            snapshot.setVersion(FORMAT_VERSION);
+            snapshot.setWatermark(watermark);
+            snapshot.setReconciledAt(reconciledAt);
+            snapshot.setScope(scope);
+            snapshot.setLatestBirthdate(latestBirthdate);
+            snapshot.setProfiles(new ArrayList<>(profilesByUserId.values()));
+            LocalStorage.writeAtomically(file, objectMapper.writeValueAsBytes(snapshot));
+            dirty = false;
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    private static String newest(String current, String candidate) {
+        if (candidate == null) {
+            return current;
+        }
+        if (current == null) {
+            return candidate;
+        }
+        try {
+            return OffsetDateTime.parse(candidate).isAfter(OffsetDateTime.parse(current)) ? candidate : current;
+        } catch (Exception e) {
+            return current;
+        }
+    }
+}
@@ -0,0 +1,300 @@
+package at.ac.hcw.campusconnect.services;
+
+import at.ac.hcw.campusconnect.models.Profile;
+import at.ac.hcw.campusconnect.util.BirthdateRange;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.stream.IntStream;
+
+/**
+ * Column-oriented snapshot of the discover candidate pool.
+ * Every candidate is a row index into primitive arrays, so filtering and scoring
+ * run as tight loops over the columns without touching the decoded Profile objects.
+ * Ranking itself is done by a {@link RankingEngine} on top of the columns.
+ */
+public class CandidateStore {
+    public static final int UNKNOWN_BIRTHDAY = Integer.MIN_VALUE;
+    // Largest score the counting sort handles, higher ones are sorted by comparison
+    private static final int MAX_COUNTING_SCORE = 1 << 16;
+
+    private final List<Profile> profiles;
+    private final int size;
+
+    // Interest dictionary: interest tag -> bit position in the interest masks
+    private final Map<String, Integer> interestBits;
+    private final int interestWords;
+    private final long[] interestMasks; // size * interestWords, row-major
+
+    // Gender, looking_for and interested_in decoded into one CompatibilityTable code
+    private final short[] compatibilityCodes;
+
+    // Study program dictionary: program -> code, -1 for candidates without one
+    private final Map<String, Integer> studyProgramCodes;
+    private final int[] studyPrograms;
+
+    private final byte[] semesters;
+    private final int[] birthDays; // Epoch day of the birthdate
+
+    // user_id packed as two longs, so exclusion checks need no strings
+    private final long[] userIdHigh;
+    private final long[] userIdLow;
+    private final int[] rowsByUserId; // Rows in (userIdHigh, userIdLow) order, binary searched by getRow
+
+    private CandidateStore(List<Profile> profiles) {
+        this.profiles = profiles;
+        this.size = profiles.size();
+
+        this.interestBits = new HashMap<>();
+        for (Profile profile : profiles) {
+            if (profile.getInterests() != null) {
+                for (String interest : profile.getInterests()) {
+                    interestBits.putIfAbsent(interest, interestBits.size());
+                }
+            }
+        }
+        this.interestWords = Math.max(1, (interestBits.size() + 63) / 64);
+        this.interestMasks = new long[size * interestWords];
+
+        this.compatibilityCodes = new short[size];
+        this.studyProgramCodes = new HashMap<>();
+        this.studyPrograms = new int[size];
+        this.semesters = new byte[size];
+        this.birthDays = new int[size];
+        this.userIdHigh = new long[size];
+        this.userIdLow = new long[size];
+
+        for (int row = 0; row < size; row++) {
+            Profile profile = profiles.get(row);
+            encodeInterests(profile.getInterests(), interestMasks, row * interestWords);
+            compatibilityCodes[row] = (short) CompatibilityTable.encode(profile);
+            studyPrograms[row] = profile.getStudyProgram() != null
+                    ? studyProgramCodes.computeIfAbsent(profile.getStudyProgram(), program -> studyProgramCodes.size())
+                    : -1;
+            semesters[row] = profile.getSemester() != null ? profile.getSemester().byteValue() : 0;
+            birthDays[row] = birthDayOf(profile);
+            UUID userId = parseUserId(profile.getUserId());
+            if (userId != null) {
+                userIdHigh[row] = userId.getMostSignificantBits();
+                userIdLow[row] = userId.getLeastSignificantBits();
+            }
+        }
+
+        this.rowsByUserId = IntStream.range(0, size)
+                .boxed()
+                .sorted((a, b) -> compareUserIds(userIdHigh[a], userIdLow[a], userIdHigh[b], userIdLow[b]))
+                .mapToInt(Integer::intValue)
+                .toArray();
+    }
+
+    /**
+     * Build a store from decoded profiles
+     */
+    public static CandidateStore of(List<Profile> profiles) {
+        return new CandidateStore(new ArrayList<>(profiles));
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public Profile getProfile(int row) {
+        return profiles.get(row);
+    }
+
+    public int getSemester(int row) {
+        return semesters[row];
+    }
+
+    public int getBirthDay(int row) {
+        return birthDays[row];
+    }
+
+    public int getRow(String userId) {
+        UUID uuid = parseUserId(userId);
+        if (uuid == null) {
+            return -1;
+        }
+        long high = uuid.getMostSignificantBits();
+        long low = uuid.getLeastSignificantBits();
+        int from = 0;
+        int to = size - 1;
+        while (from <= to) {
+            int middle = (from + to) >>> 1;
+            int row = rowsByUserId[middle];
+            int comparison = compareUserIds(userIdHigh[row], userIdLow[row], high, low);
+            if (comparison < 0) {
+                from = middle + 1;
+            } else if (comparison > 0) {
+                to = middle - 1;
+            } else {
+                return row;
+            }
+        }
+        return -1;
+    }
+
+    private static int compareUserIds(long highA, long lowA, long highB, long lowB) {
+        int comparison = Long.compare(highA, highB);
+        return comparison != 0 ? comparison : Long.compare(lowA, lowB);
+    }
+
+    /**
+     * Materialize the profiles for the given rows, keeping their order
+     */
+    public List<Profile> toProfiles(int[] rows) {
+        List<Profile> result = new ArrayList<>(rows.length);
+        for (int row : rows) {
+            result.add(profiles.get(row));
+        }
+        return result;
+    }
+
+    /**
+     * Rows of the candidates the viewer is compatible with, without actioned users, in pool order
+     */
+    int[] filterCompatible(Profile viewer, ActionedUserSet actionedUsers) {
+        long[] excluded = new long[(size + 63) / 64];
+        for (int row = 0; row < size; row++) {
+            if (actionedUsers.contains(userIdHigh[row], userIdLow[row])) {
+                excluded[row >>> 6] |= 1L << row;
+            }
+        }
+
+        // The viewer's row of the compatibility table: one bit per candidate code
+        long[] accepted = CompatibilityTable.rowFor(CompatibilityTable.encode(viewer));
+
+        // The viewer's age preference as an epoch day range. UNKNOWN_BIRTHDAY is the smallest int,
+        // so it is only inside the range when there is no limit at all.
+        LocalDate today = LocalDate.now();
+        LocalDate earliestDate = BirthdateRange.earliest(viewer.getPreferredAgeMax(), today);
+        LocalDate latestDate = BirthdateRange.latest(viewer.getPreferredAgeMin(), today);
+        int earliest = earliestDate != null ? (int) earliestDate.toEpochDay()
+                : latestDate != null ? UNKNOWN_BIRTHDAY + 1 : UNKNOWN_BIRTHDAY;
+        int latest = latestDate != null ? (int) latestDate.toEpochDay() : Integer.MAX_VALUE;
+
+        int[] rows = new int[size];
+        int count = 0;
+        for (int row = 0; row < size; row++) {
+            int code = compatibilityCodes[row];
+            int birthDay = birthDays[row];
+            if ((excluded[row >>> 6] & (1L << row)) == 0 && (accepted[code >>> 6] & (1L << code)) != 0
+                    && birthDay >= earliest && birthDay <= latest) {
+                rows[count++] = row;
+            }
+        }
+        return Arrays.copyOf(rows, count);
+    }
+
+    /**
+     * Add weight * (number of interests shared with the viewer) to the score of each row
+     */
+    void addSharedInterests(Profile viewer, int[] rows, int weight, int[] scores) {
+        long[] viewerMask = new long[interestWords];
+        encodeInterests(viewer.getInterests(), viewerMask, 0);
+
+        if (interestWords == 1) {
+            // Common case (the interest catalog has fewer than 64 tags): one popcount per candidate
+            long mask = viewerMask[0];
+            for (int row : rows) {
+                scores[row] += weight * Long.bitCount(interestMasks[row] & mask);
+            }
+        } else {
+            for (int row : rows) {
+                int offset = row * interestWords;
+                int shared = 0;
+                for (int word = 0; word < interestWords; word++) {
+                    shared += Long.bitCount(interestMasks[offset + word] & viewerMask[word]);
+                }
+                scores[row] += weight * shared;
+            }
+        }
+    }
+
+    /**
+     * Dictionary code of a study program in this store, -1 if no candidate has it
+     */
+    int studyProgramCode(String studyProgram) {
+        Integer code = studyProgram != null ? studyProgramCodes.get(studyProgram) : null;
+        return code != null ? code : -1;
+    }
+
+    int getStudyProgramCode(int row) {
+        return studyPrograms[row];
+    }
+
+    /**
+     * Stable sort by score, most first. Scores are normally small non-negative integers, so this is
+     * a counting sort, linear in the number of rows; larger (or overflowed) scores are sorted by comparison.
+     */
+    int[] sortByScoreDescending(int[] rows, int[] scores) {
+        int minScore = 0;
+        int maxScore = 0;
+        for (int row : rows) {
+            minScore = Math.min(minScore, scores[row]);
+            maxScore = Math.max(maxScore, scores[row]);
+        }
+        if (minScore < 0 || maxScore > MAX_COUNTING_SCORE) {
+            return sortByComparison(rows, scores);
+        }
+
+        int[] starts = new int[maxScore + 2];
+        for (int row : rows) {
+            starts[maxScore - scores[row] + 1]++;
+        }
+        for (int i = 1; i < starts.length; i++) {
+            starts[i] += starts[i - 1];
+        }
+
+        int[] sorted = new int[rows.length];
+        for (int row : rows) {
+            sorted[starts[maxScore - scores[row]]++] = row;
+        }
+        return sorted;
+    }
+
+    /**
+     * Sort keys of (inverted score, position), so equal scores keep their order without boxing
+     */
+    private static int[] sortByComparison(int[] rows, int[] scores) {
+        long[] keys = new long[rows.length];
+        for (int i = 0; i < rows.length; i++) {
+            keys[i] = ((long) ~scores[rows[i]] << 32) | i;
+        }
+        Arrays.sort(keys);
+
+        int[] sorted = new int[rows.length];
+        for (int i = 0; i < keys.length; i++) {
+            sorted[i] = rows[(int) keys[i]];
+        }
+        return sorted;
+    }
+
+    private void encodeInterests(Set<String> interests, long[] target, int offset) {
+        if (interests == null) {
+            return;
+        }
+        for (String interest : interests) {
+            Integer bit = interestBits.get(interest);
+            if (bit != null) {
+                target[offset + (bit >>> 6)] |= 1L << bit;
+            }
+        }
+    }
+
+    private static UUID parseUserId(String userId) {
+        try {
+            return userId != null ? UUID.fromString(userId) : null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Epoch day of a profile's birthdate, UNKNOWN_BIRTHDAY if it has none
+     */
+    static int birthDayOf(Profile profile) {
+        LocalDate birthdate = profile.getParsedBirthdate();
+        return birthdate != null ? (int) birthdate.toEpochDay() : UNKNOWN_BIRTHDAY;
+    }
+}
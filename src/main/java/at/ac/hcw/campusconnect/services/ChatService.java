@@ -6,9 +6,11 @@ import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 import java.net.URI;
+import java.net.URLEncoder;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
 
@@ -24,34 +26,89 @@ public class ChatService {
     }
 
     /**
-     * Get all messages for a match
+     * Get the page of messages right before a message, keyset-paginated on (created_at, id)
+     *
+     * @param before The first loaded message, or null for the latest page
+     * @return The page in (created_at, id) order, or null if the request failed
      */
-    public CompletableFuture<List<Message>> getMessages(String matchId) {
+    public CompletableFuture<List<Message>> getMessagesBefore(String matchId, Message before, int limit) {
         return CompletableFuture.supplyAsync(() -> {
-            try {
-                HttpRequest request = HttpRequest.newBuilder()
-                        .uri(URI.create(SupabaseConfig.getRestUrl() + "/messages?match_id=eq." + matchId + "&order=created_at.asc"))
-                        .header("apikey", SupabaseConfig.getSupabaseKey())
-                        .header("Authorization", "Bearer " + sessionManager.getAccessToken())
-                        .GET()
-                        .build();
+            // Newest first so the limit keeps the messages closest to the cursor
+            List<Message> page = fetchMessages("&match_id=eq." + matchId + keysetFilter(before, false)
+                    + "&order=created_at.desc,id.desc&limit=" + limit);
+            if (page != null) {
+                Collections.reverse(page);
+            }
+            return page;
+        });
+    }
 
-                HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+    /**
+     * Get the page of messages right after a message, keyset-paginated on (created_at, id)
+     *
+     * @param after The last loaded message, or null for the first page
+     * @return The page in (created_at, id) order, or null if the request failed
+     */
+    public CompletableFuture<List<Message>> getMessagesAfter(String matchId, Message after, int limit) {
+        return CompletableFuture.supplyAsync(() -> fetchMessages("&match_id=eq." + matchId + keysetFilter(after, true)
+                + "&order=created_at.asc,id.asc&limit=" + limit));
+    }
 
-                if (response.statusCode() == 200) {
-                    return objectMapper.readValue(
-                            response.body(),
-                            new TypeReference<List<Message>>() {}
-                    );
-                }
-                return new ArrayList<>();
-            } catch (Exception e) {
-                e.printStackTrace();
-                return new ArrayList<>();
-            }
+    /**
+     * Get the oldest message of a match the current user has not read yet
+     */
+    public CompletableFuture<Message> getFirstUnreadMessage(String matchId) {
+        return CompletableFuture.supplyAsync(() -> {
+            String currentUserId = sessionManager.getCurrentUser().getId();
+            List<Message> messages = fetchMessages("&match_id=eq." + matchId + "&receiver_id=eq." + currentUserId
+                    + "&is_read=eq.false&order=created_at.asc,id.asc&limit=1");
+            return messages == null || messages.isEmpty() ? null : messages.get(0);
         });
     }
 
+    /**
+     * Query parameters for the messages after (or before) a cursor: (created_at, id) compared as a row
+     *
+     * @return The filters, or an empty string without cursor
+     */
+    static String keysetFilter(Message cursor, boolean after) {
+        if (cursor == null) {
+            return "";
+        }
+        // Values are quoted because they contain reserved characters
+        String createdAt = "\"" + cursor.getCreatedAt() + "\"";
+        String comparison = after ? "gt" : "lt";
+        String condition = "(created_at." + comparison + "." + createdAt
+                + ",and(created_at.eq." + createdAt + ",id." + comparison + "." + cursor.getId() + "))";
+        // The plain bound is implied by the or-filter, but only it can start the index scan at the cursor
+        String bound = "&created_at=" + (after ? "gte." : "lte.") + URLEncoder.encode(cursor.getCreatedAt(), StandardCharsets.UTF_8);
+        return bound + "&or=" + URLEncoder.encode(condition, StandardCharsets.UTF_8);
+    }
+
+    private List<Message> fetchMessages(String filter) {
+        try {
+            HttpRequest request = HttpRequest.newBuilder()
+                    .uri(URI.create(SupabaseConfig.getRestUrl() + "/messages?select=*" + filter))
+                    .header("apikey", SupabaseConfig.getSupabaseKey())
+                    .header("Authorization", "Bearer " + sessionManager.getAccessToken())
+                    .GET()
+                    .build();
+
+            HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+
+            if (response.statusCode() == 200) {
+                return objectMapper.readValue(
+                        response.body(),
+                        new TypeReference<List<Message>>() {}
+                );
+            }
+            return null;
+        } catch (Exception e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
     /**
      * Send a message
      */
@@ -0,0 +1,92 @@
+package at.ac.hcw.campusconnect.services;
+
+import at.ac.hcw.campusconnect.models.Profile;
+import at.ac.hcw.campusconnect.models.UserFactors;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * "People like you liked..." ranking bonus from the factor vectors trained by
+ * CollaborativeFilteringJob: the viewer's taste vector dotted with a candidate's appeal vector
+ * estimates how likely the viewer likes the candidate (0 to 1).
+ * Rows are the rows of the CandidateStore the scores were built for, as a Scorer it must only
+ * be used with that store.
+ */
+public class CollaborativeScores implements Scorer {
+    public static final int MAX_BONUS = 3;
+
+    private final Map<String, float[]> tasteByUser;
+    private final float[][] appealByRow;
+
+    private CollaborativeScores(Map<String, float[]> tasteByUser, float[][] appealByRow) {
+        this.tasteByUser = tasteByUser;
+        this.appealByRow = appealByRow;
+    }
+
+    public static CollaborativeScores of(CandidateStore store, List<UserFactors> factors) {
+        Map<String, float[]> tasteByUser = new HashMap<>(factors.size() * 2);
+        float[][] appealByRow = new float[store.size()][];
+        for (UserFactors userFactors : factors) {
+            tasteByUser.put(userFactors.getUserId(), userFactors.getTaste());
+            int row = store.getRow(userFactors.getUserId());
+            if (row >= 0) {
+                appealByRow[row] = userFactors.getAppeal();
+            }
+        }
+        return new CollaborativeScores(tasteByUser, appealByRow);
+    }
+
+    /**
+     * Ranking bonus per row, up to MAX_BONUS points; all 0 for viewers without a taste vector
+     */
+    public int[] bonusFor(String viewerId) {
+        int[] bonus = new int[appealByRow.length];
+        float[] taste = tasteByUser.get(viewerId);
+        if (taste != null) {
+            for (int row = 0; row < appealByRow.length; row++) {
+                bonus[row] = points(taste, row);
+            }
+        }
+        return bonus;
+    }
+
+    @Override
+    public String getName() {
+        return "collaborative";
+    }
+
+    @Override
+    public int getDefaultWeight() {
+        return 1;
+    }
+
+    @Override
+    public void score(CandidateStore store, Profile viewer, int[] rows, int weight, int[] scores) {
+        // Only the given rows, the pool is usually much larger than the compatible candidates
+        float[] taste = tasteByUser.get(viewer.getUserId());
+        if (taste != null) {
+            for (int row : rows) {
+                scores[row] += weight * points(taste, row);
+            }
+        }
+    }
+
+    private int points(float[] taste, int row) {
+        float[] appeal = appealByRow[row];
+        if (appeal == null || appeal.length != taste.length) {
+            return 0;
+        }
+        float score = Math.min(1f, dot(taste, appeal));
+        return score > 0 ? Math.round(score * MAX_BONUS) : 0;
+    }
+
+    private static float dot(float[] a, float[] b) {
+        float sum = 0;
+        for (int i = 0; i < a.length; i++) {
+            sum += a[i] * b[i];
+        }
+        return sum;
+    }
+}
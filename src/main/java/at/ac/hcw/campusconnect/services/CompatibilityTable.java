@@ -0,0 +1,82 @@
+package at.ac.hcw.campusconnect.services;
+
+import at.ac.hcw.campusconnect.models.Gender;
+import at.ac.hcw.campusconnect.models.InterestedIn;
+import at.ac.hcw.campusconnect.models.LookingFor;
+import at.ac.hcw.campusconnect.models.Profile;
+
+/**
+ * Precomputed compatibility between two profiles.
+ * A profile is reduced to one code combining gender, looking_for and interested_in,
+ * and every (viewer, candidate) code pair is answered by a single bit lookup.
+ */
+public final class CompatibilityTable {
+    private static final Gender[] GENDERS = Gender.values();
+    private static final LookingFor[] LOOKING_FOR = LookingFor.values();
+    private static final InterestedIn[] INTERESTED_IN = InterestedIn.values();
+
+    /**
+     * Number of distinct profile codes
+     */
+    public static final int CODES = GENDERS.length * LOOKING_FOR.length * INTERESTED_IN.length;
+
+    private static final int WORDS_PER_CODE = (CODES + 63) / 64;
+
+    // CODES rows of CODES bits: bit (viewer, candidate) is set when both accept each other
+    private static final long[] TABLE = buildTable();
+
+    private CompatibilityTable() {
+    }
+
+    /**
+     * Decode a profile into its compatibility code
+     */
+    public static int encode(Profile profile) {
+        return encode(
+                Gender.fromValue(profile.getGender()),
+                LookingFor.fromValue(profile.getLookingFor()),
+                InterestedIn.fromValue(profile.getInterestedIn())
+        );
+    }
+
+    public static int encode(Gender gender, LookingFor lookingFor, InterestedIn interestedIn) {
+        return (gender.ordinal() * LOOKING_FOR.length + lookingFor.ordinal()) * INTERESTED_IN.length
+                + interestedIn.ordinal();
+    }
+
+    public static boolean isCompatible(int viewerCode, int candidateCode) {
+        return (TABLE[viewerCode * WORDS_PER_CODE + (candidateCode >>> 6)] & (1L << candidateCode)) != 0;
+    }
+
+    /**
+     * Copy of the table row for one viewer, for scanning many candidates
+     */
+    public static long[] rowFor(int viewerCode) {
+        long[] row = new long[WORDS_PER_CODE];
+        System.arraycopy(TABLE, viewerCode * WORDS_PER_CODE, row, 0, WORDS_PER_CODE);
+        return row;
+    }
+
+    private static long[] buildTable() {
+        long[] table = new long[CODES * WORDS_PER_CODE];
+        for (Gender g1 : GENDERS) {
+            for (LookingFor l1 : LOOKING_FOR) {
+                for (InterestedIn i1 : INTERESTED_IN) {
+                    int viewer = encode(g1, l1, i1);
+                    for (Gender g2 : GENDERS) {
+                        for (LookingFor l2 : LOOKING_FOR) {
+                            for (InterestedIn i2 : INTERESTED_IN) {
+                                // looking_for has to fit and each side has to accept the other's gender
+                                if (l1.isCompatibleWith(l2) && i1.accepts(g2) && i2.accepts(g1)) {
+                                    int candidate = encode(g2, l2, i2);
+                                    table[viewer * WORDS_PER_CODE + (candidate >>> 6)] |= 1L << candidate;
+                                }
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        return table;
+    }
+}
@@ -0,0 +1,149 @@
+package at.ac.hcw.campusconnect.services;
+
+import at.ac.hcw.campusconnect.models.DiscoverSessionSnapshot;
+import at.ac.hcw.campusconnect.models.Profile;
+import at.ac.hcw.campusconnect.util.LocalStorage;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * The ranked discover deck of the last session and the position in it, persisted across restarts.
+ * On launch the remaining cards can be shown straight from the local candidate pool while
+ * discover revalidates in the background. The ranking is reused as long as its key matches,
+ * the key combines the viewer's profile version (preferences) and the pool watermark (catalog).
+ */
+public class DiscoverSession {
+    private static final String FILE_NAME = "discover-session.json";
+    private static final int FORMAT_VERSION = 1;
+    private static final int MAX_RANKED_IDS = 500; // Enough to resume with, the rest is ranked again
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final List<String> rankedIds = new ArrayList<>();
+    private Path file;
+    private String rankingKey;
+    private int cursor;
+    private boolean dirty;
+
+    public DiscoverSession(String userId) {
+        try {
+            file = LocalStorage.getUserDirectory(userId).resolve(FILE_NAME);
+            if (Files.exists(file)) {
+                DiscoverSessionSnapshot snapshot = objectMapper.readValue(file.toFile(), DiscoverSessionSnapshot.class);
+                if (snapshot.getVersion() == FORMAT_VERSION) {
+                    rankedIds.addAll(snapshot.getRankedIds());
+                    rankingKey = snapshot.getRankingKey();
+                    cursor = Math.min(Math.max(snapshot.getCursor(), 0), rankedIds.size());
+                }
+            }
+        } catch (Exception e) {
+            // A broken snapshot only costs one ranking
+            e.printStackTrace();
+            rankedIds.clear();
+            rankingKey = null;
+            cursor = 0;
+        }
+    }
+
+    /**
+     * Key of a ranking for the given viewer and pool, changes when either of them changes
+     */
+    public static String rankingKey(Profile viewer, CandidatePoolCache pool) {
+        return viewer.getUserId() + "|" + viewer.getUpdatedAt() + "|" + pool.getWatermark();
+    }
+
+    /**
+     * Whether the stored ranking was computed for this key and has cards left
+     */
+    public synchronized boolean isValidFor(String key) {
+        return key.equals(rankingKey) && cursor < rankedIds.size();
+    }
+
+    /**
+     * The remaining ranked profiles found in the pool, without the given users
+     */
+    public synchronized List<Profile> remainingProfiles(List<Profile> pool, ActionedUserSet actionedUsers) {
+        Map<String, Profile> profilesById = new HashMap<>();
+        pool.forEach(profile -> profilesById.put(profile.getUserId(), profile));
+
+        List<Profile> remaining = new ArrayList<>();
+        for (String userId : rankedIds.subList(cursor, rankedIds.size())) {
+            Profile profile = profilesById.get(userId);
+            if (profile != null && !actionedUsers.contains(userId)) {
+                remaining.add(profile);
+            }
+        }
+        return remaining;
+    }
+
+    /**
+     * Replace the stored ranking with a new one and start from its beginning
+     */
+    public synchronized void start(String key, List<Profile> ranked) {
+        rankingKey = key;
+        rankedIds.clear();
+        for (int i = 0; i < Math.min(ranked.size(), MAX_RANKED_IDS); i++) {
+            rankedIds.add(ranked.get(i).getUserId());
+        }
+        cursor = 0;
+        dirty = true;
+    }
+
+    /**
+     * Move the cursor past the leading candidates that have been swiped.
+     * Filters can make the user swipe out of order; those are skipped on resume through the actioned set.
+     */
+    public synchronized void advance(ActionedUserSet actionedUsers) {
+        int start = cursor;
+        while (cursor < rankedIds.size() && actionedUsers.contains(rankedIds.get(cursor))) {
+            cursor++;
+        }
+        dirty |= cursor != start;
+    }
+
+    /**
+     * Move the cursor back to a candidate whose swipe was undone, so it is part of the resumed deck again.
+     * Swiped candidates between it and the old cursor are still skipped through the actioned set.
+     */
+    public synchronized void rewind(String userId) {
+        int index = rankedIds.indexOf(userId);
+        if (index >= 0 && index < cursor) {
+            cursor = index;
+            dirty = true;
+        }
+    }
+
+    /**
+     * Forget the stored ranking, e.g. after the user changed their preferences
+     */
+    public synchronized void invalidate() {
+        if (rankingKey != null || !rankedIds.isEmpty()) {
+            rankingKey = null;
+            rankedIds.clear();
+            cursor = 0;
+            dirty = true;
+        }
+    }
+
+    /**
+     * Write the snapshot to disk if it changed since the last save
+     */
+    public synchronized void save() {
+        if (!dirty || file == null) {
+            return;
+        }
+        try {
+            DiscoverSessionSnapshot snapshot = new DiscoverSessionSnapshot();
+            snapshot.setVersion(FORMAT_VERSION);
+            snapshot.setRankingKey(rankingKey);
+            snapshot.setRankedIds(new ArrayList<>(rankedIds));
+            snapshot.setCursor(cursor);
+            LocalStorage.writeAtomically(file, objectMapper.writeValueAsBytes(snapshot));
+            dirty = false;
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package at.ac.hcw.campusconnect.services;
+
+import at.ac.hcw.campusconnect.models.Match;
+import at.ac.hcw.campusconnect.models.Profile;
+
+import java.util.*;
+
+/**
+ * Matches and matched profiles known in this session.
+ * Filled from match polls and from matches returned right after a like,
+ * so match views do not need to download a profile that discover already had.
+ */
+public class MatchCache {
+    private final Map<String, Match> matches = new HashMap<>();
+    private final Map<String, Profile> profiles = new HashMap<>();
+
+    public synchronized void putMatch(Match match) {
+        if (match != null && match.getId() != null) {
+            matches.put(match.getId(), match);
+        }
+    }
+
+    public synchronized void putMatches(List<Match> newMatches) {
+        newMatches.forEach(this::putMatch);
+    }
+
+    public synchronized void putProfile(Profile profile) {
+        if (profile != null && profile.getUserId() != null) {
+            profiles.put(profile.getUserId(), profile);
+        }
+    }
+
+    public synchronized Profile getProfile(String userId) {
+        return profiles.get(userId);
+    }
+
+    /**
+     * Known matches, newest first
+     */
+    public synchronized List<Match> getMatches() {
+        List<Match> result = new ArrayList<>(matches.values());
+        result.sort(Comparator.comparing(Match::getMatchedAt, Comparator.nullsLast(Comparator.reverseOrder())));
+        return result;
+    }
+}
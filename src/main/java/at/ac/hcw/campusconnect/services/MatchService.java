@@ -1,33 +1,81 @@
 package at.ac.hcw.campusconnect.services;
 
 import at.ac.hcw.campusconnect.config.SupabaseConfig;
+import at.ac.hcw.campusconnect.models.DiscoverFilter;
+import at.ac.hcw.campusconnect.models.DiscoverQueueEntry;
+import at.ac.hcw.campusconnect.models.DiscoverQueueState;
+import at.ac.hcw.campusconnect.models.InboxEntry;
 import at.ac.hcw.campusconnect.models.Match;
 import at.ac.hcw.campusconnect.models.Profile;
 import at.ac.hcw.campusconnect.models.UserAction;
+import at.ac.hcw.campusconnect.util.BirthdateRange;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 import java.net.URI;
+import java.net.URLEncoder;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 
 public class MatchService {
+    private static final int DISCOVER_QUEUE_PAGE_SIZE = 200;
+    private static final Duration DEFAULT_PASS_EXPIRY = Duration.ofDays(90); // Same as action_settings
+    // A stalled batch must not hold up the swipe queue; it is retried after the timeout
+    private static final Duration RECORD_ACTIONS_TIMEOUT = Duration.ofSeconds(15);
+    // updated_at and created_at are now() of the writing transaction, i.e. its start, not its commit:
+    // a row can become visible after newer ones were synced, so syncs look this far behind their watermark
+    private static final Duration SYNC_OVERLAP = Duration.ofMinutes(1);
+
     private final SessionManager sessionManager;
     private final HttpClient httpClient;
     private final ObjectMapper objectMapper;
 
+    // Last discover result, kept so filters can be applied without another request
+    private CandidateStore discoverStore;
+    private CandidateIndex discoverIndex;
+    private int[] discoverRanking;
+    private final BitSet actionedRows = new BitSet();
+
     public MatchService(SessionManager sessionManager) {
         this.sessionManager = sessionManager;
         this.httpClient = HttpClient.newHttpClient();
         this.objectMapper = new ObjectMapper();
     }
 
+    /**
+     * The remaining deck of the last session, read from local files only so it can be shown right away.
+     * It is not revalidated yet; call getDiscoverProfiles afterwards for the up-to-date deck.
+     *
+     * @return The remaining profiles in ranked order, empty if there is nothing to resume
+     */
+    public CompletableFuture<List<Profile>> getResumedDiscoverProfiles() {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                List<Profile> resumed = sessionManager.getDiscoverSession().remainingProfiles(
+                        sessionManager.getCandidatePool().getProfiles(), sessionManager.getActionedUsers());
+                if (!resumed.isEmpty()) {
+                    rememberRankedResult(resumed);
+                }
+                return resumed;
+            } catch (Exception e) {
+                e.printStackTrace();
+                return new ArrayList<>();
+            }
+        });
+    }
+
     /**
      * Get profiles to discover based on current user's preferences
+     *
+     * @return The ranked profiles, or null if they could not be loaded (e.g. offline)
      */
     public CompletableFuture<List<Profile>> getDiscoverProfiles() {
         return CompletableFuture.supplyAsync(() -> {
@@ -37,108 +85,227 @@ public class MatchService {
                 // First, get current user's profile to filter by preferences
                 Profile currentProfile = getCurrentUserProfile();
                 if (currentProfile == null) {
-                    return new ArrayList<>();
+                    return null;
                 }
 
-                // Get all profiles except current user
-                HttpRequest request = HttpRequest.newBuilder()
-                        .uri(URI.create(SupabaseConfig.getRestUrl() + "/profiles?select=*&user_id=neq." + currentUserId))
-                        .header("apikey", SupabaseConfig.getSupabaseKey())
-                        .header("Authorization", "Bearer " + sessionManager.getAccessToken())
-                        .GET()
-                        .build();
-
-                HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
-
-                if (response.statusCode() == 200) {
-                    List<Profile> allProfiles = objectMapper.readValue(
-                            response.body(),
-                            new TypeReference<List<Profile>>() {
-                            }
-                    );
-
+                // Bring the local candidate pool up to date (only changed profiles are downloaded)
+                List<Profile> allProfiles = syncCandidatePool(currentUserId, currentProfile);
+                if (allProfiles != null) {
                     // Get user's existing actions (likes and passes)
-                    Set<String> actionedUserIds = getActionedUserIds(currentUserId);
-
-                    // Filter profiles
-                    List<Profile> filteredProfiles = allProfiles.stream()
-                            .filter(p -> !actionedUserIds.contains(p.getUserId())) // Not already actioned
-                            .filter(p -> isCompatible(currentProfile, p)) // Compatible preferences
-                            .collect(Collectors.toList());
-
-                    // Sort by interest match (more shared interests first)
-                    filteredProfiles.sort((p1, p2) -> {
-                        int match1 = countSharedInterests(currentProfile, p1);
-                        int match2 = countSharedInterests(currentProfile, p2);
-                        return Integer.compare(match2, match1); // Descending order
-                    });
-
-                    return filteredProfiles;
+                    ActionedUserSet actionedUsers = syncActionedUsers(currentUserId);
+
+                    // Expired passes bring profiles back that the stored deck and the queue left out
+                    DiscoverSession session = sessionManager.getDiscoverSession();
+                    boolean passesExpired = expirePasses(actionedUsers);
+                    if (passesExpired) {
+                        session.invalidate();
+                    }
+
+                    // Neither the preferences nor the pool changed: continue the last session's deck
+                    String rankingKey = DiscoverSession.rankingKey(currentProfile, sessionManager.getCandidatePool());
+                    if (session.isValidFor(rankingKey)) {
+                        List<Profile> resumed = session.remainingProfiles(allProfiles, actionedUsers);
+                        if (!resumed.isEmpty()) {
+                            rememberRankedResult(resumed);
+                            return resumed;
+                        }
+                    }
+
+                    // Use the queue precomputed by the DiscoverQueueJob if there is one
+                    List<Profile> ranked = passesExpired ? new ArrayList<>()
+                            : readDiscoverQueue(currentProfile, allProfiles, actionedUsers);
+                    if (!ranked.isEmpty()) {
+                        rememberRankedResult(ranked);
+                    } else {
+                        // Otherwise filter and rank locally on the columnar snapshot
+                        CandidateStore store = CandidateStore.of(allProfiles);
+                        RankingEngine engine = RankingEngine.withDefaults()
+                                .add(BioSimilarity.of(allProfiles, false));
+                        int[] ranking = engine.rank(store, currentProfile, actionedUsers);
+                        rememberDiscoverResult(store, ranking);
+                        ranked = store.toProfiles(ranking);
+                    }
+
+                    session.start(rankingKey, ranked);
+                    session.save();
+                    return ranked;
                 }
-                return new ArrayList<>();
+                return null;
             } catch (Exception e) {
                 e.printStackTrace();
-                return new ArrayList<>();
+                return null;
             }
         });
     }
 
     /**
-     * Record a user action (like or pass)
+     * Narrow the last discover result down with the given filter.
+     * Resolved on the in-memory bitmap indexes, so it is cheap enough to call on every filter change.
+     *
+     * @param filter The filter selected by the user
+     * @return Matching profiles in ranked order, without users actioned in the meantime
      */
-    public CompletableFuture<Boolean> recordAction(String targetUserId, String action) {
+    public synchronized List<Profile> filterDiscoverProfiles(DiscoverFilter filter) {
+        if (discoverStore == null) {
+            return new ArrayList<>();
+        }
+
+        BitSet matching = discoverIndex.resolve(filter);
+        matching.andNot(actionedRows);
+
+        List<Profile> result = new ArrayList<>();
+        for (int row : discoverRanking) {
+            if (matching.get(row)) {
+                result.add(discoverStore.getProfile(row));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Study programs that occur in the last discover result
+     */
+    public synchronized Set<String> getDiscoverStudyPrograms() {
+        return discoverIndex != null ? discoverIndex.getStudyPrograms() : Set.of();
+    }
+
+    /**
+     * Record a user action (like or pass).
+     * The action is queued and sent in the background, so the caller can move on right away.
+     * A match created by a like is added to the session's match cache. If the server rejects
+     * the action, the user is forgotten again locally so the profile can come back in discover.
+     *
+     * @return Future completing once the server stored or rejected the action,
+     * with the created match if the like was mutual
+     */
+    public CompletableFuture<SwipeQueue.Result> recordAction(String targetUserId, String action) {
+        ActionedUserSet actionedUsers = sessionManager.getActionedUsers();
+        actionedUsers.add(targetUserId, "pass".equals(action));
+        sessionManager.getDiscoverSession().advance(actionedUsers);
+        Profile targetProfile = markActioned(targetUserId);
+        return sessionManager.getSwipeQueue().enqueue(targetUserId, action)
+                .thenApply(result -> {
+                    if (result.getMatch() != null) {
+                        MatchCache matchCache = sessionManager.getMatchCache();
+                        matchCache.putMatch(result.getMatch());
+                        matchCache.putProfile(targetProfile);
+                    } else if (!result.isStored()) {
+                        forgetAction(targetUserId);
+                    }
+                    return result;
+                });
+    }
+
+    /**
+     * Store several actions of the current user with one call to the record_actions RPC.
+     * Actions that already exist are ignored, so retrying a batch is safe.
+     *
+     * @param createdMatches Receives the matches created by likes in this batch
+     * @return The HTTP status code, or -1 if the request could not be sent or timed out
+     */
+    int recordActions(List<UserAction> actions, List<Match> createdMatches) {
+        try {
+            Map<String, Object> body = new HashMap<>();
+            body.put("actions", actions);
+            String jsonBody = objectMapper.writeValueAsString(body);
+
+            HttpRequest request = HttpRequest.newBuilder()
+                    .uri(URI.create(SupabaseConfig.getRestUrl() + "/rpc/record_actions"))
+                    .timeout(RECORD_ACTIONS_TIMEOUT)
+                    .header("apikey", SupabaseConfig.getSupabaseKey())
+                    .header("Authorization", "Bearer " + sessionManager.getAccessToken())
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(jsonBody))
+                    .build();
+
+            HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() == 200) {
+                createdMatches.addAll(objectMapper.readValue(
+                        response.body(),
+                        new TypeReference<List<Match>>() {
+                        }
+                ));
+            }
+            return response.statusCode();
+        } catch (Exception e) {
+            e.printStackTrace();
+            return -1;
+        }
+    }
+
+    /**
+     * Get all matches for current user
+     */
+    public CompletableFuture<List<Match>> getMatches() {
         return CompletableFuture.supplyAsync(() -> {
             try {
                 String currentUserId = sessionManager.getCurrentUser().getId();
 
-                Map<String, String> actionData = new HashMap<>();
-                actionData.put("user_id", currentUserId);
-                actionData.put("target_user_id", targetUserId);
-                actionData.put("action", action);
-
-                String jsonBody = objectMapper.writeValueAsString(actionData);
-
                 HttpRequest request = HttpRequest.newBuilder()
-                        .uri(URI.create(SupabaseConfig.getRestUrl() + "/user_actions"))
+                        .uri(URI.create(SupabaseConfig.getRestUrl() + "/matches?or=(user1_id.eq." + currentUserId + ",user2_id.eq." + currentUserId + ")&order=matched_at.desc"))
                         .header("apikey", SupabaseConfig.getSupabaseKey())
                         .header("Authorization", "Bearer " + sessionManager.getAccessToken())
-                        .header("Content-Type", "application/json")
-                        .header("Prefer", "return=minimal")
-                        .POST(HttpRequest.BodyPublishers.ofString(jsonBody))
+                        .GET()
                         .build();
 
                 HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
-                return response.statusCode() == 201;
+
+                if (response.statusCode() == 200) {
+                    List<Match> matches = objectMapper.readValue(
+                            response.body(),
+                            new TypeReference<List<Match>>() {
+                            }
+                    );
+                    sessionManager.getMatchCache().putMatches(matches);
+                    return matches;
+                }
+                return new ArrayList<>();
             } catch (Exception e) {
                 e.printStackTrace();
-                return false;
+                return new ArrayList<>();
             }
         });
     }
 
     /**
-     * Get all matches for current user
+     * Get the inbox of the current user with one call to the get_inbox RPC: all matches, most recent
+     * activity first, each with the other person's card fields, the last message and the unread count
+     * filled in (matchedProfile, lastMessage, unreadCount)
      */
-    public CompletableFuture<List<Match>> getMatches() {
+    public CompletableFuture<List<Match>> getInbox() {
         return CompletableFuture.supplyAsync(() -> {
             try {
-                String currentUserId = sessionManager.getCurrentUser().getId();
-
                 HttpRequest request = HttpRequest.newBuilder()
-                        .uri(URI.create(SupabaseConfig.getRestUrl() + "/matches?or=(user1_id.eq." + currentUserId + ",user2_id.eq." + currentUserId + ")&order=matched_at.desc"))
+                        .uri(URI.create(SupabaseConfig.getRestUrl() + "/rpc/get_inbox"))
                         .header("apikey", SupabaseConfig.getSupabaseKey())
                         .header("Authorization", "Bearer " + sessionManager.getAccessToken())
-                        .GET()
+                        .header("Content-Type", "application/json")
+                        .POST(HttpRequest.BodyPublishers.ofString("{}"))
                         .build();
 
                 HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
 
                 if (response.statusCode() == 200) {
-                    return objectMapper.readValue(
+                    List<InboxEntry> entries = objectMapper.readValue(
                             response.body(),
-                            new TypeReference<List<Match>>() {
+                            new TypeReference<List<InboxEntry>>() {
                             }
                     );
+                    List<Match> matches = new ArrayList<>();
+                    for (InboxEntry entry : entries) {
+                        Match match = new Match();
+                        match.setId(entry.getMatchId());
+                        match.setUser1Id(entry.getUser1Id());
+                        match.setUser2Id(entry.getUser2Id());
+                        match.setMatchedAt(entry.getMatchedAt());
+                        match.setMatchedProfile(entry.getProfile());
+                        match.setLastMessage(entry.getLastMessage());
+                        match.setUnreadCount(entry.getUnreadCount() != null ? entry.getUnreadCount() : 0);
+                        matches.add(match);
+                    }
+                    // Only the card fields of the profiles are known, so they stay out of the profile cache
+                    sessionManager.getMatchCache().putMatches(matches);
+                    return matches;
                 }
                 return new ArrayList<>();
             } catch (Exception e) {
@@ -149,9 +316,14 @@ public class MatchService {
     }
 
     /**
-     * Get profile for a matched user
+     * Get profile for a matched user, from the session cache if it is known already
      */
     public CompletableFuture<Profile> getMatchedProfile(String matchedUserId) {
+        Profile cached = sessionManager.getMatchCache().getProfile(matchedUserId);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+
         return CompletableFuture.supplyAsync(() -> {
             try {
                 HttpRequest request = HttpRequest.newBuilder()
@@ -169,7 +341,9 @@ public class MatchService {
                             new TypeReference<List<Profile>>() {
                             }
                     );
-                    return profiles.isEmpty() ? null : profiles.get(0);
+                    Profile profile = profiles.isEmpty() ? null : profiles.get(0);
+                    sessionManager.getMatchCache().putProfile(profile);
+                    return profile;
                 }
                 return null;
             } catch (Exception e) {
@@ -181,6 +355,236 @@ public class MatchService {
 
     // Helper methods
 
+    /**
+     * Pull profiles created or updated since the pool's watermark and merge them into the local pool.
+     * Every few hours the full list of user IDs is fetched to drop deleted profiles.
+     *
+     * @return The whole pool, or null if the server could not be reached
+     */
+    private List<Profile> syncCandidatePool(String currentUserId, Profile currentProfile) throws Exception {
+        CandidatePoolCache pool = sessionManager.getCandidatePool();
+
+        // The age preference goes into the query as a birthdate range (idx_profiles_birthdate_compatibility),
+        // so candidates outside it are never downloaded. Another preference means another pool.
+        Integer minAge = currentProfile.getPreferredAgeMin();
+        Integer maxAge = currentProfile.getPreferredAgeMax();
+        LocalDate today = LocalDate.now();
+        LocalDate earliest = BirthdateRange.earliest(maxAge, today);
+        LocalDate latest = BirthdateRange.latest(minAge, today);
+        pool.setScope(minAge == null && maxAge == null ? "" : minAge + "-" + maxAge);
+
+        String birthdateFilter = "";
+        if (earliest != null) {
+            birthdateFilter += "&birthdate=gte." + earliest;
+        }
+        if (latest != null) {
+            birthdateFilter += "&birthdate=lte." + latest;
+        }
+
+        String url = SupabaseConfig.getRestUrl() + "/profiles?select=*&user_id=neq." + currentUserId + birthdateFilter;
+        String watermark = pool.getWatermark();
+        if (watermark != null) {
+            // Rows seen before come again within the overlap, merge skips them as unchanged
+            String since = URLEncoder.encode(minusOverlap(watermark), StandardCharsets.UTF_8);
+            String changed = "updated_at.gte." + since + ",created_at.gte." + since;
+            // The lower age limit moves a day per day: people who reached it since the last sync
+            // are new to the pool even if their profile did not change
+            String previousLatest = pool.getLatestBirthdate();
+            if (latest != null && previousLatest != null && latest.isAfter(LocalDate.parse(previousLatest))) {
+                changed += ",birthdate.gt." + previousLatest;
+            }
+            url += "&or=(" + changed + ")";
+        }
+
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create(url))
+                .header("apikey", SupabaseConfig.getSupabaseKey())
+                .header("Authorization", "Bearer " + sessionManager.getAccessToken())
+                .GET()
+                .build();
+
+        HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200) {
+            return null;
+        }
+        pool.merge(objectMapper.readValue(response.body(), new TypeReference<List<Profile>>() {
+        }));
+        pool.setLatestBirthdate(latest != null ? latest.toString() : null);
+        if (earliest != null) {
+            pool.dropBornBefore(earliest);
+        }
+
+        if (pool.needsReconcile()) {
+            HttpRequest idsRequest = HttpRequest.newBuilder()
+                    .uri(URI.create(SupabaseConfig.getRestUrl() + "/profiles?select=user_id&user_id=neq." + currentUserId
+                            + birthdateFilter))
+                    .header("apikey", SupabaseConfig.getSupabaseKey())
+                    .header("Authorization", "Bearer " + sessionManager.getAccessToken())
+                    .GET()
+                    .build();
+
+            HttpResponse<String> idsResponse = httpClient.send(idsRequest, HttpResponse.BodyHandlers.ofString());
+            if (idsResponse.statusCode() == 200) {
+                List<Profile> existing = objectMapper.readValue(idsResponse.body(), new TypeReference<List<Profile>>() {
+                });
+                pool.reconcile(existing.stream().map(Profile::getUserId).collect(Collectors.toSet()));
+            }
+        }
+
+        pool.save();
+        return pool.getProfiles();
+    }
+
+    /**
+     * Read the head of the user's precomputed discover queue.
+     * Candidates come from the local pool and are checked against the viewer's current preferences,
+     * so users actioned or changed into incompatibility since the queue was computed are skipped.
+     * A queue computed before the viewer's last profile change is not used at all.
+     *
+     * @return The queued profiles in order, empty if there is no usable queue or it is used up
+     */
+    private List<Profile> readDiscoverQueue(Profile currentProfile, List<Profile> pool, ActionedUserSet actionedUsers) {
+        String currentUserId = currentProfile.getUserId();
+        try {
+            HttpRequest stateRequest = HttpRequest.newBuilder()
+                    .uri(URI.create(SupabaseConfig.getRestUrl() + "/discover_queue_state?user_id=eq." + currentUserId
+                            + "&select=computed_at"))
+                    .header("apikey", SupabaseConfig.getSupabaseKey())
+                    .header("Authorization", "Bearer " + sessionManager.getAccessToken())
+                    .GET()
+                    .build();
+
+            HttpResponse<String> stateResponse = httpClient.send(stateRequest, HttpResponse.BodyHandlers.ofString());
+            if (stateResponse.statusCode() != 200) {
+                return new ArrayList<>();
+            }
+            List<DiscoverQueueState> states = objectMapper.readValue(
+                    stateResponse.body(),
+                    new TypeReference<List<DiscoverQueueState>>() {
+                    }
+            );
+            // Preferences changed since: the queue may leave out candidates that are compatible now
+            if (states.isEmpty() || isAfter(currentProfile.getUpdatedAt(), states.get(0).getComputedAt())) {
+                return new ArrayList<>();
+            }
+
+            HttpRequest request = HttpRequest.newBuilder()
+                    .uri(URI.create(SupabaseConfig.getRestUrl() + "/discover_queue?user_id=eq." + currentUserId
+                            + "&select=candidate_id&order=position.asc&limit=" + DISCOVER_QUEUE_PAGE_SIZE))
+                    .header("apikey", SupabaseConfig.getSupabaseKey())
+                    .header("Authorization", "Bearer " + sessionManager.getAccessToken())
+                    .GET()
+                    .build();
+
+            HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() != 200) {
+                return new ArrayList<>();
+            }
+            List<DiscoverQueueEntry> entries = objectMapper.readValue(
+                    response.body(),
+                    new TypeReference<List<DiscoverQueueEntry>>() {
+                    }
+            );
+
+            // Compatibility, age range and actioned users, checked on the fresh pool
+            CandidateStore store = CandidateStore.of(pool);
+            Map<String, Profile> eligibleById = new HashMap<>();
+            for (int row : store.filterCompatible(currentProfile, actionedUsers)) {
+                Profile profile = store.getProfile(row);
+                eligibleById.put(profile.getUserId(), profile);
+            }
+
+            List<Profile> queued = new ArrayList<>();
+            for (DiscoverQueueEntry entry : entries) {
+                Profile profile = eligibleById.get(entry.getCandidateId());
+                if (profile != null) {
+                    queued.add(profile);
+                }
+            }
+            return queued;
+        } catch (Exception e) {
+            // The local ranking works without the queue
+            e.printStackTrace();
+            return new ArrayList<>();
+        }
+    }
+
+    /**
+     * The watermark moved back by SYNC_OVERLAP, unchanged if it cannot be parsed
+     */
+    private static String minusOverlap(String watermark) {
+        try {
+            return OffsetDateTime.parse(watermark).minus(SYNC_OVERLAP).toString();
+        } catch (Exception e) {
+            return watermark;
+        }
+    }
+
+    /**
+     * Whether the first timestamp is after the second; false if either is missing or unreadable
+     */
+    private static boolean isAfter(String timestamp, String than) {
+        try {
+            return timestamp != null && than != null && OffsetDateTime.parse(timestamp).isAfter(OffsetDateTime.parse(than));
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    /**
+     * Remember profiles that are already in ranked order
+     */
+    private void rememberRankedResult(List<Profile> ranked) {
+        CandidateStore store = CandidateStore.of(ranked);
+        int[] ranking = new int[store.size()];
+        Arrays.setAll(ranking, row -> row);
+        rememberDiscoverResult(store, ranking);
+    }
+
+    private synchronized void rememberDiscoverResult(CandidateStore store, int[] ranking) {
+        discoverStore = store;
+        discoverIndex = CandidateIndex.of(store);
+        discoverRanking = ranking;
+        actionedRows.clear();
+    }
+
+    /**
+     * Hide the user from the last discover result
+     *
+     * @return The user's profile from that result, or null
+     */
+    private synchronized Profile markActioned(String targetUserId) {
+        if (discoverStore != null) {
+            int row = discoverStore.getRow(targetUserId);
+            if (row >= 0) {
+                actionedRows.set(row);
+                return discoverStore.getProfile(row);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Undo the local bookkeeping of a swipe the server rejected
+     */
+    private void forgetAction(String targetUserId) {
+        ActionedUserSet actionedUsers = sessionManager.getActionedUsers();
+        if (actionedUsers.remove(targetUserId)) {
+            actionedUsers.save();
+        }
+        DiscoverSession discoverSession = sessionManager.getDiscoverSession();
+        discoverSession.rewind(targetUserId);
+        discoverSession.save();
+        synchronized (this) {
+            if (discoverStore != null) {
+                int row = discoverStore.getRow(targetUserId);
+                if (row >= 0) {
+                    actionedRows.clear(row);
+                }
+            }
+        }
+    }
+
     private Profile getCurrentUserProfile() {
         try {
             String currentUserId = sessionManager.getCurrentUser().getId();
@@ -209,10 +613,22 @@ public class MatchService {
         }
     }
 
-    private Set<String> getActionedUserIds(String currentUserId) {
+    /**
+     * Pull the user's actions created since the local set's watermark and merge them.
+     * Only new rows are downloaded; swipes from this device are already in the set.
+     */
+    private ActionedUserSet syncActionedUsers(String currentUserId) {
+        ActionedUserSet actionedUsers = sessionManager.getActionedUsers();
         try {
+            String url = SupabaseConfig.getRestUrl() + "/user_actions?user_id=eq." + currentUserId
+                    + "&select=target_user_id,action,created_at&order=created_at.asc";
+            if (actionedUsers.getWatermark() != null) {
+                // Rows seen before come again within the overlap, merging them changes nothing
+                url += "&created_at=gte." + URLEncoder.encode(minusOverlap(actionedUsers.getWatermark()), StandardCharsets.UTF_8);
+            }
+
             HttpRequest request = HttpRequest.newBuilder()
-                    .uri(URI.create(SupabaseConfig.getRestUrl() + "/user_actions?user_id=eq." + currentUserId + "&select=target_user_id"))
+                    .uri(URI.create(url))
                     .header("apikey", SupabaseConfig.getSupabaseKey())
                     .header("Authorization", "Bearer " + sessionManager.getAccessToken())
                     .GET()
@@ -226,55 +642,63 @@ public class MatchService {
                         new TypeReference<List<UserAction>>() {
                         }
                 );
-                return actions.stream()
-                        .map(UserAction::getTargetUserId)
-                        .collect(Collectors.toSet());
+                if (!actions.isEmpty() && actionedUsers.merge(actions, actions.get(actions.size() - 1).getCreatedAt())) {
+                    actionedUsers.save();
+                }
             }
-            return new HashSet<>();
         } catch (Exception e) {
+            // Fall back to what is known locally
             e.printStackTrace();
-            return new HashSet<>();
         }
+        return actionedUsers;
     }
 
-    private boolean isCompatible(Profile currentProfile, Profile otherProfile) {
-        String currentLookingFor = currentProfile.getLookingFor(); // What current user wants
-        String currentInterestedIn = currentProfile.getInterestedIn(); // Gender preference
-        String otherLookingFor = otherProfile.getLookingFor();
-        String otherInterestedIn = otherProfile.getInterestedIn();
-        String currentGender = currentProfile.getGender();
-        String otherGender = otherProfile.getGender();
-
-        // Check if looking_for is compatible (Friends, Dates, or Both)
-        boolean lookingForMatch = isLookingForCompatible(currentLookingFor, otherLookingFor);
-
-        // Check gender preferences
-        boolean genderMatch = isGenderCompatible(currentInterestedIn, otherGender) &&
-                isGenderCompatible(otherInterestedIn, currentGender);
-
-        return lookingForMatch && genderMatch;
-    }
-
-    private boolean isLookingForCompatible(String lookingFor1, String lookingFor2) {
-        // "Both" is compatible with everything
-        if ("Both".equals(lookingFor1) || "Both".equals(lookingFor2)) {
+    /**
+     * Drop the expired passes, which no longer exclude anyone; the server compacts them away as well
+     *
+     * @return Whether a pass expired
+     */
+    private boolean expirePasses(ActionedUserSet actionedUsers) {
+        if (actionedUsers.expirePasses(getPassExpiry())) {
+            actionedUsers.save();
             return true;
         }
-        // Otherwise they must match
-        return lookingFor1.equals(lookingFor2);
+        return false;
     }
 
-    private boolean isGenderCompatible(String interestedIn, String gender) {
-        return "Everyone".equals(interestedIn) || interestedIn.equals(gender);
-    }
+    /**
+     * How long a pass hides a profile, from action_settings (cached for the session)
+     */
+    private Duration getPassExpiry() {
+        Duration passExpiry = sessionManager.getPassExpiry();
+        if (passExpiry != null) {
+            return passExpiry;
+        }
+        try {
+            HttpRequest request = HttpRequest.newBuilder()
+                    .uri(URI.create(SupabaseConfig.getRestUrl() + "/action_settings?select=pass_expiry_days"))
+                    .header("apikey", SupabaseConfig.getSupabaseKey())
+                    .header("Authorization", "Bearer " + sessionManager.getAccessToken())
+                    .GET()
+                    .build();
 
-    private int countSharedInterests(Profile p1, Profile p2) {
-        if (p1.getInterests() == null || p2.getInterests() == null) {
-            return 0;
+            HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() == 200) {
+                List<Map<String, Integer>> settings = objectMapper.readValue(
+                        response.body(),
+                        new TypeReference<List<Map<String, Integer>>>() {
+                        }
+                );
+                if (!settings.isEmpty() && settings.get(0).get("pass_expiry_days") != null) {
+                    passExpiry = Duration.ofDays(settings.get(0).get("pass_expiry_days"));
+                    sessionManager.setPassExpiry(passExpiry);
+                    return passExpiry;
+                }
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
         }
-        Set<String> interests1 = new HashSet<>(p1.getInterests());
-        Set<String> interests2 = new HashSet<>(p2.getInterests());
-        interests1.retainAll(interests2);
-        return interests1.size();
+        // Not cached, so the next load tries again
+        return DEFAULT_PASS_EXPIRY;
     }
 }
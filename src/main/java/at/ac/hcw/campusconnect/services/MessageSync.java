@@ -0,0 +1,393 @@
+package at.ac.hcw.campusconnect.services;
+
+import at.ac.hcw.campusconnect.config.SupabaseConfig;
+import at.ac.hcw.campusconnect.models.Message;
+import at.ac.hcw.campusconnect.util.MessageWindow;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.OffsetDateTime;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Incremental message sync over all of the user's matches.
+ * <p>
+ * One cursor, the (created_at, id) of the newest message seen, covers every conversation: a poll
+ * asks for the messages since a minute before it in a single request, and drops the ones
+ * it already reported. An opened conversation is a MessageWindow: it starts with the latest page, or the page
+ * around the first unread message, and grows page by page as the user scrolls. New messages from
+ * polls and realtime pushes go into windows at the live end, and callers only get the messages
+ * that are new to them.
+ */
+public class MessageSync {
+    private static final int POLL_LIMIT = 500;
+    // created_at is set when the transaction starts, not when it commits: a message can become
+    // visible after newer ones, so polls look this far behind the cursor and drop the repeats.
+    // Accepted trade-off: a message whose insert stays uncommitted for longer than this is not
+    // polled. Realtime still pushes it while connected, otherwise it only appears once its
+    // conversation is loaded again.
+    private static final long POLL_OVERLAP_SECONDS = 60;
+    public static final int PAGE_SIZE = 50;
+    // Bounds the messages kept per conversation, however far the user scrolls
+    private static final int WINDOW_CAPACITY = 500;
+
+    private final SessionManager sessionManager;
+    private final ChatService chatService;
+    private final HttpClient httpClient;
+    private final ObjectMapper objectMapper;
+
+    // Opened conversations by match ID
+    private final Map<String, MessageWindow> windows = new HashMap<>();
+    // Reported messages a poll can still return, i.e. those within the overlap behind the cursor:
+    // created_at by ID, in the order they were reported
+    private final LinkedHashMap<String, OffsetDateTime> recentIds = new LinkedHashMap<>();
+    private Message cursor;
+    // Oldest message whose ID is known from the first read, polls start after it
+    private Message pollFloor;
+    private boolean cursorInitialized;
+
+    public MessageSync(SessionManager sessionManager) {
+        this.sessionManager = sessionManager;
+        this.chatService = new ChatService(sessionManager);
+        this.httpClient = HttpClient.newHttpClient();
+        this.objectMapper = new ObjectMapper();
+    }
+
+    /**
+     * The window of a conversation, with the first pages loaded on first use and kept current by poll afterwards
+     *
+     * @return The window, or null if it could not be loaded
+     */
+    public CompletableFuture<MessageWindow> loadConversation(String matchId) {
+        synchronized (this) {
+            MessageWindow loaded = windows.get(matchId);
+            if (loaded != null) {
+                return CompletableFuture.completedFuture(loaded);
+            }
+        }
+        return CompletableFuture.supplyAsync(() -> {
+            // The cursor is placed before the pages are read, so nothing can fall between the two
+            if (!initializeCursor()) {
+                return null;
+            }
+            MessageWindow window = loadFirstPages(matchId);
+            if (window == null) {
+                return null;
+            }
+            synchronized (this) {
+                return windows.computeIfAbsent(matchId, id -> window);
+            }
+        });
+    }
+
+    /**
+     * Load the page before the window's first message
+     *
+     * @return Number of messages added, or -1 if the request failed
+     */
+    public CompletableFuture<Integer> loadOlder(String matchId, MessageWindow window) {
+        Message first = window.first();
+        return chatService.getMessagesBefore(matchId, first, PAGE_SIZE).thenApply(page -> {
+            if (page == null) {
+                return -1;
+            }
+            window.prependOlder(page, page.size() < PAGE_SIZE);
+            return page.size();
+        });
+    }
+
+    /**
+     * Load the page after the window's last message, until it reaches the live end again
+     *
+     * @return Number of messages dropped at the older end, or -1 if the request failed
+     */
+    public CompletableFuture<Integer> loadNewer(String matchId, MessageWindow window) {
+        Message last = window.last();
+        return chatService.getMessagesAfter(matchId, last, PAGE_SIZE).thenApply(page -> {
+            if (page == null) {
+                return -1;
+            }
+            return window.appendNewer(page, page.size() < PAGE_SIZE);
+        });
+    }
+
+    /**
+     * Mark the conversation as read on the server and in its window, so reopening it
+     * starts at the bottom instead of the message that was unread when it was loaded
+     */
+    public CompletableFuture<Boolean> markConversationRead(String matchId) {
+        String currentUserId = sessionManager.getCurrentUser().getId();
+        return chatService.markMessagesAsRead(matchId).thenApply(success -> {
+            if (Boolean.TRUE.equals(success)) {
+                MessageWindow window;
+                synchronized (this) {
+                    window = windows.get(matchId);
+                }
+                if (window != null) {
+                    window.markRead(currentUserId);
+                }
+            }
+            return success;
+        });
+    }
+
+    /**
+     * Forget the window of a conversation, the next loadConversation starts over with its first pages
+     */
+    public synchronized void closeConversation(String matchId) {
+        windows.remove(matchId);
+    }
+
+    /**
+     * Fetch the messages after the cursor across all matches and merge them
+     *
+     * @param active Checked before each page is merged; once it is false the rest is left for the
+     *               next poll, so a caller that went away does not consume messages it never shows
+     * @return New messages by match ID, in order; empty if nothing arrived
+     */
+    public CompletableFuture<Map<String, List<Message>>> poll(BooleanSupplier active) {
+        return CompletableFuture.supplyAsync(() -> {
+            Map<String, List<Message>> added = new HashMap<>();
+            try {
+                if (!initializeCursor()) {
+                    return added;
+                }
+                // Pages until a short page, so a long offline period is caught up in one poll
+                String filter = pollFilter();
+                List<Message> page;
+                do {
+                    page = fetch("&limit=" + POLL_LIMIT + filter);
+                    if (page == null || page.isEmpty()) {
+                        break;
+                    }
+                    synchronized (this) {
+                        if (!active.getAsBoolean()) {
+                            break;
+                        }
+                        merge(page, added);
+                    }
+                    filter = ChatService.keysetFilter(page.get(page.size() - 1), true);
+                } while (page.size() == POLL_LIMIT);
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+            return added;
+        });
+    }
+
+    /**
+     * Add a message that did not come from a poll (sent from this device or pushed by realtime),
+     * so the poll that returns it again does not report it.
+     * The cursor is left alone: other messages may still be on their way before it.
+     *
+     * @return Whether the message was new
+     */
+    public synchronized boolean addMessage(Message message) {
+        if (message.getId() == null || !isNew(message)) {
+            return false;
+        }
+        MessageWindow window = windows.get(message.getMatchId());
+        if (window != null) {
+            window.addLive(message);
+        }
+        forgetOldIds();
+        return true;
+    }
+
+    /**
+     * The page around the first unread message, so the chat opens where the user left off,
+     * or the latest page if everything has been read
+     */
+    private MessageWindow loadFirstPages(String matchId) {
+        Message firstUnread = chatService.getFirstUnreadMessage(matchId).join();
+        if (firstUnread == null) {
+            List<Message> latest = chatService.getMessagesBefore(matchId, null, PAGE_SIZE).join();
+            return latest != null ? new MessageWindow(WINDOW_CAPACITY, latest, latest.size() == PAGE_SIZE, false) : null;
+        }
+
+        List<Message> older = chatService.getMessagesBefore(matchId, firstUnread, PAGE_SIZE / 2).join();
+        List<Message> newer = chatService.getMessagesAfter(matchId, firstUnread, PAGE_SIZE).join();
+        if (older == null || newer == null) {
+            return null;
+        }
+        List<Message> pages = new ArrayList<>(older);
+        pages.add(firstUnread);
+        pages.addAll(newer);
+        return new MessageWindow(WINDOW_CAPACITY, pages, older.size() == PAGE_SIZE / 2, newer.size() == PAGE_SIZE);
+    }
+
+    /**
+     * Place the cursor at the newest existing message, once per session.
+     * The IDs of the latest messages are remembered as already seen; if there are more of them
+     * within the overlap than one request returns, polls start after the oldest one read.
+     * Older messages come with the conversation history instead of the polls.
+     *
+     * @return Whether the cursor is ready
+     */
+    private boolean initializeCursor() {
+        synchronized (this) {
+            if (cursorInitialized) {
+                return true;
+            }
+        }
+        try {
+            HttpRequest request = HttpRequest.newBuilder()
+                    .uri(URI.create(SupabaseConfig.getRestUrl() + "/messages?select=id,created_at&order=created_at.desc,id.desc&limit=" + POLL_LIMIT))
+                    .header("apikey", SupabaseConfig.getSupabaseKey())
+                    .header("Authorization", "Bearer " + sessionManager.getAccessToken())
+                    .GET()
+                    .build();
+
+            HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() != 200) {
+                return false;
+            }
+            List<Message> newest = objectMapper.readValue(response.body(), new TypeReference<List<Message>>() {
+            });
+            synchronized (this) {
+                if (!cursorInitialized) {
+                    cursorInitialized = true;
+                    if (!newest.isEmpty()) {
+                        advanceCursor(newest.get(0));
+                    }
+                    // Existing messages, so the overlap of the first poll does not report them as new
+                    for (int i = newest.size() - 1; i >= 0; i--) {
+                        remember(newest.get(i));
+                    }
+                    if (newest.size() == POLL_LIMIT) {
+                        pollFloor = newest.get(newest.size() - 1);
+                    }
+                    forgetOldIds();
+                }
+            }
+            return true;
+        } catch (Exception e) {
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    /**
+     * Messages in (created_at, id) order, RLS limits them to the user's own conversations
+     *
+     * @param filter Extra query parameters
+     * @return The messages, or null if the request failed
+     */
+    private List<Message> fetch(String filter) throws Exception {
+        String url = SupabaseConfig.getRestUrl() + "/messages?select=*&order=created_at.asc,id.asc" + filter;
+
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create(url))
+                .header("apikey", SupabaseConfig.getSupabaseKey())
+                .header("Authorization", "Bearer " + sessionManager.getAccessToken())
+                .GET()
+                .build();
+
+        HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200) {
+            return null;
+        }
+        return objectMapper.readValue(response.body(), new TypeReference<List<Message>>() {
+        });
+    }
+
+    /**
+     * Merge polled messages into the opened windows and advance the cursor
+     *
+     * @param added Receives the messages not seen before, by match ID
+     */
+    private void merge(List<Message> messages, Map<String, List<Message>> added) {
+        for (Message message : messages) {
+            advanceCursor(message);
+            if (message.getId() == null || !isNew(message)) {
+                continue;
+            }
+            MessageWindow window = windows.get(message.getMatchId());
+            if (window != null) {
+                window.addLive(message);
+            }
+            added.computeIfAbsent(message.getMatchId(), id -> new ArrayList<>()).add(message);
+        }
+        forgetOldIds();
+    }
+
+    /**
+     * Whether the message has not been reported yet; messages read with a window's pages already were
+     */
+    private boolean isNew(Message message) {
+        MessageWindow window = windows.get(message.getMatchId());
+        if (window != null && window.contains(message.getId())) {
+            return false;
+        }
+        return remember(message);
+    }
+
+    private boolean remember(Message message) {
+        return recentIds.putIfAbsent(message.getId(), parse(message.getCreatedAt())) == null;
+    }
+
+    /**
+     * Drop the IDs from before the overlap, no poll returns those messages again.
+     * IDs are reported nearly in created_at order, a few stragglers behind a newer one are simply kept longer.
+     */
+    private void forgetOldIds() {
+        OffsetDateTime cutoff = cursor != null ? parse(cursor.getCreatedAt()) : null;
+        if (cutoff == null) {
+            return;
+        }
+        cutoff = cutoff.minusSeconds(POLL_OVERLAP_SECONDS);
+        Iterator<OffsetDateTime> iterator = recentIds.values().iterator();
+        while (iterator.hasNext()) {
+            OffsetDateTime createdAt = iterator.next();
+            if (createdAt != null && !createdAt.isBefore(cutoff)) {
+                break;
+            }
+            iterator.remove();
+        }
+    }
+
+    /**
+     * Query parameters for a poll: from a little before the cursor's created_at, see POLL_OVERLAP_SECONDS,
+     * but not before the messages whose IDs are known
+     */
+    private synchronized String pollFilter() {
+        if (cursor == null) {
+            return "";
+        }
+        OffsetDateTime from = parse(cursor.getCreatedAt());
+        if (from == null) {
+            return ChatService.keysetFilter(cursor, true);
+        }
+        from = from.minusSeconds(POLL_OVERLAP_SECONDS);
+        if (pollFloor != null) {
+            OffsetDateTime floor = parse(pollFloor.getCreatedAt());
+            if (floor == null || !floor.isBefore(from)) {
+                return ChatService.keysetFilter(pollFloor, true);
+            }
+            pollFloor = null; // The overlap has moved past it
+        }
+        return "&created_at=gte." + URLEncoder.encode(from.toString(), StandardCharsets.UTF_8);
+    }
+
+    private static OffsetDateTime parse(String timestamp) {
+        try {
+            return timestamp != null ? OffsetDateTime.parse(timestamp) : null;
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    private void advanceCursor(Message message) {
+        if (message.getCreatedAt() != null && (cursor == null || MessageWindow.ORDER.compare(message, cursor) > 0)) {
+            cursor = message;
+        }
+    }
+}
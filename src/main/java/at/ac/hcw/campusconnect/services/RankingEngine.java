@@ -0,0 +1,69 @@
+package at.ac.hcw.campusconnect.services;
+
+import at.ac.hcw.campusconnect.config.RankingConfig;
+import at.ac.hcw.campusconnect.models.Profile;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Ranks the discover candidates of a CandidateStore with a set of weighted scorers.
+ * <p>
+ * The pool is filtered for the viewer first (compatibility, actioned users); then every scorer
+ * adds its weighted points to the remaining rows in its own pass over the columns, and the
+ * rows are sorted by total score, most first. Candidates with equal scores keep their pool order.
+ */
+public class RankingEngine {
+    private final List<Scorer> scorers = new ArrayList<>();
+    private final List<Integer> weights = new ArrayList<>();
+
+    /**
+     * Engine with the built-in scorers and their configured weights
+     */
+    public static RankingEngine withDefaults() {
+        RankingEngine engine = new RankingEngine();
+        Scorers.builtIn().forEach(engine::add);
+        return engine;
+    }
+
+    /**
+     * Add a scorer with its configured weight (see RankingConfig)
+     */
+    public RankingEngine add(Scorer scorer) {
+        return add(scorer, RankingConfig.getWeight(scorer.getName(), scorer.getDefaultWeight()));
+    }
+
+    /**
+     * Add a scorer with an explicit weight, scorers with weight 0 are skipped
+     */
+    public RankingEngine add(Scorer scorer, int weight) {
+        if (weight < 0) {
+            throw new IllegalArgumentException("Ranking weight must not be negative: " + scorer.getName());
+        }
+        if (weight > 0) {
+            scorers.add(scorer);
+            weights.add(weight);
+        }
+        return this;
+    }
+
+    public List<Scorer> getScorers() {
+        return List.copyOf(scorers);
+    }
+
+    /**
+     * Filter the pool for the viewer and rank it by total score
+     *
+     * @param viewer The current user's profile
+     * @param actionedUsers Users that must not show up (already liked or passed)
+     * @return Rows of the matching candidates in ranked order
+     */
+    public int[] rank(CandidateStore store, Profile viewer, ActionedUserSet actionedUsers) {
+        int[] rows = store.filterCompatible(viewer, actionedUsers);
+        int[] scores = new int[store.size()];
+        for (int i = 0; i < scorers.size(); i++) {
+            scorers.get(i).score(store, viewer, rows, weights.get(i), scores);
+        }
+        return store.sortByScoreDescending(rows, scores);
+    }
+}
@@ -0,0 +1,400 @@
+package at.ac.hcw.campusconnect.services;
+
+import at.ac.hcw.campusconnect.models.Match;
+import at.ac.hcw.campusconnect.models.Message;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.WebSocket;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Push subscription to new messages and matches of the signed-in user over Supabase Realtime
+ * (Phoenix channel protocol, JSON serializer 1.0.0) on a java.net.http WebSocket.
+ * <p>
+ * One channel subscribes to inserts on messages (as sender and as receiver) and on matches
+ * (as either user). A heartbeat goes out every 25 seconds; a heartbeat without reply means the
+ * connection is dead. Lost connections are reopened with backoff and the channel is joined again.
+ * Realtime does not replay what was missed in between, so status listeners are told when the
+ * subscription is live again and catch up through their regular sync (MessageSync cursor).
+ * While it is not live, callers keep polling at their normal rate (see isLive).
+ * <p>
+ * All connection state is owned by one scheduler thread; listeners are called on it as well.
+ */
+public class RealtimeClient {
+    private static final long HEARTBEAT_INTERVAL_MILLIS = 25_000;
+    private static final long[] RECONNECT_DELAYS_MILLIS = {1_000, 2_000, 5_000, 10_000, 30_000};
+    private static final String TOPIC = "realtime:campusconnect";
+
+    private final String url;
+    private final String apiKey;
+    private final String userId;
+    private final Supplier<String> accessToken;
+    private final HttpClient httpClient;
+    private final ObjectMapper objectMapper;
+    private final ScheduledExecutorService scheduler;
+
+    private final List<Consumer<Message>> messageListeners = new CopyOnWriteArrayList<>();
+    private final List<Consumer<Match>> matchListeners = new CopyOnWriteArrayList<>();
+    private final List<Consumer<Boolean>> statusListeners = new CopyOnWriteArrayList<>();
+
+    // Scheduler thread only
+    private WebSocket webSocket;
+    private int generation; // Callbacks of replaced connections are ignored
+    private ScheduledFuture<?> heartbeat;
+    private int ref;
+    private String joinRef;
+    private String pendingHeartbeatRef;
+    private String joinedAccessToken;
+    private int attempt;
+    private boolean running;
+
+    private volatile boolean live;
+
+    /**
+     * @param url WebSocket URL of the realtime endpoint, e.g. wss://project.supabase.co/realtime/v1/websocket
+     * @param apiKey The anon key
+     * @param userId The signed-in user, only their rows are subscribed to
+     * @param accessToken Current access token, RLS decides which rows are delivered
+     */
+    public RealtimeClient(String url, String apiKey, String userId, Supplier<String> accessToken) {
+        this.url = url;
+        this.apiKey = apiKey;
+        this.userId = userId;
+        this.accessToken = accessToken;
+        this.httpClient = HttpClient.newHttpClient();
+        this.objectMapper = new ObjectMapper().configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "realtime");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public void start() {
+        scheduler.execute(() -> {
+            if (!running) {
+                running = true;
+                connect();
+            }
+        });
+    }
+
+    /**
+     * Close the connection for good, e.g. on sign out
+     */
+    public void shutdown() {
+        scheduler.execute(() -> {
+            running = false;
+            closeConnection();
+            setLive(false);
+        });
+        scheduler.shutdown();
+    }
+
+    /**
+     * Whether pushes are currently arriving; if not, callers should poll
+     */
+    public boolean isLive() {
+        return live;
+    }
+
+    public void addMessageListener(Consumer<Message> listener) {
+        messageListeners.add(listener);
+    }
+
+    public void removeMessageListener(Consumer<Message> listener) {
+        messageListeners.remove(listener);
+    }
+
+    public void addMatchListener(Consumer<Match> listener) {
+        matchListeners.add(listener);
+    }
+
+    public void removeMatchListener(Consumer<Match> listener) {
+        matchListeners.remove(listener);
+    }
+
+    /**
+     * Called with true when the subscription (re)joined, which is the moment to catch up, and false when it was lost
+     */
+    public void addStatusListener(Consumer<Boolean> listener) {
+        statusListeners.add(listener);
+    }
+
+    public void removeStatusListener(Consumer<Boolean> listener) {
+        statusListeners.remove(listener);
+    }
+
+    private void connect() {
+        if (!running) {
+            return;
+        }
+        int connection = ++generation;
+        URI uri = URI.create(url + "?apikey=" + URLEncoder.encode(apiKey, StandardCharsets.UTF_8) + "&vsn=1.0.0");
+        httpClient.newWebSocketBuilder()
+                .connectTimeout(Duration.ofSeconds(10))
+                .buildAsync(uri, new Connection(connection))
+                .whenComplete((socket, error) -> execute(() -> {
+                    if (connection != generation) {
+                        return;
+                    }
+                    if (error != null) {
+                        System.err.println("Realtime connection failed: " + error.getMessage());
+                        scheduleReconnect();
+                    } else {
+                        opened(socket);
+                    }
+                }));
+    }
+
+    private void opened(WebSocket socket) {
+        webSocket = socket;
+        pendingHeartbeatRef = null;
+        join();
+        heartbeat = scheduler.scheduleAtFixedRate(this::sendHeartbeat,
+                HEARTBEAT_INTERVAL_MILLIS, HEARTBEAT_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    private void join() {
+        ObjectNode config = objectMapper.createObjectNode();
+        ArrayNode changes = config.putArray("postgres_changes");
+        addInsertSubscription(changes, "messages", "receiver_id");
+        addInsertSubscription(changes, "messages", "sender_id");
+        addInsertSubscription(changes, "matches", "user1_id");
+        addInsertSubscription(changes, "matches", "user2_id");
+
+        joinedAccessToken = accessToken.get();
+        ObjectNode payload = objectMapper.createObjectNode();
+        payload.set("config", config);
+        payload.put("access_token", joinedAccessToken);
+
+        joinRef = nextRef();
+        send("phx_join", TOPIC, payload, joinRef);
+    }
+
+    private void addInsertSubscription(ArrayNode changes, String table, String userColumn) {
+        // One filter per subscription is all postgres_changes supports
+        changes.addObject()
+                .put("event", "INSERT")
+                .put("schema", "public")
+                .put("table", table)
+                .put("filter", userColumn + "=eq." + userId);
+    }
+
+    private void sendHeartbeat() {
+        if (webSocket == null) {
+            return;
+        }
+        if (pendingHeartbeatRef != null) {
+            // The last heartbeat was never answered, the connection is gone even if no close arrived
+            System.err.println("Realtime heartbeat timed out, reconnecting");
+            connectionLost();
+            return;
+        }
+        pendingHeartbeatRef = nextRef();
+        send("heartbeat", "phoenix", objectMapper.createObjectNode(), pendingHeartbeatRef);
+
+        // Hand a refreshed token to the channel, otherwise the server ends it when the old one expires
+        String token = accessToken.get();
+        if (live && token != null && !token.equals(joinedAccessToken)) {
+            joinedAccessToken = token;
+            send("access_token", TOPIC, objectMapper.createObjectNode().put("access_token", token), nextRef());
+        }
+    }
+
+    private void handle(String text) {
+        JsonNode message;
+        try {
+            message = objectMapper.readTree(text);
+        } catch (Exception e) {
+            e.printStackTrace();
+            return;
+        }
+        String event = message.path("event").asText();
+        String messageRef = message.path("ref").asText(null);
+        JsonNode payload = message.path("payload");
+
+        switch (event) {
+            case "phx_reply" -> {
+                if (messageRef != null && messageRef.equals(pendingHeartbeatRef)) {
+                    pendingHeartbeatRef = null;
+                } else if (messageRef != null && messageRef.equals(joinRef)) {
+                    if ("ok".equals(payload.path("status").asText())) {
+                        attempt = 0;
+                        setLive(true);
+                    } else {
+                        System.err.println("Realtime join rejected: " + payload.path("response"));
+                        connectionLost();
+                    }
+                }
+            }
+            case "postgres_changes" -> dispatch(payload.path("data"));
+            case "phx_error", "phx_close" -> {
+                if (TOPIC.equals(message.path("topic").asText())) {
+                    connectionLost();
+                }
+            }
+            default -> {
+                // system and presence events are not used
+            }
+        }
+    }
+
+    private void dispatch(JsonNode data) {
+        if (!"INSERT".equals(data.path("type").asText())) {
+            return;
+        }
+        try {
+            JsonNode record = data.path("record");
+            switch (data.path("table").asText()) {
+                case "messages" -> {
+                    Message message = objectMapper.treeToValue(record, Message.class);
+                    messageListeners.forEach(listener -> listener.accept(message));
+                }
+                case "matches" -> {
+                    Match match = objectMapper.treeToValue(record, Match.class);
+                    matchListeners.forEach(listener -> listener.accept(match));
+                }
+                default -> {
+                }
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    private void connectionLost() {
+        closeConnection();
+        setLive(false);
+        scheduleReconnect();
+    }
+
+    private void closeConnection() {
+        generation++;
+        if (heartbeat != null) {
+            heartbeat.cancel(false);
+            heartbeat = null;
+        }
+        if (webSocket != null) {
+            webSocket.abort();
+            webSocket = null;
+        }
+        pendingHeartbeatRef = null;
+        joinRef = null;
+    }
+
+    /**
+     * Exponential-ish backoff with jitter, so clients do not all come back at the same moment
+     */
+    private void scheduleReconnect() {
+        if (!running) {
+            return;
+        }
+        long delay = RECONNECT_DELAYS_MILLIS[Math.min(attempt, RECONNECT_DELAYS_MILLIS.length - 1)];
+        delay += ThreadLocalRandom.current().nextLong(delay / 2 + 1);
+        attempt++;
+        scheduler.schedule(this::connect, delay, TimeUnit.MILLISECONDS);
+    }
+
+    private void setLive(boolean live) {
+        if (this.live != live) {
+            this.live = live;
+            statusListeners.forEach(listener -> listener.accept(live));
+        }
+    }
+
+    private void send(String event, String topic, JsonNode payload, String messageRef) {
+        ObjectNode message = objectMapper.createObjectNode();
+        message.put("topic", topic);
+        message.put("event", event);
+        message.set("payload", payload);
+        message.put("ref", messageRef);
+        if (joinRef != null && TOPIC.equals(topic)) {
+            message.put("join_ref", joinRef);
+        }
+        // Sends are serialized on the scheduler thread, so one completes before the next starts
+        try {
+            webSocket.sendText(message.toString(), true).get(10, TimeUnit.SECONDS);
+        } catch (Exception e) {
+            System.err.println("Realtime send failed: " + e.getMessage());
+            int connection = generation;
+            execute(() -> {
+                if (connection == generation) {
+                    connectionLost();
+                }
+            });
+        }
+    }
+
+    private String nextRef() {
+        return String.valueOf(++ref);
+    }
+
+    private void execute(Runnable task) {
+        try {
+            scheduler.execute(task);
+        } catch (RejectedExecutionException e) {
+            // Shut down in the meantime
+        }
+    }
+
+    /**
+     * Listener of one connection; text frames can arrive in parts
+     */
+    private class Connection implements WebSocket.Listener {
+        private final int connection;
+        private final StringBuilder partial = new StringBuilder();
+
+        private Connection(int connection) {
+            this.connection = connection;
+        }
+
+        @Override
+        public CompletionStage<?> onText(WebSocket socket, CharSequence data, boolean last) {
+            partial.append(data);
+            if (last) {
+                String text = partial.toString();
+                partial.setLength(0);
+                execute(() -> {
+                    if (connection == generation) {
+                        handle(text);
+                    }
+                });
+            }
+            socket.request(1);
+            return null;
+        }
+
+        @Override
+        public CompletionStage<?> onClose(WebSocket socket, int statusCode, String reason) {
+            execute(() -> {
+                if (connection == generation) {
+                    connectionLost();
+                }
+            });
+            return null;
+        }
+
+        @Override
+        public void onError(WebSocket socket, Throwable error) {
+            execute(() -> {
+                if (connection == generation) {
+                    System.err.println("Realtime connection error: " + error.getMessage());
+                    connectionLost();
+                }
+            });
+        }
+    }
+}
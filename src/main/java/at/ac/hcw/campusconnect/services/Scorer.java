@@ -0,0 +1,35 @@
+package at.ac.hcw.campusconnect.services;
+
+import at.ac.hcw.campusconnect.models.Profile;
+
+/**
+ * One ranking signal of the {@link RankingEngine}.
+ * <p>
+ * A scorer runs as one pass over the precomputed columns of a CandidateStore and adds its
+ * points, multiplied by its weight, to the score of every candidate row. Points should be
+ * small non-negative integers (a handful per candidate): the engine sorts with a counting sort
+ * and only falls back to a comparison sort for large totals.
+ */
+public interface Scorer {
+
+    /**
+     * Name used for the weight in the configuration (RANKING_WEIGHT_&lt;NAME&gt;) and in benchmarks
+     */
+    String getName();
+
+    /**
+     * Weight used when none is configured
+     */
+    int getDefaultWeight();
+
+    /**
+     * Add weight * points to scores[row] for each of the given rows
+     *
+     * @param store The candidate pool
+     * @param viewer The profile the candidates are ranked for
+     * @param rows Rows of the candidates to score
+     * @param weight Multiplier for the points, at least 1
+     * @param scores Score per row of the store
+     */
+    void score(CandidateStore store, Profile viewer, int[] rows, int weight, int[] scores);
+}
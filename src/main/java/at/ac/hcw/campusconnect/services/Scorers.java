@@ -0,0 +1,128 @@
+package at.ac.hcw.campusconnect.services;
+
+import at.ac.hcw.campusconnect.models.Profile;
+
+import java.util.List;
+
+/**
+ * The built-in profile based scorers
+ */
+public final class Scorers {
+
+    /**
+     * One point per interest the candidate shares with the viewer
+     */
+    public static final Scorer SHARED_INTERESTS = new Scorer() {
+        @Override
+        public String getName() {
+            return "shared_interests";
+        }
+
+        @Override
+        public int getDefaultWeight() {
+            return 1;
+        }
+
+        @Override
+        public void score(CandidateStore store, Profile viewer, int[] rows, int weight, int[] scores) {
+            store.addSharedInterests(viewer, rows, weight, scores);
+        }
+    };
+
+    /**
+     * One point if the candidate is in the viewer's study program
+     */
+    public static final Scorer SAME_STUDY_PROGRAM = new Scorer() {
+        @Override
+        public String getName() {
+            return "same_study_program";
+        }
+
+        @Override
+        public int getDefaultWeight() {
+            return 2;
+        }
+
+        @Override
+        public void score(CandidateStore store, Profile viewer, int[] rows, int weight, int[] scores) {
+            int program = store.studyProgramCode(viewer.getStudyProgram());
+            if (program < 0) {
+                return;
+            }
+            for (int row : rows) {
+                if (store.getStudyProgramCode(row) == program) {
+                    scores[row] += weight;
+                }
+            }
+        }
+    };
+
+    /**
+     * Two points for the same semester, one for a neighbouring one
+     */
+    public static final Scorer SEMESTER_PROXIMITY = new Scorer() {
+        @Override
+        public String getName() {
+            return "semester_proximity";
+        }
+
+        @Override
+        public int getDefaultWeight() {
+            return 1;
+        }
+
+        @Override
+        public void score(CandidateStore store, Profile viewer, int[] rows, int weight, int[] scores) {
+            int semester = viewer.getSemester() != null ? viewer.getSemester() : 0;
+            if (semester <= 0) {
+                return;
+            }
+            for (int row : rows) {
+                int candidate = store.getSemester(row);
+                if (candidate > 0) {
+                    scores[row] += weight * Math.max(0, 2 - Math.abs(candidate - semester));
+                }
+            }
+        }
+    };
+
+    /**
+     * Two points for less than a year of age difference, one for less than two years
+     */
+    public static final Scorer AGE_PROXIMITY = new Scorer() {
+        @Override
+        public String getName() {
+            return "age_proximity";
+        }
+
+        @Override
+        public int getDefaultWeight() {
+            return 1;
+        }
+
+        @Override
+        public void score(CandidateStore store, Profile viewer, int[] rows, int weight, int[] scores) {
+            int birthDay = CandidateStore.birthDayOf(viewer);
+            if (birthDay == CandidateStore.UNKNOWN_BIRTHDAY) {
+                return;
+            }
+            for (int row : rows) {
+                int candidate = store.getBirthDay(row);
+                if (candidate != CandidateStore.UNKNOWN_BIRTHDAY) {
+                    int days = Math.abs(candidate - birthDay);
+                    scores[row] += days < 365 ? 2 * weight : days < 730 ? weight : 0;
+                }
+            }
+        }
+    };
+
+    private Scorers() {
+    }
+
+    /**
+     * All built-in scorers, in the order the default engine runs them
+     */
+    public static List<Scorer> builtIn() {
+        return List.of(SHARED_INTERESTS, SAME_STUDY_PROGRAM, SEMESTER_PROXIMITY, AGE_PROXIMITY);
+    }
+}
@@ -1,14 +1,31 @@
 package at.ac.hcw.campusconnect.services;
 
+import at.ac.hcw.campusconnect.config.SupabaseConfig;
 import at.ac.hcw.campusconnect.models.User;
 import lombok.Getter;
 
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
 @Getter
 public class SessionManager {
     private static SessionManager instance;
 
     private final AuthService authService;
 
+    // Per-user local state, created on first use and dropped on sign out
+    private CandidatePoolCache candidatePool;
+    private DiscoverSession discoverSession;
+    private ActionedUserSet actionedUsers;
+    private SwipeQueue swipeQueue;
+    private MatchCache matchCache;
+    private MessageSync messageSync;
+    private RealtimeClient realtimeClient;
+    private Duration passExpiry; // From action_settings, read once per session
+    // Session-bound work of the views (refresh threads, realtime listeners), stopped before the session ends
+    private final List<Runnable> shutdownListeners = new CopyOnWriteArrayList<>();
+
     private SessionManager() {
         this.authService = new AuthService();
     }
@@ -68,8 +85,151 @@ public class SessionManager {
     }
 
 
+    /**
+     * Local discover candidate pool of the signed-in user
+     */
+    public synchronized CandidatePoolCache getCandidatePool() {
+        if (candidatePool == null) {
+            candidatePool = new CandidatePoolCache(getCurrentUser().getId());
+        }
+        return candidatePool;
+    }
+
+    /**
+     * Ranked discover deck of the signed-in user, resumed on the next launch
+     */
+    public synchronized DiscoverSession getDiscoverSession() {
+        if (discoverSession == null) {
+            discoverSession = new DiscoverSession(getCurrentUser().getId());
+        }
+        return discoverSession;
+    }
+
+    /**
+     * Users the signed-in user has already liked or passed
+     */
+    public synchronized ActionedUserSet getActionedUsers() {
+        if (actionedUsers == null) {
+            actionedUsers = new ActionedUserSet(getCurrentUser().getId());
+        }
+        return actionedUsers;
+    }
+
+    public synchronized Duration getPassExpiry() {
+        return passExpiry;
+    }
+
+    public synchronized void setPassExpiry(Duration passExpiry) {
+        this.passExpiry = passExpiry;
+    }
+
+    /**
+     * Matches and matched profiles seen in this session
+     */
+    public synchronized MatchCache getMatchCache() {
+        if (matchCache == null) {
+            matchCache = new MatchCache();
+        }
+        return matchCache;
+    }
+
+    /**
+     * Messages of the signed-in user, synced incrementally across all matches
+     */
+    public synchronized MessageSync getMessageSync() {
+        if (messageSync == null) {
+            messageSync = new MessageSync(this);
+        }
+        return messageSync;
+    }
+
+    /**
+     * Push subscription to the signed-in user's new messages and matches, connected on first use
+     */
+    public synchronized RealtimeClient getRealtimeClient() {
+        if (realtimeClient == null) {
+            realtimeClient = new RealtimeClient(SupabaseConfig.getRealtimeUrl(), SupabaseConfig.getSupabaseKey(),
+                    getCurrentUser().getId(), this::getAccessToken);
+            realtimeClient.start();
+        }
+        return realtimeClient;
+    }
+
+    /**
+     * Queue that sends likes and passes in the background.
+     * Creating it replays actions left in the journal by the previous session.
+     */
+    public synchronized SwipeQueue getSwipeQueue() {
+        if (swipeQueue == null) {
+            ActionJournal journal = null;
+            try {
+                journal = new ActionJournal(getCurrentUser().getId());
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+            swipeQueue = new SwipeQueue(new MatchService(this), journal);
+        }
+        return swipeQueue;
+    }
+
+    /**
+     * Run the listener when the session shuts down, i.e. on sign out or when the app closes.
+     * Listeners run once, on the thread that shuts down, while the current user is still known.
+     */
+    public void addShutdownListener(Runnable listener) {
+        shutdownListeners.add(listener);
+    }
+
+    public void removeShutdownListener(Runnable listener) {
+        shutdownListeners.remove(listener);
+    }
+
+    /**
+     * Stop the views' background work, send pending swipes while the session is still valid, remember the
+     * discover position and close the realtime connection. Called before signing out and when the app closes.
+     */
+    public void shutdown() {
+        for (Runnable listener : shutdownListeners) {
+            try {
+                listener.run();
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        }
+        shutdownListeners.clear();
+
+        SwipeQueue queue;
+        DiscoverSession session;
+        RealtimeClient realtime;
+        synchronized (this) {
+            queue = swipeQueue;
+            swipeQueue = null;
+            session = discoverSession;
+            realtime = realtimeClient;
+            realtimeClient = null;
+        }
+        if (realtime != null) {
+            realtime.shutdown();
+        }
+        if (queue != null) {
+            queue.shutdown();
+        }
+        if (session != null) {
+            session.save();
+        }
+    }
+
     public void signOut() {
+        shutdown();
         authService.signOut();
+        synchronized (this) {
+            candidatePool = null;
+            discoverSession = null;
+            actionedUsers = null;
+            matchCache = null;
+            messageSync = null;
+            passExpiry = null;
+        }
     }
 
     public boolean refreshTokenIfNeeded() {
@@ -0,0 +1,270 @@
+package at.ac.hcw.campusconnect.services;
+
+import at.ac.hcw.campusconnect.models.Match;
+import at.ac.hcw.campusconnect.models.UserAction;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Queue for likes and passes, so swiping never waits for the network.
+ * Passes are collected and sent as one batch, either after a short delay or as soon
+ * as a batch is full. Likes are sent right away (together with any waiting passes),
+ * because the response tells whether the like created a match. Failed batches that may succeed later are retried
+ * with backoff; actions the server rejects are reported through their futures.
+ * <p>
+ * Every action is written to the {@link ActionJournal} on a journal thread of its own before it can
+ * be sent. The fsync never blocks the caller (the FX thread), a slow request never holds up the
+ * journal, and actions that were not sent yet survive a restart and are replayed when the queue is created.
+ */
+public class SwipeQueue {
+    private static final int BATCH_SIZE = 10;
+    private static final long FLUSH_DELAY_MILLIS = 1500;
+    private static final long MAX_RETRY_DELAY_MILLIS = 60_000;
+
+    private final MatchService matchService;
+    private final ActionJournal journal; // null if the journal file could not be opened
+    private final ScheduledExecutorService scheduler; // Sends the batches
+    private final ExecutorService journalWriter; // Appends to the journal, in swipe order
+
+    // Pending actions by target user: swiping the same user twice only sends the last action
+    private final Map<String, PendingAction> pending = new LinkedHashMap<>();
+    private ScheduledFuture<?> scheduledFlush;
+    private long retryDelayMillis = FLUSH_DELAY_MILLIS;
+
+    public SwipeQueue(MatchService matchService, ActionJournal journal) {
+        this.matchService = matchService;
+        this.journal = journal;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "swipe-queue");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.journalWriter = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "swipe-journal");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        if (journal != null) {
+            replay();
+        }
+    }
+
+    /**
+     * Queue an action. Returns immediately; the future completes once the server
+     * has stored the action or rejected it for good.
+     */
+    public CompletableFuture<Result> enqueue(String targetUserId, String action) {
+        PendingAction pendingAction = new PendingAction(-1, targetUserId, action);
+        try {
+            // Single thread: journaled and queued in swipe order; flush only sees journaled actions
+            journalWriter.execute(() -> journalAndAdd(pendingAction));
+        } catch (RejectedExecutionException e) {
+            journalAndAdd(pendingAction); // Shut down, only happens while signing out
+        }
+        return pendingAction.future;
+    }
+
+    private void journalAndAdd(PendingAction pendingAction) {
+        if (journal != null) {
+            try {
+                pendingAction.sequence = journal.append(pendingAction.targetUserId, pendingAction.action);
+            } catch (IOException e) {
+                // Still send it, it just won't survive a restart
+                e.printStackTrace();
+            }
+        }
+        synchronized (this) {
+            add(pendingAction);
+        }
+    }
+
+    /**
+     * Queue the actions that were journaled but never confirmed by the server
+     */
+    private synchronized void replay() {
+        for (ActionJournal.Entry entry : journal.getPending()) {
+            add(new PendingAction(entry.getSequence(), entry.getTargetUserId(), entry.getAction()));
+        }
+    }
+
+    private void add(PendingAction pendingAction) {
+        PendingAction previous = pending.put(pendingAction.targetUserId, pendingAction);
+        if (previous != null) {
+            supersede(previous);
+        }
+
+        if (pending.size() >= BATCH_SIZE || "like".equals(pendingAction.action)) {
+            scheduleFlush(0);
+        } else {
+            scheduleFlush(FLUSH_DELAY_MILLIS);
+        }
+    }
+
+    /**
+     * Send everything still pending and stop the background thread.
+     * Waits a few seconds at most, used on sign out and when the app closes.
+     */
+    public void shutdown() {
+        journalWriter.shutdown();
+        try {
+            // Everything enqueued so far is journaled before the last flush
+            journalWriter.awaitTermination(5, TimeUnit.SECONDS);
+            scheduler.submit(this::flush).get(5, TimeUnit.SECONDS);
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+        scheduler.shutdownNow();
+        if (journal != null) {
+            journal.close();
+        }
+    }
+
+    private synchronized void scheduleFlush(long delayMillis) {
+        if (scheduler.isShutdown()) {
+            return;
+        }
+        if (scheduledFlush != null && !scheduledFlush.isDone()) {
+            if (scheduledFlush.getDelay(TimeUnit.MILLISECONDS) <= delayMillis) {
+                return; // A flush is already coming soon enough
+            }
+            scheduledFlush.cancel(false);
+        }
+        scheduledFlush = scheduler.schedule(this::flush, delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Runs on the scheduler thread only, so at most one batch is in flight.
+     */
+    private void flush() {
+        List<PendingAction> batch;
+        synchronized (this) {
+            if (pending.isEmpty()) {
+                return;
+            }
+            batch = new ArrayList<>(pending.values());
+            pending.clear();
+        }
+
+        List<UserAction> actions = new ArrayList<>();
+        for (PendingAction pendingAction : batch) {
+            UserAction action = new UserAction();
+            action.setTargetUserId(pendingAction.targetUserId);
+            action.setAction(pendingAction.action);
+            actions.add(action);
+        }
+
+        List<Match> createdMatches = new ArrayList<>();
+        int status = matchService.recordActions(actions, createdMatches);
+
+        if (status >= 200 && status < 300) {
+            retryDelayMillis = FLUSH_DELAY_MILLIS;
+            acknowledge(batch);
+            for (PendingAction pendingAction : batch) {
+                pendingAction.future.complete(new Result(true, findMatch(createdMatches, pendingAction.targetUserId)));
+            }
+        } else if (isRetryable(status)) {
+            synchronized (this) {
+                // Put the batch back in front, unless the user swiped the same profile again meanwhile
+                Map<String, PendingAction> retry = new LinkedHashMap<>();
+                for (PendingAction pendingAction : batch) {
+                    retry.put(pendingAction.targetUserId, pendingAction);
+                }
+                for (PendingAction newer : pending.values()) {
+                    PendingAction older = retry.put(newer.targetUserId, newer);
+                    if (older != null) {
+                        supersede(older);
+                    }
+                }
+                pending.clear();
+                pending.putAll(retry);
+
+                retryDelayMillis = Math.min(retryDelayMillis * 2, MAX_RETRY_DELAY_MILLIS);
+                scheduleFlush(retryDelayMillis);
+            }
+        } else {
+            retryDelayMillis = FLUSH_DELAY_MILLIS;
+            acknowledge(batch); // Replaying a rejected action would not help
+            batch.forEach(pendingAction -> pendingAction.future.complete(new Result(false, null)));
+        }
+    }
+
+    /**
+     * An older action for the same user was replaced by a newer one, which is journaled itself
+     */
+    private void supersede(PendingAction older) {
+        acknowledge(List.of(older));
+        older.future.complete(new Result(true, null));
+    }
+
+    private static Match findMatch(List<Match> matches, String targetUserId) {
+        for (Match match : matches) {
+            if (targetUserId.equals(match.getUser1Id()) || targetUserId.equals(match.getUser2Id())) {
+                return match;
+            }
+        }
+        return null;
+    }
+
+    private void acknowledge(List<PendingAction> actions) {
+        if (journal == null) {
+            return;
+        }
+        List<Long> sequences = new ArrayList<>();
+        for (PendingAction pendingAction : actions) {
+            if (pendingAction.sequence >= 0) {
+                sequences.add(pendingAction.sequence);
+            }
+        }
+        journal.acknowledge(sequences);
+    }
+
+    /**
+     * Network errors (-1), expired sessions, rate limits and server errors can succeed later
+     */
+    private static boolean isRetryable(int status) {
+        return status < 0 || status == 401 || status == 408 || status == 429 || status >= 500;
+    }
+
+    private static class PendingAction {
+        private long sequence; // Journal sequence, -1 if the action is not journaled; set before it is queued
+        private final String targetUserId;
+        private final String action;
+        private final CompletableFuture<Result> future = new CompletableFuture<>();
+
+        private PendingAction(long sequence, String targetUserId, String action) {
+            this.sequence = sequence;
+            this.targetUserId = targetUserId;
+            this.action = action;
+        }
+    }
+
+    /**
+     * Outcome of a queued action
+     */
+    public static class Result {
+        private final boolean stored;
+        private final Match match;
+
+        private Result(boolean stored, Match match) {
+            this.stored = stored;
+            this.match = match;
+        }
+
+        /**
+         * False if the server rejected the action for good
+         */
+        public boolean isStored() {
+            return stored;
+        }
+
+        /**
+         * The match this like created, or null
+         */
+        public Match getMatch() {
+            return match;
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package at.ac.hcw.campusconnect.util;
+
+import java.time.LocalDate;
+
+/**
+ * Turns an age range into the range of birthdates of people that age on a given day,
+ * so age filters can run as plain date comparisons (or a birthdate predicate on the server).
+ */
+public final class BirthdateRange {
+
+    private BirthdateRange() {
+    }
+
+    /**
+     * Earliest birthdate of someone at most maxAge years old, null without an upper age limit
+     */
+    public static LocalDate earliest(Integer maxAge, LocalDate today) {
+        return maxAge != null ? today.minusYears(maxAge + 1L).plusDays(1) : null;
+    }
+
+    /**
+     * Latest birthdate of someone at least minAge years old, null without a lower age limit
+     */
+    public static LocalDate latest(Integer minAge, LocalDate today) {
+        return minAge != null ? today.minusYears(minAge) : null;
+    }
+}
@@ -0,0 +1,180 @@
+package at.ac.hcw.campusconnect.util;
+
+import at.ac.hcw.campusconnect.models.Profile;
+import javafx.scene.image.Image;
+
+import java.time.LocalDate;
+import java.time.Period;
+import java.util.*;
+
+/**
+ * Cursor over the ranked discover profiles that keeps the next cards ready ahead of time.
+ * For every card within the lookahead the images are already loading in the background,
+ * decoded at card size, and the texts shown on the card are precomputed.
+ * Moving the cursor refills the lookahead and releases cards that were swiped away.
+ */
+public class DiscoverDeck {
+
+    public static final int DEFAULT_LOOKAHEAD = 3;
+
+    private static final double IMAGE_WIDTH = 400;
+    private static final double IMAGE_HEIGHT = 350;
+
+    private final int lookahead;
+    private final List<Profile> profiles = new ArrayList<>();
+    private final Map<Integer, Card> preparedCards = new HashMap<>();
+    private int cursor = 0;
+
+    public DiscoverDeck(int lookahead) {
+        this.lookahead = lookahead;
+    }
+
+    /**
+     * Replaces the deck content and starts preparing the first cards.
+     *
+     * @param rankedProfiles The profiles to show, in order
+     */
+    public void reset(List<Profile> rankedProfiles) {
+        profiles.clear();
+        if (rankedProfiles != null) {
+            profiles.addAll(rankedProfiles);
+        }
+        preparedCards.clear();
+        cursor = 0;
+        refill();
+    }
+
+    /**
+     * Replaces everything after the current card, e.g. when a resumed deck has been revalidated.
+     * The current card stays where it is, cards already prepared for unchanged profiles are kept.
+     *
+     * @param rankedProfiles The profiles to show after the current one, in order
+     */
+    public void replaceUpcoming(List<Profile> rankedProfiles) {
+        Map<String, Card> reusable = new HashMap<>();
+        preparedCards.values().forEach(card -> reusable.put(card.getProfile().getUserId(), card));
+        Card current = current();
+
+        profiles.clear();
+        if (current != null) {
+            profiles.add(current.getProfile());
+        }
+        if (rankedProfiles != null) {
+            for (Profile profile : rankedProfiles) {
+                if (current == null || !profile.getUserId().equals(current.getProfile().getUserId())) {
+                    profiles.add(profile);
+                }
+            }
+        }
+        preparedCards.clear();
+        cursor = 0;
+
+        int end = Math.min(profiles.size(), 1 + lookahead);
+        for (int index = 0; index < end; index++) {
+            Card card = reusable.get(profiles.get(index).getUserId());
+            if (card != null && card.getProfile().equals(profiles.get(index))) {
+                preparedCards.put(index, card);
+            }
+        }
+        refill();
+    }
+
+    public boolean hasCurrent() {
+        return cursor < profiles.size();
+    }
+
+    /**
+     * Returns the card under the cursor, or null if the deck is empty.
+     */
+    public Card current() {
+        if (!hasCurrent()) {
+            return null;
+        }
+        return preparedCards.computeIfAbsent(cursor, index -> new Card(profiles.get(index)));
+    }
+
+    /**
+     * Returns the card after the current one, or null if there is none.
+     */
+    public Card next() {
+        int index = cursor + 1;
+        if (index >= profiles.size()) {
+            return null;
+        }
+        return preparedCards.computeIfAbsent(index, i -> new Card(profiles.get(i)));
+    }
+
+    /**
+     * Moves to the next card and prepares the one that just entered the lookahead.
+     */
+    public void advance() {
+        if (!hasCurrent()) {
+            return;
+        }
+        preparedCards.remove(cursor);
+        cursor++;
+        refill();
+    }
+
+    /**
+     * Puts a profile back at the end of the deck, e.g. when its action could not be saved.
+     */
+    public void append(Profile profile) {
+        profiles.add(profile);
+        refill();
+    }
+
+    private void refill() {
+        int end = Math.min(profiles.size(), cursor + 1 + lookahead);
+        for (int index = cursor; index < end; index++) {
+            preparedCards.computeIfAbsent(index, i -> new Card(profiles.get(i)));
+        }
+    }
+
+    /**
+     * A profile prepared for display.
+     */
+    public static class Card {
+        private final Profile profile;
+        private final String title;
+        private final String semesterText;
+        private final List<Image> images = new ArrayList<>();
+
+        private Card(Profile profile) {
+            this.profile = profile;
+            this.title = profile.getFirstName() + ", " + calculateAge(profile.getParsedBirthdate());
+            this.semesterText = "Semester " + profile.getSemester();
+
+            if (profile.getImageUrls() != null) {
+                for (String url : profile.getImageUrls()) {
+                    try {
+                        // Decoded at card size, loading starts right away in the background
+                        images.add(new Image(url, IMAGE_WIDTH, IMAGE_HEIGHT, true, true, true));
+                    } catch (Exception e) {
+                        e.printStackTrace();
+                    }
+                }
+            }
+        }
+
+        public Profile getProfile() {
+            return profile;
+        }
+
+        public String getTitle() {
+            return title;
+        }
+
+        public String getSemesterText() {
+            return semesterText;
+        }
+
+        public List<Image> getImages() {
+            return images;
+        }
+
+        private static int calculateAge(LocalDate birthdate) {
+            return birthdate != null ? Period.between(birthdate, LocalDate.now()).getYears() : 0;
+        }
+    }
+}
@@ -0,0 +1,327 @@
+package at.ac.hcw.campusconnect.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * In-memory HNSW (hierarchical navigable small world) index for approximate nearest neighbour
+ * search over normalized vectors, distance is 1 - dot product (cosine distance).
+ * <p>
+ * Every node is linked to its close neighbours on level 0 and, with exponentially decreasing
+ * probability, on higher levels as well. A search descends greedily through the sparse upper
+ * levels and then explores level 0 with a beam of size ef: larger ef means better recall and
+ * slower queries. Nodes are identified by the order they were added in.
+ * <p>
+ * Adding is single threaded; once built the index can be searched from several threads.
+ */
+public class HnswIndex {
+
+    private final int maxLinks;
+    private final int maxLinksLevel0;
+    private final int efConstruction;
+    private final double levelFactor;
+    private final Random random;
+
+    private float[][] vectors = new float[64][];
+    // links[node][level]: element 0 is the number of links, followed by the linked node IDs
+    private int[][][] links = new int[64][][];
+    private int size;
+    private int entryPoint = -1;
+    private int topLevel = -1;
+
+    /**
+     * @param maxLinks Links per node on the upper levels (M), level 0 keeps twice as many
+     * @param efConstruction Beam size used while inserting
+     * @param seed Seed for the level assignment, so builds are reproducible
+     */
+    public HnswIndex(int maxLinks, int efConstruction, long seed) {
+        this.maxLinks = maxLinks;
+        this.maxLinksLevel0 = maxLinks * 2;
+        this.efConstruction = efConstruction;
+        this.levelFactor = 1 / Math.log(maxLinks);
+        this.random = new Random(seed);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Add a normalized vector
+     *
+     * @return The node ID of the vector
+     */
+    public int add(float[] vector) {
+        if (size == vectors.length) {
+            vectors = Arrays.copyOf(vectors, size * 2);
+            links = Arrays.copyOf(links, size * 2);
+        }
+        int node = size++;
+        int level = (int) (-Math.log(1 - random.nextDouble()) * levelFactor);
+        vectors[node] = vector;
+        links[node] = new int[level + 1][];
+        for (int l = 0; l <= level; l++) {
+            links[node][l] = new int[1 + capacity(l)];
+        }
+
+        if (entryPoint < 0) {
+            entryPoint = node;
+            topLevel = level;
+            return node;
+        }
+
+        int current = entryPoint;
+        for (int l = topLevel; l > level; l--) {
+            current = greedyClosest(vector, current, l);
+        }
+        for (int l = Math.min(level, topLevel); l >= 0; l--) {
+            long[] found = searchLevel(vector, current, efConstruction, l);
+            for (int neighbour : selectNeighbours(vector, found, maxLinks)) {
+                link(node, neighbour, l);
+                link(neighbour, node, l);
+            }
+            current = nodeOf(found[0]);
+        }
+
+        if (level > topLevel) {
+            topLevel = level;
+            entryPoint = node;
+        }
+        return node;
+    }
+
+    /**
+     * Approximate k nearest neighbours of a normalized query vector
+     *
+     * @param ef Beam size on level 0, at least k
+     * @return Node IDs, nearest first
+     */
+    public int[] search(float[] query, int k, int ef) {
+        if (entryPoint < 0) {
+            return new int[0];
+        }
+        int current = entryPoint;
+        for (int l = topLevel; l > 0; l--) {
+            current = greedyClosest(query, current, l);
+        }
+        long[] found = searchLevel(query, current, Math.max(ef, k), 0);
+        int[] result = new int[Math.min(k, found.length)];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = nodeOf(found[i]);
+        }
+        return result;
+    }
+
+    private int capacity(int level) {
+        return level == 0 ? maxLinksLevel0 : maxLinks;
+    }
+
+    private int greedyClosest(float[] query, int start, int level) {
+        int current = start;
+        float currentDistance = distance(query, vectors[current]);
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            int[] neighbours = links[current][level];
+            for (int i = 1; i <= neighbours[0]; i++) {
+                float candidateDistance = distance(query, vectors[neighbours[i]]);
+                if (candidateDistance < currentDistance) {
+                    current = neighbours[i];
+                    currentDistance = candidateDistance;
+                    changed = true;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Beam search on one level
+     *
+     * @return Up to ef packed (distance, node) entries, nearest first
+     */
+    private long[] searchLevel(float[] query, int start, int ef, int level) {
+        BitSet visited = new BitSet(size);
+        LongHeap candidates = new LongHeap(ef * 2);
+        LongHeap results = new LongHeap(ef + 1); // Holds ~entry, so the farthest result is on top
+
+        long first = pack(distance(query, vectors[start]), start);
+        visited.set(start);
+        candidates.push(first);
+        results.push(~first);
+
+        while (!candidates.isEmpty()) {
+            long closest = candidates.pop();
+            if (distanceOf(closest) > distanceOf(~results.peek())) {
+                break; // Every remaining candidate is farther than the worst result
+            }
+            int[] neighbours = links[nodeOf(closest)][level];
+            for (int i = 1; i <= neighbours[0]; i++) {
+                int neighbour = neighbours[i];
+                if (visited.get(neighbour)) {
+                    continue;
+                }
+                visited.set(neighbour);
+                float neighbourDistance = distance(query, vectors[neighbour]);
+                if (results.size() < ef || neighbourDistance < distanceOf(~results.peek())) {
+                    long entry = pack(neighbourDistance, neighbour);
+                    candidates.push(entry);
+                    results.push(~entry);
+                    if (results.size() > ef) {
+                        results.pop();
+                    }
+                }
+            }
+        }
+
+        long[] sorted = new long[results.size()];
+        for (int i = sorted.length - 1; i >= 0; i--) {
+            sorted[i] = ~results.pop();
+        }
+        return sorted;
+    }
+
+    /**
+     * Neighbour selection heuristic from the HNSW paper: skip a candidate that is closer to an
+     * already selected neighbour than to the base vector, so links spread in different directions.
+     * Free slots are filled with the skipped candidates.
+     *
+     * @param candidates Packed (distance to base, node) entries, nearest first
+     */
+    private int[] selectNeighbours(float[] base, long[] candidates, int count) {
+        int[] selected = new int[Math.min(count, candidates.length)];
+        int selectedCount = 0;
+        List<Integer> skipped = new ArrayList<>();
+        for (long candidate : candidates) {
+            if (selectedCount == selected.length) {
+                break;
+            }
+            int node = nodeOf(candidate);
+            float baseDistance = distanceOf(candidate);
+            boolean diverse = true;
+            for (int i = 0; i < selectedCount; i++) {
+                if (distance(vectors[node], vectors[selected[i]]) < baseDistance) {
+                    diverse = false;
+                    break;
+                }
+            }
+            if (diverse) {
+                selected[selectedCount++] = node;
+            } else {
+                skipped.add(node);
+            }
+        }
+        for (int i = 0; selectedCount < selected.length && i < skipped.size(); i++) {
+            selected[selectedCount++] = skipped.get(i);
+        }
+        return selected;
+    }
+
+    private void link(int from, int to, int level) {
+        int[] neighbours = links[from][level];
+        int count = neighbours[0];
+        if (count < neighbours.length - 1) {
+            neighbours[++count] = to;
+            neighbours[0] = count;
+            return;
+        }
+
+        // Full: keep the best spread among the existing links and the new one
+        float[] base = vectors[from];
+        long[] candidates = new long[count + 1];
+        for (int i = 0; i < count; i++) {
+            candidates[i] = pack(distance(base, vectors[neighbours[i + 1]]), neighbours[i + 1]);
+        }
+        candidates[count] = pack(distance(base, vectors[to]), to);
+        Arrays.sort(candidates);
+
+        int[] selected = selectNeighbours(base, candidates, count);
+        System.arraycopy(selected, 0, neighbours, 1, selected.length);
+        neighbours[0] = selected.length;
+    }
+
+    private static float distance(float[] a, float[] b) {
+        // Clamped: rounding can push it slightly below zero, which would break the packed ordering
+        return Math.max(0f, 1f - TextVectorizer.dot(a, b));
+    }
+
+    /**
+     * Non-negative float bits sort like the floats, so packed entries sort by distance
+     */
+    private static long pack(float distance, int node) {
+        return ((long) Float.floatToIntBits(distance) << 32) | node;
+    }
+
+    private static float distanceOf(long entry) {
+        return Float.intBitsToFloat((int) (entry >>> 32));
+    }
+
+    private static int nodeOf(long entry) {
+        return (int) entry;
+    }
+
+    /**
+     * Minimal binary min-heap of longs, avoids boxing in the search loop
+     */
+    private static final class LongHeap {
+        private long[] values;
+        private int size;
+
+        private LongHeap(int capacity) {
+            values = new long[Math.max(capacity, 4)];
+        }
+
+        int size() {
+            return size;
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        long peek() {
+            return values[0];
+        }
+
+        void push(long value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            int index = size++;
+            while (index > 0) {
+                int parent = (index - 1) >>> 1;
+                if (values[parent] <= value) {
+                    break;
+                }
+                values[index] = values[parent];
+                index = parent;
+            }
+            values[index] = value;
+        }
+
+        long pop() {
+            long top = values[0];
+            long last = values[--size];
+            int index = 0;
+            while (true) {
+                int child = index * 2 + 1;
+                if (child >= size) {
+                    break;
+                }
+                if (child + 1 < size && values[child + 1] < values[child]) {
+                    child++;
+                }
+                if (values[child] >= last) {
+                    break;
+                }
+                values[index] = values[child];
+                index = child;
+            }
+            values[index] = last;
+            return top;
+        }
+    }
+}
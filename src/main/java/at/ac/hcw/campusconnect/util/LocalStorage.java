@@ -0,0 +1,41 @@
+package at.ac.hcw.campusconnect.util;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Utility class for the files the app keeps on the local disk (caches, sync state).
+ * Everything lives below ~/.campusconnect, with one directory per signed-in user.
+ */
+public class LocalStorage {
+
+    private static final Path BASE_DIRECTORY = Path.of(System.getProperty("user.home"), ".campusconnect");
+
+    /**
+     * Returns the directory for a user's local data, creating it if needed.
+     *
+     * @param userId The ID of the signed-in user
+     * @return The user's data directory
+     * @throws IOException if the directory cannot be created
+     */
+    public static Path getUserDirectory(String userId) throws IOException {
+        Path directory = BASE_DIRECTORY.resolve(userId);
+        Files.createDirectories(directory);
+        return directory;
+    }
+
+    /**
+     * Replaces a file in one step, so readers never see a half-written file.
+     *
+     * @param file The file to write
+     * @param content The new content
+     * @throws IOException if the file cannot be written
+     */
+    public static void writeAtomically(Path file, byte[] content) throws IOException {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        Files.write(temp, content);
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
@@ -0,0 +1,163 @@
+package at.ac.hcw.campusconnect.util;
+
+import at.ac.hcw.campusconnect.models.Message;
+
+import java.time.OffsetDateTime;
+import java.util.*;
+
+/**
+ * The loaded part of one conversation: a contiguous range of messages in (created_at, id) order,
+ * filled page by page in both directions. It holds at most capacity messages; loading a page on
+ * one side drops messages from the other side, which can then be loaded again as a page.
+ * <p>
+ * Written by MessageSync and read by the chat view, so all methods are synchronized.
+ */
+public class MessageWindow {
+    public static final Comparator<Message> ORDER = Comparator
+            .comparing((Message message) -> parse(message.getCreatedAt()), Comparator.nullsFirst(Comparator.naturalOrder()))
+            .thenComparing(Message::getId, Comparator.nullsFirst(Comparator.naturalOrder()));
+
+    private final int capacity;
+    private final ArrayDeque<Message> messages = new ArrayDeque<>();
+    private final Set<String> ids = new HashSet<>();
+    private boolean hasOlder;
+    private boolean hasNewer;
+
+    /**
+     * @param messages The first pages, in order
+     * @param hasOlder Whether there are messages before them
+     * @param hasNewer Whether there are messages after them
+     */
+    public MessageWindow(int capacity, List<Message> messages, boolean hasOlder, boolean hasNewer) {
+        this.capacity = capacity;
+        this.hasOlder = hasOlder;
+        this.hasNewer = hasNewer;
+        appendNewer(messages, !hasNewer);
+    }
+
+    public synchronized List<Message> getMessages() {
+        return new ArrayList<>(messages);
+    }
+
+    public synchronized int size() {
+        return messages.size();
+    }
+
+    public synchronized boolean contains(String messageId) {
+        return ids.contains(messageId);
+    }
+
+    /**
+     * Whether older messages exist that are not in the window
+     */
+    public synchronized boolean hasOlder() {
+        return hasOlder;
+    }
+
+    /**
+     * Whether newer messages exist that are not in the window; if not, the window is at the live end
+     */
+    public synchronized boolean hasNewer() {
+        return hasNewer;
+    }
+
+    public synchronized Message first() {
+        return messages.peekFirst();
+    }
+
+    public synchronized Message last() {
+        return messages.peekLast();
+    }
+
+    /**
+     * Add the page before the first message, dropping the newest messages beyond the capacity
+     *
+     * @param page In order
+     * @param reachedStart Whether the page contains the first message of the conversation
+     * @return Number of messages dropped at the newer end
+     */
+    public synchronized int prependOlder(List<Message> page, boolean reachedStart) {
+        for (int i = page.size() - 1; i >= 0; i--) {
+            Message message = page.get(i);
+            if (ids.add(message.getId())) {
+                messages.addFirst(message);
+            }
+        }
+        hasOlder = !reachedStart;
+
+        int dropped = 0;
+        while (messages.size() > capacity) {
+            ids.remove(messages.removeLast().getId());
+            hasNewer = true;
+            dropped++;
+        }
+        return dropped;
+    }
+
+    /**
+     * Add the page after the last message, dropping the oldest messages beyond the capacity
+     *
+     * @param page In order
+     * @param reachedEnd Whether the page contains the newest message of the conversation
+     * @return Number of messages dropped at the older end
+     */
+    public synchronized int appendNewer(List<Message> page, boolean reachedEnd) {
+        for (Message message : page) {
+            if (ids.add(message.getId())) {
+                messages.addLast(message);
+            }
+        }
+        hasNewer = !reachedEnd;
+        return trimOldest();
+    }
+
+    /**
+     * Add a message that just arrived. Only a window at the live end takes it,
+     * otherwise it is loaded with the newer pages later.
+     *
+     * @return Whether it was added
+     */
+    public synchronized boolean addLive(Message message) {
+        if (hasNewer || message.getId() == null || !ids.add(message.getId())) {
+            return false;
+        }
+        // Messages nearly always arrive in order, so this is an append in practice
+        List<Message> later = new ArrayList<>();
+        while (!messages.isEmpty() && ORDER.compare(messages.peekLast(), message) > 0) {
+            later.add(0, messages.removeLast());
+        }
+        messages.addLast(message);
+        messages.addAll(later);
+        trimOldest();
+        return true;
+    }
+
+    /**
+     * Mark the messages to the receiver as read, after the server marked them
+     */
+    public synchronized void markRead(String receiverId) {
+        for (Message message : messages) {
+            if (receiverId.equals(message.getReceiverId())) {
+                message.setIsRead(true);
+            }
+        }
+    }
+
+    private int trimOldest() {
+        int dropped = 0;
+        while (messages.size() > capacity) {
+            ids.remove(messages.removeFirst().getId());
+            hasOlder = true;
+            dropped++;
+        }
+        return dropped;
+    }
+
+    private static OffsetDateTime parse(String timestamp) {
+        try {
+            return timestamp != null ? OffsetDateTime.parse(timestamp) : null;
+        } catch (Exception e) {
+            return null;
+        }
+    }
+}
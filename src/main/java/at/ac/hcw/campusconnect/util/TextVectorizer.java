@@ -0,0 +1,128 @@
+package at.ac.hcw.campusconnect.util;
+
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Turns short free texts (profile bios) into dense vectors for similarity search.
+ * <p>
+ * Texts are tokenized into lowercase words without stop words and weighted with TF-IDF
+ * (sublinear term frequency, smoothed IDF fitted on a corpus). The sparse TF-IDF vector is then
+ * reduced to a few dimensions with a random projection: every term adds its weight with a
+ * pseudo-random sign derived from the term itself, so no projection matrix has to be stored.
+ * Vectors are L2-normalized, the dot product of two vectors is their cosine similarity.
+ */
+public class TextVectorizer {
+
+    private static final Pattern WORD = Pattern.compile("[\\p{L}\\p{N}]+");
+
+    // Most bios are English or German
+    private static final Set<String> STOP_WORDS = Set.of(
+            "a", "an", "and", "are", "as", "at", "be", "but", "by", "for", "from", "i", "in", "is",
+            "it", "me", "my", "of", "on", "or", "so", "that", "the", "this", "to", "we", "with", "you",
+            "am", "auch", "bin", "das", "der", "die", "ein", "eine", "und", "ich", "ist", "mit", "mich", "mein",
+            "meine", "nicht", "oder", "zu", "im", "den", "dem", "für", "von", "auf"
+    );
+
+    private final int dimensions;
+    private final Map<String, Float> idf;
+    private final float unknownIdf;
+
+    private TextVectorizer(int dimensions, Map<String, Float> idf, float unknownIdf) {
+        this.dimensions = dimensions;
+        this.idf = idf;
+        this.unknownIdf = unknownIdf;
+    }
+
+    /**
+     * Learn the IDF weights from a corpus.
+     *
+     * @param documents The texts, null entries count as empty
+     * @param dimensions Length of the produced vectors
+     */
+    public static TextVectorizer fit(List<String> documents, int dimensions) {
+        Map<String, Integer> documentFrequency = new HashMap<>();
+        for (String document : documents) {
+            for (String term : new HashSet<>(tokenize(document))) {
+                documentFrequency.merge(term, 1, Integer::sum);
+            }
+        }
+
+        int count = documents.size();
+        Map<String, Float> idf = new HashMap<>(documentFrequency.size() * 2);
+        documentFrequency.forEach((term, frequency) ->
+                idf.put(term, (float) (Math.log((1.0 + count) / (1.0 + frequency)) + 1.0)));
+        return new TextVectorizer(dimensions, idf, (float) (Math.log(1.0 + count) + 1.0));
+    }
+
+    /**
+     * Lowercase words of a text, without stop words and single characters
+     */
+    public static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
+        }
+        Matcher matcher = WORD.matcher(text.toLowerCase(Locale.ROOT));
+        while (matcher.find()) {
+            String token = matcher.group();
+            if (token.length() > 1 && !STOP_WORDS.contains(token)) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    public int getDimensions() {
+        return dimensions;
+    }
+
+    /**
+     * Project a text into a normalized dense vector. Texts without known words give the zero vector.
+     */
+    public float[] vectorize(String text) {
+        Map<String, Integer> termFrequency = new HashMap<>();
+        for (String token : tokenize(text)) {
+            termFrequency.merge(token, 1, Integer::sum);
+        }
+
+        float[] vector = new float[dimensions];
+        for (Map.Entry<String, Integer> entry : termFrequency.entrySet()) {
+            float weight = (float) (1.0 + Math.log(entry.getValue())) * idf.getOrDefault(entry.getKey(), unknownIdf);
+            long state = entry.getKey().hashCode() * 0x9E3779B97F4A7C15L;
+            for (int dimension = 0; dimension < dimensions; dimension++) {
+                state = mix(state + dimension);
+                vector[dimension] += (state & 1) == 0 ? weight : -weight;
+            }
+        }
+        normalize(vector);
+        return vector;
+    }
+
+    public static float dot(float[] a, float[] b) {
+        float sum = 0;
+        for (int i = 0; i < a.length; i++) {
+            sum += a[i] * b[i];
+        }
+        return sum;
+    }
+
+    private static void normalize(float[] vector) {
+        float norm = (float) Math.sqrt(dot(vector, vector));
+        if (norm > 0) {
+            for (int i = 0; i < vector.length; i++) {
+                vector[i] /= norm;
+            }
+        }
+    }
+
+    /**
+     * SplitMix64 finalizer, a cheap well-distributed hash for the projection signs
+     */
+    private static long mix(long value) {
+        value = (value ^ (value >>> 30)) * 0xBF58476D1CE4E5B9L;
+        value = (value ^ (value >>> 27)) * 0x94D049BB133111EBL;
+        return value ^ (value >>> 31);
+    }
+}
@@ -0,0 +1,143 @@
+package at.ac.hcw.campusconnect.services;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ActionJournalTest {
+    private static final int ACTION_RECORD_SIZE = 30;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void replaysOnlyUnacknowledgedActions() throws IOException {
+        Path file = directory.resolve("journal.bin");
+        String liked = UUID.randomUUID().toString();
+        String passed = UUID.randomUUID().toString();
+        String confirmed = UUID.randomUUID().toString();
+
+        ActionJournal journal = new ActionJournal(file);
+        journal.append(liked, "like");
+        long confirmedSequence = journal.append(confirmed, "like");
+        journal.append(passed, "pass");
+        journal.acknowledge(List.of(confirmedSequence));
+        journal.close();
+
+        List<ActionJournal.Entry> pending = new ActionJournal(file).getPending();
+        assertEquals(2, pending.size());
+        assertEquals(liked, pending.get(0).getTargetUserId());
+        assertEquals("like", pending.get(0).getAction());
+        assertEquals(passed, pending.get(1).getTargetUserId());
+        assertEquals("pass", pending.get(1).getAction());
+    }
+
+    @Test
+    void dropsTornLastRecord() throws IOException {
+        Path file = directory.resolve("journal.bin");
+        String first = UUID.randomUUID().toString();
+
+        ActionJournal journal = new ActionJournal(file);
+        journal.append(first, "like");
+        journal.append(UUID.randomUUID().toString(), "like");
+        journal.close();
+
+        // Crash in the middle of writing the second record
+        truncate(file, ACTION_RECORD_SIZE + 12);
+
+        ActionJournal reopened = new ActionJournal(file);
+        List<ActionJournal.Entry> pending = reopened.getPending();
+        assertEquals(1, pending.size());
+        assertEquals(first, pending.get(0).getTargetUserId());
+        // The torn bytes are cut off, so new records are not appended behind them
+        assertEquals(ACTION_RECORD_SIZE, Files.size(file));
+
+        long sequence = reopened.append(UUID.randomUUID().toString(), "pass");
+        assertTrue(sequence > pending.get(0).getSequence());
+        reopened.close();
+        assertEquals(2, new ActionJournal(file).getPending().size());
+    }
+
+    @Test
+    void stopsAtCrcMismatch() throws IOException {
+        Path file = directory.resolve("journal.bin");
+        String first = UUID.randomUUID().toString();
+
+        ActionJournal journal = new ActionJournal(file);
+        journal.append(first, "like");
+        journal.append(UUID.randomUUID().toString(), "like");
+        journal.append(UUID.randomUUID().toString(), "like");
+        journal.close();
+
+        // Flip a bit in the target of the second record
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[ACTION_RECORD_SIZE + 15] ^= 0x01;
+        Files.write(file, bytes);
+
+        List<ActionJournal.Entry> pending = new ActionJournal(file).getPending();
+        assertEquals(1, pending.size());
+        assertEquals(first, pending.get(0).getTargetUserId());
+        assertEquals(ACTION_RECORD_SIZE, Files.size(file));
+    }
+
+    @Test
+    void truncatesWhenEverythingIsAcknowledged() throws IOException {
+        Path file = directory.resolve("journal.bin");
+
+        ActionJournal journal = new ActionJournal(file);
+        long first = journal.append(UUID.randomUUID().toString(), "like");
+        long second = journal.append(UUID.randomUUID().toString(), "pass");
+        journal.acknowledge(List.of(first, second));
+
+        assertEquals(0, Files.size(file));
+        assertTrue(journal.getPending().isEmpty());
+        journal.close();
+        assertTrue(new ActionJournal(file).getPending().isEmpty());
+    }
+
+    @Test
+    void compactsToPendingActionsAfterAcknowledge() throws IOException {
+        Path file = directory.resolve("journal.bin");
+        String kept = UUID.randomUUID().toString();
+
+        // Enough records to pass the 64 KiB compaction threshold
+        ActionJournal journal = new ActionJournal(file);
+        long keptSequence = journal.append(kept, "like");
+        List<Long> confirmed = new ArrayList<>();
+        for (int i = 0; i < 2500; i++) {
+            confirmed.add(journal.append(UUID.randomUUID().toString(), "pass"));
+        }
+        journal.acknowledge(confirmed);
+
+        // Only the pending action is left in the file
+        assertEquals(ACTION_RECORD_SIZE, Files.size(file));
+        assertEquals(1, journal.getPending().size());
+
+        // The compacted journal keeps working and replays correctly
+        String added = UUID.randomUUID().toString();
+        journal.append(added, "like");
+        journal.close();
+
+        List<ActionJournal.Entry> pending = new ActionJournal(file).getPending();
+        assertEquals(2, pending.size());
+        assertEquals(kept, pending.get(0).getTargetUserId());
+        assertEquals(keptSequence, pending.get(0).getSequence());
+        assertEquals(added, pending.get(1).getTargetUserId());
+    }
+
+    private static void truncate(Path file, long size) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(size);
+        }
+    }
+}
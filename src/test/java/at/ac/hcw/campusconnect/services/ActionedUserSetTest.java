@@ -0,0 +1,155 @@
+package at.ac.hcw.campusconnect.services;
+
+import at.ac.hcw.campusconnect.models.UserAction;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ActionedUserSetTest {
+    private static final int ENTRY_SIZE = 24;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void reloadsSavedAndAppendedEntries() {
+        Path file = directory.resolve("actioned-users.bin");
+        String merged = UUID.randomUUID().toString();
+        String liked = UUID.randomUUID().toString();
+        String passed = UUID.randomUUID().toString();
+
+        ActionedUserSet set = new ActionedUserSet(file);
+        set.merge(List.of(action(merged, "like", "2025-01-01T10:00:00Z")), "2025-01-01T10:00:00Z");
+        set.save();
+        set.add(liked, false);
+        set.add(passed, true);
+
+        ActionedUserSet reloaded = new ActionedUserSet(file);
+        assertEquals(3, reloaded.size());
+        assertTrue(reloaded.contains(merged));
+        assertTrue(reloaded.contains(liked));
+        assertTrue(reloaded.contains(passed));
+        assertEquals("2025-01-01T10:00:00Z", reloaded.getWatermark());
+    }
+
+    @Test
+    void cutsOffTornAppend() throws IOException {
+        Path file = directory.resolve("actioned-users.bin");
+        String first = UUID.randomUUID().toString();
+
+        ActionedUserSet set = new ActionedUserSet(file);
+        set.add(first, false);
+        set.add(UUID.randomUUID().toString(), false);
+        long whole = Files.size(file);
+
+        // Crash in the middle of appending the second entry
+        truncate(file, whole - ENTRY_SIZE / 2);
+
+        ActionedUserSet reopened = new ActionedUserSet(file);
+        assertEquals(1, reopened.size());
+        assertTrue(reopened.contains(first));
+        assertEquals(whole - ENTRY_SIZE, Files.size(file));
+
+        // Later appends must not be read shifted behind the torn bytes
+        String next = UUID.randomUUID().toString();
+        reopened.add(next, true);
+        ActionedUserSet reloaded = new ActionedUserSet(file);
+        assertEquals(2, reloaded.size());
+        assertTrue(reloaded.contains(first));
+        assertTrue(reloaded.contains(next));
+    }
+
+    @Test
+    void removeIsKeptAfterSave() {
+        Path file = directory.resolve("actioned-users.bin");
+        String kept = UUID.randomUUID().toString();
+        String rejected = UUID.randomUUID().toString();
+
+        ActionedUserSet set = new ActionedUserSet(file);
+        set.add(kept, false);
+        set.add(rejected, true);
+        assertTrue(set.remove(rejected));
+        assertFalse(set.remove(rejected));
+
+        // Without a save the appended entry is still in the file
+        assertTrue(new ActionedUserSet(file).contains(rejected));
+        set.save();
+        ActionedUserSet reloaded = new ActionedUserSet(file);
+        assertTrue(reloaded.contains(kept));
+        assertFalse(reloaded.contains(rejected));
+    }
+
+    @Test
+    void expiresOnlyOldPasses() {
+        String liked = UUID.randomUUID().toString();
+        String oldPass = UUID.randomUUID().toString();
+        String recentPass = UUID.randomUUID().toString();
+        OffsetDateTime now = OffsetDateTime.now();
+
+        ActionedUserSet set = new ActionedUserSet();
+        set.merge(List.of(
+                action(liked, "like", now.minusDays(60).toString()),
+                action(oldPass, "pass", now.minusDays(40).toString()),
+                action(recentPass, "pass", now.minusDays(2).toString())), null);
+
+        assertTrue(set.expirePasses(Duration.ofDays(30)));
+        assertTrue(set.contains(liked));
+        assertFalse(set.contains(oldPass));
+        assertTrue(set.contains(recentPass));
+        assertFalse(set.expirePasses(Duration.ofDays(30)));
+    }
+
+    @Test
+    void likeOutlivesEarlierPass() {
+        String userId = UUID.randomUUID().toString();
+        OffsetDateTime now = OffsetDateTime.now();
+
+        ActionedUserSet set = new ActionedUserSet();
+        set.merge(List.of(action(userId, "pass", now.minusDays(40).toString())), null);
+        set.merge(List.of(action(userId, "like", now.minusDays(1).toString())), null);
+
+        set.expirePasses(Duration.ofDays(30));
+        assertTrue(set.contains(userId));
+    }
+
+    @Test
+    void mergeReportsChanges() {
+        String userId = UUID.randomUUID().toString();
+        List<UserAction> rows = List.of(action(userId, "like", "2025-01-01T10:00:00Z"));
+
+        ActionedUserSet set = new ActionedUserSet();
+        assertTrue(set.merge(rows, "2025-01-01T10:00:00Z"));
+        // The overlap window pulls the same rows again
+        assertFalse(set.merge(rows, "2025-01-01T10:00:00Z"));
+        assertTrue(set.merge(List.of(), "2025-01-01T10:05:00Z"));
+        assertEquals("2025-01-01T10:05:00Z", set.getWatermark());
+        // An older watermark never moves it back
+        assertFalse(set.merge(List.of(), "2025-01-01T09:00:00Z"));
+        assertEquals("2025-01-01T10:05:00Z", set.getWatermark());
+    }
+
+    private static UserAction action(String targetUserId, String action, String createdAt) {
+        UserAction userAction = new UserAction();
+        userAction.setTargetUserId(targetUserId);
+        userAction.setAction(action);
+        userAction.setCreatedAt(createdAt);
+        return userAction;
+    }
+
+    private static void truncate(Path file, long size) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(size);
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package at.ac.hcw.campusconnect.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CandidateStoreTest {
+    private final CandidateStore store = CandidateStore.of(List.of());
+
+    @Test
+    void sortsSmallScoresStably() {
+        int[] scores = {3, 0, 3, 7, 0, 5};
+        int[] sorted = store.sortByScoreDescending(new int[]{0, 1, 2, 3, 4, 5}, scores);
+        assertEquals("[3, 5, 0, 2, 1, 4]", Arrays.toString(sorted));
+    }
+
+    @Test
+    void sortsLargeScoresStably() {
+        int[] scores = {3, 2_000_000_000, 3, 70_000, 2_000_000_000, 0};
+        int[] sorted = store.sortByScoreDescending(new int[]{5, 4, 3, 2, 1, 0}, scores);
+        assertEquals("[4, 1, 3, 2, 0, 5]", Arrays.toString(sorted));
+    }
+
+    @Test
+    void sortsOverflowedScoresLast() {
+        int[] scores = {1, Integer.MIN_VALUE, 4};
+        int[] sorted = store.sortByScoreDescending(new int[]{0, 1, 2}, scores);
+        assertEquals("[2, 0, 1]", Arrays.toString(sorted));
+    }
+}
@@ -0,0 +1,112 @@
+package at.ac.hcw.campusconnect.util;
+
+import at.ac.hcw.campusconnect.models.Message;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MessageWindowTest {
+
+    @Test
+    void appendingNewerPagesDropsOldest() {
+        MessageWindow window = new MessageWindow(4, messages(0, 3), true, true);
+        assertTrue(window.hasOlder());
+        assertTrue(window.hasNewer());
+
+        assertEquals(2, window.appendNewer(messages(3, 6), true));
+        assertEquals(4, window.size());
+        assertEquals("m02", window.first().getId());
+        assertEquals("m05", window.last().getId());
+        assertFalse(window.contains("m01"));
+        assertTrue(window.hasOlder());
+        assertFalse(window.hasNewer());
+    }
+
+    @Test
+    void prependingOlderPagesDropsNewest() {
+        MessageWindow window = new MessageWindow(4, messages(4, 8), true, false);
+
+        assertEquals(2, window.prependOlder(messages(2, 4), false));
+        assertEquals("m02", window.first().getId());
+        assertEquals("m05", window.last().getId());
+        assertTrue(window.hasOlder());
+        assertTrue(window.hasNewer());
+
+        window.prependOlder(messages(0, 2), true);
+        assertEquals("m00", window.first().getId());
+        assertFalse(window.hasOlder());
+    }
+
+    @Test
+    void overlappingPagesAreNotDuplicated() {
+        MessageWindow window = new MessageWindow(10, messages(0, 4), false, true);
+        window.appendNewer(messages(2, 6), true);
+        assertEquals(6, window.size());
+        assertEquals(ids(messages(0, 6)), ids(window.getMessages()));
+    }
+
+    @Test
+    void liveMessagesAreSortedIn() {
+        MessageWindow window = new MessageWindow(10, List.of(message(0), message(2)), false, false);
+        assertTrue(window.addLive(message(3)));
+        assertTrue(window.addLive(message(1)));
+        assertFalse(window.addLive(message(3)));
+        assertEquals(ids(messages(0, 4)), ids(window.getMessages()));
+    }
+
+    @Test
+    void liveMessagesTrimTheOldest() {
+        MessageWindow window = new MessageWindow(3, messages(0, 3), false, false);
+        assertTrue(window.addLive(message(3)));
+        assertEquals("m01", window.first().getId());
+        assertTrue(window.hasOlder());
+    }
+
+    @Test
+    void windowAwayFromTheEndIgnoresLiveMessages() {
+        MessageWindow window = new MessageWindow(10, messages(0, 3), false, true);
+        assertFalse(window.addLive(message(5)));
+        assertFalse(window.contains("m05"));
+        assertEquals(3, window.size());
+    }
+
+    @Test
+    void markReadOnlyTouchesReceivedMessages() {
+        List<Message> messages = messages(0, 2);
+        messages.get(0).setReceiverId("me");
+        messages.get(0).setIsRead(false);
+        messages.get(1).setReceiverId("other");
+        messages.get(1).setIsRead(false);
+        MessageWindow window = new MessageWindow(10, messages, false, false);
+
+        window.markRead("me");
+        assertTrue(window.first().getIsRead());
+        assertFalse(window.last().getIsRead());
+    }
+
+    private static List<Message> messages(int from, int to) {
+        List<Message> messages = new ArrayList<>();
+        for (int i = from; i < to; i++) {
+            messages.add(message(i));
+        }
+        return messages;
+    }
+
+    private static Message message(int index) {
+        Message message = new Message();
+        message.setId(String.format("m%02d", index));
+        message.setCreatedAt(String.format("2025-01-01T10:%02d:00Z", index));
+        return message;
+    }
+
+    private static List<String> ids(List<Message> messages) {
+        List<String> ids = new ArrayList<>();
+        for (Message message : messages) {
+            ids.add(message.getId());
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,257 @@
+package at.ac.hcw.campusconnect.tools;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+
+/**
+ * Implicit-feedback alternating least squares (Hu, Koren and Volinsky) on the swiper x target
+ * matrix built from user_actions.
+ * <p>
+ * Every user gets a taste vector (as swiper) and an appeal vector (as target); taste · appeal
+ * estimates how likely the swiper likes the target. A like is an observed preference of 1 with
+ * confidence 1 + likeAlpha, a pass an observed preference of 0 with confidence 1 + passAlpha,
+ * everything else a preference of 0 with confidence 1. Each half step solves one small k x k
+ * system per user, independently, so the users are spread over the worker threads.
+ */
+class AlsTrainer {
+    private final int users;
+    private final int factors;
+    private final float regularization;
+    private final float likeAlpha;
+    private final float passAlpha;
+    private final ForkJoinPool pool;
+
+    // Swiper rows and target rows of the matrix in CSR form
+    private final int[] swiperStart;
+    private final int[] swiperTargets;
+    private final boolean[] swiperLikes;
+    private final int[] targetStart;
+    private final int[] targetSwipers;
+    private final boolean[] targetLikes;
+
+    final float[][] taste;
+    final float[][] appeal;
+
+    /**
+     * @param users Number of users, IDs are 0..users-1
+     * @param swipers Swiper of each action
+     * @param targets Target of each action
+     * @param likes Whether each action is a like
+     */
+    AlsTrainer(int users, int[] swipers, int[] targets, boolean[] likes, int factors,
+               float regularization, float likeAlpha, float passAlpha, int threads) {
+        this.users = users;
+        this.factors = factors;
+        this.regularization = regularization;
+        this.likeAlpha = likeAlpha;
+        this.passAlpha = passAlpha;
+        this.pool = new ForkJoinPool(threads);
+
+        this.swiperStart = new int[users + 1];
+        this.swiperTargets = new int[swipers.length];
+        this.swiperLikes = new boolean[swipers.length];
+        this.targetStart = new int[users + 1];
+        this.targetSwipers = new int[swipers.length];
+        this.targetLikes = new boolean[swipers.length];
+        buildCsr(swipers, targets, likes, swiperStart, swiperTargets, swiperLikes);
+        buildCsr(targets, swipers, likes, targetStart, targetSwipers, targetLikes);
+
+        this.taste = new float[users][];
+        this.appeal = new float[users][];
+    }
+
+    /**
+     * Fill missing factor vectors with small random values
+     */
+    void initializeMissing(long seed) {
+        Random random = new Random(seed);
+        float scale = 0.1f / (float) Math.sqrt(factors);
+        for (int user = 0; user < users; user++) {
+            if (taste[user] == null) {
+                taste[user] = randomVector(random, scale);
+            }
+            if (appeal[user] == null) {
+                appeal[user] = randomVector(random, scale);
+            }
+        }
+    }
+
+    /**
+     * Full sweeps: all taste vectors, then all appeal vectors
+     */
+    void train(int iterations) {
+        int[] everyone = IntStream.range(0, users).toArray();
+        for (int iteration = 0; iteration < iterations; iteration++) {
+            solveTaste(everyone);
+            solveAppeal(everyone);
+        }
+    }
+
+    /**
+     * Incremental retraining: only the users touched by new actions are re-solved, starting
+     * from the previous factors, everyone else keeps theirs.
+     *
+     * @param swipers Users with new actions, their taste vectors are updated
+     * @param targets Targets of the new actions, their appeal vectors are updated
+     */
+    void update(int[] swipers, int[] targets, int sweeps) {
+        for (int sweep = 0; sweep < sweeps; sweep++) {
+            solveTaste(swipers);
+            solveAppeal(targets);
+        }
+    }
+
+    /**
+     * Recompute the taste vectors of some users with the appeal vectors fixed
+     */
+    void solveTaste(int[] swipers) {
+        float[] gram = gram(appeal);
+        run(swipers, swiper -> taste[swiper] = solve(gram, appeal,
+                swiperStart[swiper], swiperStart[swiper + 1], swiperTargets, swiperLikes));
+    }
+
+    /**
+     * Recompute the appeal vectors of some users with the taste vectors fixed
+     */
+    void solveAppeal(int[] targets) {
+        float[] gram = gram(taste);
+        run(targets, target -> appeal[target] = solve(gram, taste,
+                targetStart[target], targetStart[target + 1], targetSwipers, targetLikes));
+    }
+
+    void shutdown() {
+        pool.shutdown();
+    }
+
+    private void run(int[] ids, IntConsumer task) {
+        pool.submit(() -> Arrays.stream(ids).parallel().forEach(task)).join();
+    }
+
+    /**
+     * Solve (YtY + Yt(C - I)Y + lambda I) x = Yt C p for one row
+     */
+    private float[] solve(float[] gram, float[][] fixed, int from, int to, int[] columns, boolean[] likes) {
+        int k = factors;
+        double[] a = new double[k * k];
+        double[] b = new double[k];
+        for (int i = 0; i < k * k; i++) {
+            a[i] = gram[i];
+        }
+        for (int i = 0; i < k; i++) {
+            a[i * k + i] += regularization;
+        }
+
+        for (int entry = from; entry < to; entry++) {
+            float[] y = fixed[columns[entry]];
+            boolean like = likes[entry];
+            double extraConfidence = like ? likeAlpha : passAlpha;
+            for (int i = 0; i < k; i++) {
+                double scaled = extraConfidence * y[i];
+                for (int j = 0; j <= i; j++) {
+                    a[i * k + j] += scaled * y[j];
+                }
+                if (like) {
+                    b[i] += (1 + likeAlpha) * y[i];
+                }
+            }
+        }
+        return choleskySolve(a, b, k);
+    }
+
+    /**
+     * YtY of the fixed side, lower triangle is enough for the solver
+     */
+    private float[] gram(float[][] vectors) {
+        int k = factors;
+        double[] gram = pool.submit(() -> Arrays.stream(vectors).parallel()
+                .collect(() -> new double[k * k], (sum, y) -> {
+                    for (int i = 0; i < k; i++) {
+                        for (int j = 0; j <= i; j++) {
+                            sum[i * k + j] += y[i] * y[j];
+                        }
+                    }
+                }, (left, right) -> {
+                    for (int i = 0; i < left.length; i++) {
+                        left[i] += right[i];
+                    }
+                })).join();
+        float[] result = new float[k * k];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = (float) gram[i];
+        }
+        return result;
+    }
+
+    /**
+     * Solve A x = b for a symmetric positive definite A given by its lower triangle (in place)
+     */
+    private static float[] choleskySolve(double[] a, double[] b, int k) {
+        for (int j = 0; j < k; j++) {
+            double diagonal = a[j * k + j];
+            for (int m = 0; m < j; m++) {
+                diagonal -= a[j * k + m] * a[j * k + m];
+            }
+            diagonal = Math.sqrt(Math.max(diagonal, 1e-12));
+            a[j * k + j] = diagonal;
+            for (int i = j + 1; i < k; i++) {
+                double value = a[i * k + j];
+                for (int m = 0; m < j; m++) {
+                    value -= a[i * k + m] * a[j * k + m];
+                }
+                a[i * k + j] = value / diagonal;
+            }
+        }
+        // Forward substitution L z = b, then back substitution Lt x = z
+        for (int i = 0; i < k; i++) {
+            double value = b[i];
+            for (int m = 0; m < i; m++) {
+                value -= a[i * k + m] * b[m];
+            }
+            b[i] = value / a[i * k + i];
+        }
+        float[] x = new float[k];
+        for (int i = k - 1; i >= 0; i--) {
+            double value = b[i];
+            for (int m = i + 1; m < k; m++) {
+                value -= a[m * k + i] * x[m];
+            }
+            x[i] = (float) (value / a[i * k + i]);
+        }
+        return x;
+    }
+
+    private float[] randomVector(Random random, float scale) {
+        float[] vector = new float[factors];
+        for (int i = 0; i < factors; i++) {
+            vector[i] = (float) random.nextGaussian() * scale;
+        }
+        return vector;
+    }
+
+    private static void buildCsr(int[] rows, int[] columns, boolean[] likes,
+                                 int[] start, int[] targetColumns, boolean[] targetLikes) {
+        for (int row : rows) {
+            start[row + 1]++;
+        }
+        for (int i = 1; i < start.length; i++) {
+            start[i] += start[i - 1];
+        }
+        int[] next = Arrays.copyOf(start, start.length - 1);
+        for (int i = 0; i < rows.length; i++) {
+            int position = next[rows[i]]++;
+            targetColumns[position] = columns[i];
+            targetLikes[position] = likes[i];
+        }
+    }
+
+    static float dot(float[] a, float[] b) {
+        float sum = 0;
+        for (int i = 0; i < a.length; i++) {
+            sum += a[i] * b[i];
+        }
+        return sum;
+    }
+}
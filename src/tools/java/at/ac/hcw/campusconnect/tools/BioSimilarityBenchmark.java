@@ -0,0 +1,164 @@
+package at.ac.hcw.campusconnect.tools;
+
+import at.ac.hcw.campusconnect.util.HnswIndex;
+import at.ac.hcw.campusconnect.util.TextVectorizer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Recall vs. latency of the HNSW bio index against exact brute-force search.
+ * <p>
+ * Generates synthetic bios (topic words mixed with Zipf-distributed filler words), vectorizes
+ * them like BioSimilarity does and compares the top-10 neighbours of random query bios.
+ * <p>
+ * Usage: {@code BioSimilarityBenchmark [size ...]} (default 10000 100000)
+ */
+public class BioSimilarityBenchmark {
+    private static final int DIMENSIONS = 64;
+    private static final int LINKS = 16;
+    private static final int EF_CONSTRUCTION = 100;
+    private static final int K = 10;
+    private static final int QUERIES = 500;
+    private static final int[] SEARCH_EFS = {10, 20, 50, 100, 200};
+
+    private static final int VOCABULARY = 5000;
+    private static final int TOPICS = 200;
+    private static final int WORDS_PER_TOPIC = 30;
+
+    public static void main(String[] args) {
+        int[] sizes = args.length > 0 ? new int[args.length] : new int[]{10_000, 100_000};
+        for (int i = 0; i < args.length; i++) {
+            sizes[i] = Integer.parseInt(args[i]);
+        }
+        for (int size : sizes) {
+            run(size);
+        }
+    }
+
+    private static void run(int size) {
+        Random random = new Random(size);
+        List<String> bios = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            bios.add(randomBio(random));
+        }
+        List<String> queryBios = new ArrayList<>(QUERIES);
+        for (int i = 0; i < QUERIES; i++) {
+            queryBios.add(randomBio(random));
+        }
+
+        TextVectorizer vectorizer = TextVectorizer.fit(bios, DIMENSIONS);
+        float[][] vectors = new float[size][];
+        for (int i = 0; i < size; i++) {
+            vectors[i] = vectorizer.vectorize(bios.get(i));
+        }
+        float[][] queries = new float[QUERIES][];
+        for (int i = 0; i < QUERIES; i++) {
+            queries[i] = vectorizer.vectorize(queryBios.get(i));
+        }
+
+        long buildStart = System.nanoTime();
+        HnswIndex index = new HnswIndex(LINKS, EF_CONSTRUCTION, 42);
+        for (float[] vector : vectors) {
+            index.add(vector);
+        }
+        double buildSeconds = (System.nanoTime() - buildStart) / 1e9;
+
+        // Warm up both paths before measuring
+        for (int i = 0; i < Math.min(100, QUERIES); i++) {
+            bruteForce(vectors, queries[i]);
+            index.search(queries[i], K, 50);
+        }
+
+        int[][] exact = new int[QUERIES][];
+        long bruteStart = System.nanoTime();
+        for (int i = 0; i < QUERIES; i++) {
+            exact[i] = bruteForce(vectors, queries[i]);
+        }
+        double bruteMicros = (System.nanoTime() - bruteStart) / 1e3 / QUERIES;
+
+        System.out.printf("%n%,d bios, %d dimensions, HNSW M=%d efConstruction=%d built in %.2f s%n",
+                size, DIMENSIONS, LINKS, EF_CONSTRUCTION, buildSeconds);
+        System.out.printf("%-14s %10s %14s%n", "search", "recall@" + K, "latency (us)");
+        System.out.printf("%-14s %10.3f %14.1f%n", "brute force", 1.0, bruteMicros);
+
+        for (int ef : SEARCH_EFS) {
+            int hits = 0;
+            long start = System.nanoTime();
+            int[][] approximate = new int[QUERIES][];
+            for (int i = 0; i < QUERIES; i++) {
+                approximate[i] = index.search(queries[i], K, ef);
+            }
+            double micros = (System.nanoTime() - start) / 1e3 / QUERIES;
+            for (int i = 0; i < QUERIES; i++) {
+                hits += overlap(exact[i], approximate[i]);
+            }
+            System.out.printf("%-14s %10.3f %14.1f%n", "hnsw ef=" + ef, hits / (double) (QUERIES * K), micros);
+        }
+    }
+
+    private static int[] bruteForce(float[][] vectors, float[] query) {
+        int[] best = new int[K];
+        float[] bestSimilarity = new float[K];
+        Arrays.fill(bestSimilarity, Float.NEGATIVE_INFINITY);
+        for (int i = 0; i < vectors.length; i++) {
+            float similarity = TextVectorizer.dot(query, vectors[i]);
+            if (similarity <= bestSimilarity[K - 1]) {
+                continue;
+            }
+            int position = K - 1;
+            while (position > 0 && bestSimilarity[position - 1] < similarity) {
+                bestSimilarity[position] = bestSimilarity[position - 1];
+                best[position] = best[position - 1];
+                position--;
+            }
+            bestSimilarity[position] = similarity;
+            best[position] = i;
+        }
+        return best;
+    }
+
+    private static int overlap(int[] exact, int[] approximate) {
+        int hits = 0;
+        for (int a : approximate) {
+            for (int e : exact) {
+                if (a == e) {
+                    hits++;
+                    break;
+                }
+            }
+        }
+        return hits;
+    }
+
+    /**
+     * One or two topics plus filler words, 15 to 40 words
+     */
+    private static String randomBio(Random random) {
+        int topicCount = 1 + random.nextInt(2);
+        int[] topics = new int[topicCount];
+        for (int i = 0; i < topicCount; i++) {
+            topics[i] = random.nextInt(TOPICS);
+        }
+
+        StringBuilder bio = new StringBuilder();
+        int length = 15 + random.nextInt(26);
+        for (int i = 0; i < length; i++) {
+            int word;
+            if (random.nextDouble() < 0.5) {
+                word = VOCABULARY + topics[random.nextInt(topicCount)] * WORDS_PER_TOPIC + random.nextInt(WORDS_PER_TOPIC);
+            } else {
+                word = zipf(random);
+            }
+            bio.append("w").append(word).append(' ');
+        }
+        return bio.toString();
+    }
+
+    private static int zipf(Random random) {
+        // Inverse CDF approximation of a Zipf(1) distribution over the vocabulary
+        return (int) Math.floor(Math.pow(VOCABULARY, random.nextDouble())) - 1;
+    }
+}
@@ -0,0 +1,207 @@
+package at.ac.hcw.campusconnect.tools;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Training speed and ranking quality of the ALS factorization on synthetic swipes.
+ * <p>
+ * Users belong to hidden communities and like members of their own community far more often
+ * than others. One like per user is held out; quality is the hit rate@10 of the held-out
+ * target among 100 random targets the user never swiped on, compared to ranking by like count.
+ * Full training is timed single threaded and on all cores, incremental retraining after 1% of
+ * the users swiped again is timed against a full retrain.
+ * <p>
+ * Usage: {@code CollaborativeFilteringBenchmark [users ...]} (default 10000 50000)
+ */
+public class CollaborativeFilteringBenchmark {
+    private static final int COMMUNITIES = 50;
+    private static final int SWIPES_PER_USER = 60;
+    private static final double OWN_COMMUNITY_SHARE = 0.4;
+    private static final double LIKE_OWN = 0.6;
+    private static final double LIKE_OTHER = 0.05;
+    private static final int CANDIDATES = 100;
+    private static final int K = 10;
+    private static final double NEW_SWIPERS_SHARE = 0.01;
+
+    public static void main(String[] args) {
+        int[] sizes = args.length > 0 ? new int[args.length] : new int[]{10_000, 50_000};
+        for (int i = 0; i < args.length; i++) {
+            sizes[i] = Integer.parseInt(args[i]);
+        }
+        for (int size : sizes) {
+            run(size);
+        }
+    }
+
+    private static void run(int users) {
+        Random random = new Random(users);
+        int[] community = new int[users];
+        for (int user = 0; user < users; user++) {
+            community[user] = random.nextInt(COMMUNITIES);
+        }
+        int[][] members = membersByCommunity(community);
+
+        // Training swipes, plus one held-out like per user
+        int capacity = users * SWIPES_PER_USER;
+        int[] swipers = new int[capacity];
+        int[] targets = new int[capacity];
+        boolean[] likes = new boolean[capacity];
+        int[] heldOut = new int[users];
+        Arrays.fill(heldOut, -1);
+        int count = 0;
+        for (int user = 0; user < users; user++) {
+            for (int swipe = 0; swipe < SWIPES_PER_USER; swipe++) {
+                int target = randomTarget(random, user, community, members);
+                boolean like = random.nextDouble() < (community[target] == community[user] ? LIKE_OWN : LIKE_OTHER);
+                if (like && heldOut[user] < 0) {
+                    heldOut[user] = target;
+                    continue;
+                }
+                swipers[count] = user;
+                targets[count] = target;
+                likes[count] = like;
+                count++;
+            }
+        }
+        swipers = Arrays.copyOf(swipers, count);
+        targets = Arrays.copyOf(targets, count);
+        likes = Arrays.copyOf(likes, count);
+
+        System.out.printf("%n%,d users, %,d swipes, %d factors, %d iterations%n",
+                users, count, CollaborativeFilteringJob.FACTORS, CollaborativeFilteringJob.ITERATIONS);
+        System.out.printf("%-28s %12s %12s%n", "", "time (s)", "hit rate@" + K);
+        System.out.printf("%-28s %12s %12.3f%n", "popularity", "-",
+                hitRate(random, users, swipers, targets, likes, heldOut, null));
+
+        int cores = Runtime.getRuntime().availableProcessors();
+        double singleSeconds = 0;
+        AlsTrainer trained = null;
+        for (int threads : cores > 1 ? new int[]{1, cores} : new int[]{1}) {
+            AlsTrainer trainer = trainer(users, swipers, targets, likes, threads);
+            long start = System.nanoTime();
+            trainer.initializeMissing(42);
+            trainer.train(CollaborativeFilteringJob.ITERATIONS);
+            double seconds = (System.nanoTime() - start) / 1e9;
+            if (threads == 1) {
+                singleSeconds = seconds;
+            }
+            System.out.printf("%-28s %12.2f %12.3f%n", "als " + threads + " thread(s)"
+                            + (threads > 1 ? String.format(" (%.1fx)", singleSeconds / seconds) : ""),
+                    seconds, hitRate(random, users, swipers, targets, likes, heldOut, trainer));
+            trainer.shutdown();
+            trained = trainer;
+        }
+
+        // A few users swipe again, then retrain incrementally from the previous factors
+        int newSwipers = Math.max(1, (int) (users * NEW_SWIPERS_SHARE));
+        int total = count + newSwipers * SWIPES_PER_USER / 4;
+        int[] moreSwipers = Arrays.copyOf(swipers, total);
+        int[] moreTargets = Arrays.copyOf(targets, total);
+        boolean[] moreLikes = Arrays.copyOf(likes, total);
+        for (int i = count; i < total; i++) {
+            int user = random.nextInt(users);
+            int target = randomTarget(random, user, community, members);
+            moreSwipers[i] = user;
+            moreTargets[i] = target;
+            moreLikes[i] = random.nextDouble() < (community[target] == community[user] ? LIKE_OWN : LIKE_OTHER);
+        }
+        int[] changedSwipers = Arrays.stream(moreSwipers, count, total).distinct().toArray();
+        int[] changedTargets = Arrays.stream(moreTargets, count, total).distinct().toArray();
+
+        AlsTrainer incremental = trainer(users, moreSwipers, moreTargets, moreLikes, cores);
+        for (int user = 0; user < users; user++) {
+            incremental.taste[user] = trained.taste[user].clone();
+            incremental.appeal[user] = trained.appeal[user].clone();
+        }
+        long start = System.nanoTime();
+        incremental.update(changedSwipers, changedTargets, CollaborativeFilteringJob.INCREMENTAL_SWEEPS);
+        double incrementalSeconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%-28s %12.2f %12.3f%n", "incremental (" + (total - count) + " swipes)",
+                incrementalSeconds, hitRate(random, users, moreSwipers, moreTargets, moreLikes, heldOut, incremental));
+        incremental.shutdown();
+
+        AlsTrainer retrained = trainer(users, moreSwipers, moreTargets, moreLikes, cores);
+        start = System.nanoTime();
+        retrained.initializeMissing(42);
+        retrained.train(CollaborativeFilteringJob.ITERATIONS);
+        double fullSeconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%-28s %12.2f %12.3f%n", "full retrain",
+                fullSeconds, hitRate(random, users, moreSwipers, moreTargets, moreLikes, heldOut, retrained));
+        retrained.shutdown();
+    }
+
+    private static AlsTrainer trainer(int users, int[] swipers, int[] targets, boolean[] likes, int threads) {
+        return new AlsTrainer(users, swipers, targets, likes, CollaborativeFilteringJob.FACTORS,
+                CollaborativeFilteringJob.REGULARIZATION, CollaborativeFilteringJob.LIKE_ALPHA,
+                CollaborativeFilteringJob.PASS_ALPHA, threads);
+    }
+
+    /**
+     * Share of users whose held-out target ranks in the top K among CANDIDATES random unswiped
+     * targets, scored by the factors or, without a trainer, by like count
+     */
+    private static double hitRate(Random random, int users, int[] swipers, int[] targets, boolean[] likes,
+                                  int[] heldOut, AlsTrainer trainer) {
+        int[] likeCount = new int[users];
+        for (int i = 0; i < targets.length; i++) {
+            if (likes[i]) {
+                likeCount[targets[i]]++;
+            }
+        }
+
+        int tested = 0;
+        int hits = 0;
+        for (int user = 0; user < users; user++) {
+            if (heldOut[user] < 0) {
+                continue;
+            }
+            float heldOutScore = score(trainer, likeCount, user, heldOut[user]);
+            int better = 0;
+            for (int i = 0; i < CANDIDATES; i++) {
+                int candidate = random.nextInt(users);
+                // Swipes are random, so a random target is almost never one the user already swiped on
+                if (candidate != user && candidate != heldOut[user]
+                        && score(trainer, likeCount, user, candidate) > heldOutScore) {
+                    better++;
+                }
+            }
+            tested++;
+            if (better < K) {
+                hits++;
+            }
+        }
+        return tested > 0 ? hits / (double) tested : 0;
+    }
+
+    private static float score(AlsTrainer trainer, int[] likeCount, int user, int target) {
+        return trainer != null ? AlsTrainer.dot(trainer.taste[user], trainer.appeal[target]) : likeCount[target];
+    }
+
+    private static int randomTarget(Random random, int user, int[] community, int[][] members) {
+        while (true) {
+            int target = random.nextDouble() < OWN_COMMUNITY_SHARE
+                    ? members[community[user]][random.nextInt(members[community[user]].length)]
+                    : random.nextInt(community.length);
+            if (target != user) {
+                return target;
+            }
+        }
+    }
+
+    private static int[][] membersByCommunity(int[] community) {
+        int[] sizes = new int[COMMUNITIES];
+        for (int c : community) {
+            sizes[c]++;
+        }
+        int[][] members = new int[COMMUNITIES][];
+        for (int c = 0; c < COMMUNITIES; c++) {
+            members[c] = new int[sizes[c]];
+        }
+        int[] next = new int[COMMUNITIES];
+        for (int user = 0; user < community.length; user++) {
+            members[community[user]][next[community[user]]++] = user;
+        }
+        return members;
+    }
+}
@@ -0,0 +1,203 @@
+package at.ac.hcw.campusconnect.tools;
+
+import at.ac.hcw.campusconnect.models.UserAction;
+import at.ac.hcw.campusconnect.models.UserFactors;
+import com.fasterxml.jackson.core.type.TypeReference;
+
+import java.time.OffsetDateTime;
+import java.util.*;
+
+/**
+ * Headless batch job that trains the collaborative-filtering factors from user_actions.
+ * <p>
+ * Likes and passes form a sparse swiper x target matrix, which is factorized with implicit
+ * alternating least squares (AlsTrainer) on all cores. The result is a taste and an appeal
+ * vector of FACTORS floats per user in user_factors; DiscoverQueueJob ranks with their dot products.
+ * <p>
+ * A full run trains from scratch. With --incremental the stored factors are kept and only users
+ * touched by actions newer than the last training are re-solved: the swipers' taste vectors and
+ * their targets' appeal vectors. New users start from random vectors. A full run now and then
+ * lets everything settle again.
+ * <p>
+ * Usage: {@code CollaborativeFilteringJob [--incremental] [--workers N]}
+ * Needs SUPABASE_URL and SUPABASE_SERVICE_ROLE_KEY in the .env file.
+ */
+public class CollaborativeFilteringJob {
+    static final int FACTORS = 16;
+    static final float REGULARIZATION = 0.1f;
+    static final float LIKE_ALPHA = 20f;
+    static final float PASS_ALPHA = 5f;
+    static final int ITERATIONS = 10;
+    static final int INCREMENTAL_SWEEPS = 2;
+
+    private static final int WRITE_BATCH_SIZE = 500;
+
+    private final ServiceRoleClient client;
+
+    CollaborativeFilteringJob(ServiceRoleClient client) {
+        this.client = client;
+    }
+
+    public static void main(String[] args) throws Exception {
+        boolean incremental = false;
+        int workers = Runtime.getRuntime().availableProcessors();
+        for (int i = 0; i < args.length; i++) {
+            if ("--incremental".equals(args[i])) {
+                incremental = true;
+            } else if ("--workers".equals(args[i]) && i + 1 < args.length) {
+                workers = Math.max(1, Integer.parseInt(args[++i]));
+            } else {
+                System.err.println("Usage: CollaborativeFilteringJob [--incremental] [--workers N]");
+                System.exit(2);
+            }
+        }
+
+        new CollaborativeFilteringJob(ServiceRoleClient.fromEnv()).run(incremental, workers);
+    }
+
+    /**
+     * Train (fully or incrementally), write the changed factors and print the timings
+     */
+    public void run(boolean incremental, int workers) throws Exception {
+        long started = System.nanoTime();
+        // Taken before reading, actions created while the job runs are picked up by the next incremental run
+        String trainedAt = OffsetDateTime.now().toString();
+
+        List<UserAction> actions = client.fetchAll("/user_actions?select=user_id,target_user_id,action,created_at&order=id",
+                new TypeReference<List<UserAction>>() {
+                });
+        List<UserFactors> stored = incremental
+                ? client.fetchAll("/user_factors?select=*&order=user_id", new TypeReference<List<UserFactors>>() {
+                })
+                : List.of();
+        long loaded = System.nanoTime();
+
+        // Dense IDs for everyone who swiped or was swiped on
+        Map<String, Integer> idByUser = new HashMap<>();
+        List<String> users = new ArrayList<>();
+        int[] swipers = new int[actions.size()];
+        int[] targets = new int[actions.size()];
+        boolean[] likes = new boolean[actions.size()];
+        for (int i = 0; i < actions.size(); i++) {
+            UserAction action = actions.get(i);
+            swipers[i] = idByUser.computeIfAbsent(action.getUserId(), user -> addUser(users, user));
+            targets[i] = idByUser.computeIfAbsent(action.getTargetUserId(), user -> addUser(users, user));
+            likes[i] = "like".equals(action.getAction());
+        }
+
+        AlsTrainer trainer = new AlsTrainer(users.size(), swipers, targets, likes, FACTORS,
+                REGULARIZATION, LIKE_ALPHA, PASS_ALPHA, workers);
+        int[] changed;
+        if (incremental && !stored.isEmpty()) {
+            changed = trainIncrementally(trainer, stored, idByUser, actions, swipers, targets);
+        } else {
+            trainer.initializeMissing(42);
+            trainer.train(ITERATIONS);
+            changed = new int[users.size()];
+            Arrays.setAll(changed, id -> id);
+        }
+        trainer.shutdown();
+        long trained = System.nanoTime();
+
+        int written = 0;
+        List<UserFactors> batch = new ArrayList<>();
+        for (int id : changed) {
+            UserFactors factors = new UserFactors();
+            factors.setUserId(users.get(id));
+            factors.setTaste(trainer.taste[id]);
+            factors.setAppeal(trainer.appeal[id]);
+            factors.setTrainedAt(trainedAt);
+            batch.add(factors);
+            if (batch.size() == WRITE_BATCH_SIZE) {
+                written += writeFactors(batch);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            written += writeFactors(batch);
+        }
+
+        long finished = System.nanoTime();
+        System.out.printf("Loaded %d actions of %d users in %.2f s%n", actions.size(), users.size(), (loaded - started) / 1e9);
+        System.out.printf("%s training with %d workers in %.2f s, wrote %d of %d changed users in %.2f s%n",
+                incremental && !stored.isEmpty() ? "Incremental" : "Full", workers, (trained - loaded) / 1e9,
+                written, changed.length, (finished - trained) / 1e9);
+    }
+
+    /**
+     * Warm start from the stored factors and re-solve the users touched by newer actions
+     *
+     * @return IDs of the users whose factors changed
+     */
+    private int[] trainIncrementally(AlsTrainer trainer, List<UserFactors> stored, Map<String, Integer> idByUser,
+                                     List<UserAction> actions, int[] swipers, int[] targets) {
+        OffsetDateTime lastTrained = null;
+        for (UserFactors factors : stored) {
+            Integer id = idByUser.get(factors.getUserId());
+            if (id != null && isComplete(factors)) {
+                trainer.taste[id] = factors.getTaste();
+                trainer.appeal[id] = factors.getAppeal();
+            }
+            OffsetDateTime time = parse(factors.getTrainedAt());
+            if (time != null && (lastTrained == null || time.isAfter(lastTrained))) {
+                lastTrained = time;
+            }
+        }
+
+        Set<Integer> changedSwipers = new TreeSet<>();
+        Set<Integer> changedTargets = new TreeSet<>();
+        for (int id = 0; id < trainer.taste.length; id++) {
+            if (trainer.taste[id] == null) {
+                changedSwipers.add(id);
+                changedTargets.add(id);
+            }
+        }
+        for (int i = 0; i < actions.size(); i++) {
+            OffsetDateTime createdAt = parse(actions.get(i).getCreatedAt());
+            if (lastTrained == null || createdAt == null || createdAt.isAfter(lastTrained)) {
+                changedSwipers.add(swipers[i]);
+                changedTargets.add(targets[i]);
+            }
+        }
+
+        trainer.initializeMissing(42);
+        trainer.update(toArray(changedSwipers), toArray(changedTargets), INCREMENTAL_SWEEPS);
+
+        Set<Integer> changed = new TreeSet<>(changedSwipers);
+        changed.addAll(changedTargets);
+        return toArray(changed);
+    }
+
+    /**
+     * Upsert one batch of factor rows
+     *
+     * @return Number of rows written
+     */
+    private int writeFactors(List<UserFactors> batch) {
+        boolean stored = client.post("/user_factors?on_conflict=user_id", batch,
+                "resolution=merge-duplicates,return=minimal");
+        return stored ? batch.size() : 0;
+    }
+
+    private static int addUser(List<String> users, String user) {
+        users.add(user);
+        return users.size() - 1;
+    }
+
+    private static boolean isComplete(UserFactors factors) {
+        return factors.getTaste() != null && factors.getTaste().length == FACTORS
+                && factors.getAppeal() != null && factors.getAppeal().length == FACTORS;
+    }
+
+    private static int[] toArray(Set<Integer> ids) {
+        return ids.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    private static OffsetDateTime parse(String timestamp) {
+        try {
+            return timestamp != null ? OffsetDateTime.parse(timestamp) : null;
+        } catch (Exception e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,334 @@
+package at.ac.hcw.campusconnect.tools;
+
+import at.ac.hcw.campusconnect.models.DiscoverQueueEntry;
+import at.ac.hcw.campusconnect.models.DiscoverQueueState;
+import at.ac.hcw.campusconnect.models.Profile;
+import at.ac.hcw.campusconnect.models.UserAction;
+import at.ac.hcw.campusconnect.models.UserFactors;
+import at.ac.hcw.campusconnect.services.ActionedUserSet;
+import at.ac.hcw.campusconnect.services.BioSimilarity;
+import at.ac.hcw.campusconnect.services.CandidateStore;
+import at.ac.hcw.campusconnect.services.CollaborativeScores;
+import at.ac.hcw.campusconnect.services.CompatibilityTable;
+import at.ac.hcw.campusconnect.services.RankingEngine;
+import com.fasterxml.jackson.core.type.TypeReference;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Headless batch job that precomputes the discover queue of every user.
+ * <p>
+ * Ranking is the same as in the app (RankingEngine), with similar bios found through an HNSW
+ * index over all bios instead of a scan per user, plus the collaborative-filtering bonus from
+ * the factors of CollaborativeFilteringJob (run that one first). By default only stale queues are
+ * recomputed: users without a queue, users whose profile or actions changed since their
+ * queue was computed, users with a pass that expired since, users for whom a compatible
+ * profile was created or updated since, and users with a queued candidate that changed since
+ * (it may no longer be compatible).
+ * Stale users are split into partitions by user ID and ranked by parallel workers;
+ * each worker writes its queues in batches through the replace_discover_queues RPC.
+ * <p>
+ * Usage: {@code DiscoverQueueJob [--full] [--workers N]}
+ * Needs SUPABASE_URL and SUPABASE_SERVICE_ROLE_KEY in the .env file.
+ */
+public class DiscoverQueueJob {
+    private static final int QUEUE_LENGTH = 200;
+    private static final int WRITE_BATCH_SIZE = 50;
+    private static final int ID_FILTER_SIZE = 100; // User IDs per in.(...) filter, keeps the URLs short
+    private static final int DEFAULT_PASS_EXPIRY_DAYS = 90;
+
+    private final ServiceRoleClient client;
+
+    DiscoverQueueJob(ServiceRoleClient client) {
+        this.client = client;
+    }
+
+    public static void main(String[] args) throws Exception {
+        boolean full = false;
+        int workers = Runtime.getRuntime().availableProcessors();
+        for (int i = 0; i < args.length; i++) {
+            if ("--full".equals(args[i])) {
+                full = true;
+            } else if ("--workers".equals(args[i]) && i + 1 < args.length) {
+                workers = Math.max(1, Integer.parseInt(args[++i]));
+            } else {
+                System.err.println("Usage: DiscoverQueueJob [--full] [--workers N]");
+                System.exit(2);
+            }
+        }
+
+        new DiscoverQueueJob(ServiceRoleClient.fromEnv()).run(full, workers);
+    }
+
+    /**
+     * Recompute stale queues (or all with full) and print the throughput
+     */
+    public void run(boolean full, int workers) throws Exception {
+        long started = System.nanoTime();
+        // Taken before reading, so changes made while the job runs mark the user stale next time
+        OffsetDateTime now = OffsetDateTime.now();
+        String computedAt = now.toString();
+
+        List<Profile> profiles = client.fetchAll("/profiles?select=*&order=user_id", new TypeReference<List<Profile>>() {
+        });
+        List<UserAction> actions = client.fetchAll("/user_actions?select=user_id,target_user_id,action,created_at&order=id",
+                new TypeReference<List<UserAction>>() {
+                });
+        List<UserFactors> factors = client.fetchAll("/user_factors?select=user_id,taste,appeal&order=user_id",
+                new TypeReference<List<UserFactors>>() {
+                });
+        List<Map<String, Integer>> settings = client.fetchAll("/action_settings?select=pass_expiry_days&order=id",
+                new TypeReference<List<Map<String, Integer>>>() {
+                });
+        Duration passExpiry = Duration.ofDays(settings.isEmpty() ? DEFAULT_PASS_EXPIRY_DAYS
+                : settings.get(0).get("pass_expiry_days"));
+        Map<String, String> computedAtByUser = new HashMap<>();
+        if (!full) {
+            List<DiscoverQueueState> states = client.fetchAll("/discover_queue_state?select=*&order=user_id",
+                    new TypeReference<List<DiscoverQueueState>>() {
+                    });
+            states.forEach(state -> computedAtByUser.put(state.getUserId(), state.getComputedAt()));
+        }
+
+        Map<String, List<UserAction>> actionsByUser = new HashMap<>();
+        for (UserAction action : actions) {
+            actionsByUser.computeIfAbsent(action.getUserId(), id -> new ArrayList<>()).add(action);
+        }
+
+        List<Profile> stale = full ? profiles : findStaleUsers(profiles, actionsByUser, computedAtByUser, passExpiry, now);
+        long loaded = System.nanoTime();
+
+        // Partition by user ID, one partition per worker
+        List<List<Profile>> partitions = new ArrayList<>();
+        for (int i = 0; i < workers; i++) {
+            partitions.add(new ArrayList<>());
+        }
+        for (Profile viewer : stale) {
+            partitions.get(Math.floorMod(viewer.getUserId().hashCode(), workers)).add(viewer);
+        }
+
+        // Read-only after construction, shared by all workers
+        CandidateStore store = CandidateStore.of(profiles);
+        BioSimilarity bios = BioSimilarity.of(profiles, true);
+        CollaborativeScores collaborative = CollaborativeScores.of(store, factors);
+        RankingEngine engine = RankingEngine.withDefaults()
+                .add(bios)
+                .add(collaborative);
+
+        ExecutorService executor = Executors.newFixedThreadPool(workers);
+        List<Future<int[]>> results = new ArrayList<>();
+        for (List<Profile> partition : partitions) {
+            results.add(executor.submit(() -> rankPartition(store, engine, partition, actionsByUser, passExpiry, computedAt)));
+        }
+        int written = 0;
+        int failed = 0;
+        for (Future<int[]> result : results) {
+            written += result.get()[0];
+            failed += result.get()[1];
+        }
+        executor.shutdown();
+
+        long finished = System.nanoTime();
+        double loadSeconds = (loaded - started) / 1e9;
+        double rankSeconds = (finished - loaded) / 1e9;
+        System.out.printf("Loaded %d profiles and %d actions in %.2f s%n", profiles.size(), actions.size(), loadSeconds);
+        System.out.printf("Ranked and wrote %d of %d stale users with %d workers in %.2f s (%.1f users/s), %d failed%n",
+                written, stale.size(), workers, rankSeconds, rankSeconds > 0 ? written / rankSeconds : 0.0, failed);
+    }
+
+    /**
+     * Users whose queue is missing or older than a change that affects it
+     */
+    private List<Profile> findStaleUsers(List<Profile> profiles, Map<String, List<UserAction>> actionsByUser,
+                                         Map<String, String> computedAtByUser, Duration passExpiry,
+                                         OffsetDateTime now) throws Exception {
+        // Oldest queue: profiles changed before it cannot affect any queue
+        OffsetDateTime oldest = null;
+        for (String computedAt : computedAtByUser.values()) {
+            OffsetDateTime time = parse(computedAt);
+            if (time != null && (oldest == null || time.isBefore(oldest))) {
+                oldest = time;
+            }
+        }
+
+        List<Profile> changed = new ArrayList<>();
+        for (Profile profile : profiles) {
+            OffsetDateTime time = lastChange(profile);
+            if (oldest == null || time == null || time.isAfter(oldest)) {
+                changed.add(profile);
+            }
+        }
+
+        // Without any queue every user is stale anyway
+        Map<String, List<Profile>> queuedChangesByUser = oldest != null ? findQueuedProfiles(changed) : Map.of();
+
+        List<Profile> stale = new ArrayList<>();
+        for (Profile viewer : profiles) {
+            OffsetDateTime computedAt = parse(computedAtByUser.get(viewer.getUserId()));
+            if (computedAt == null || isAfter(lastChange(viewer), computedAt)
+                    || hasChangeAfter(queuedChangesByUser.get(viewer.getUserId()), computedAt)
+                    || hasActionsAfter(actionsByUser.get(viewer.getUserId()), computedAt)
+                    || hasPassExpiredAfter(actionsByUser.get(viewer.getUserId()), computedAt, passExpiry, now)
+                    || hasCompatibleChangeAfter(viewer, changed, computedAt)) {
+                stale.add(viewer);
+            }
+        }
+        return stale;
+    }
+
+    /**
+     * The given profiles grouped by the users whose current queue contains them
+     */
+    private Map<String, List<Profile>> findQueuedProfiles(List<Profile> candidates) throws Exception {
+        Map<String, List<Profile>> queuedByUser = new HashMap<>();
+        for (int from = 0; from < candidates.size(); from += ID_FILTER_SIZE) {
+            List<Profile> chunk = candidates.subList(from, Math.min(from + ID_FILTER_SIZE, candidates.size()));
+            Map<String, Profile> byId = new HashMap<>();
+            chunk.forEach(candidate -> byId.put(candidate.getUserId(), candidate));
+
+            List<DiscoverQueueEntry> entries = client.fetchAll("/discover_queue?select=user_id,candidate_id"
+                            + "&candidate_id=in.(" + String.join(",", byId.keySet()) + ")&order=user_id,position",
+                    new TypeReference<List<DiscoverQueueEntry>>() {
+                    });
+            for (DiscoverQueueEntry entry : entries) {
+                queuedByUser.computeIfAbsent(entry.getUserId(), id -> new ArrayList<>()).add(byId.get(entry.getCandidateId()));
+            }
+        }
+        return queuedByUser;
+    }
+
+    private boolean hasChangeAfter(List<Profile> candidates, OffsetDateTime computedAt) {
+        if (candidates != null) {
+            for (Profile candidate : candidates) {
+                if (candidate != null && isAfter(lastChange(candidate), computedAt)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private boolean hasActionsAfter(List<UserAction> actions, OffsetDateTime computedAt) {
+        if (actions != null) {
+            for (UserAction action : actions) {
+                if (isAfter(parse(action.getCreatedAt()), computedAt)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Whether a pass stopped excluding its profile since the queue was computed, so the profile is due again
+     */
+    private boolean hasPassExpiredAfter(List<UserAction> actions, OffsetDateTime computedAt, Duration passExpiry,
+                                        OffsetDateTime now) {
+        if (actions != null) {
+            for (UserAction action : actions) {
+                OffsetDateTime passedAt = "pass".equals(action.getAction()) ? parse(action.getCreatedAt()) : null;
+                if (passedAt != null) {
+                    OffsetDateTime expiresAt = passedAt.plus(passExpiry);
+                    if (expiresAt.isAfter(computedAt) && !expiresAt.isAfter(now)) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    private boolean hasCompatibleChangeAfter(Profile viewer, List<Profile> changed, OffsetDateTime computedAt) {
+        int viewerCode = CompatibilityTable.encode(viewer);
+        for (Profile candidate : changed) {
+            if (!candidate.getUserId().equals(viewer.getUserId())
+                    && isAfter(lastChange(candidate), computedAt)
+                    && CompatibilityTable.isCompatible(viewerCode, CompatibilityTable.encode(candidate))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Rank one partition and write the queues in batches
+     *
+     * @return {written, failed}
+     */
+    private int[] rankPartition(CandidateStore store, RankingEngine engine, List<Profile> viewers,
+                                Map<String, List<UserAction>> actionsByUser, Duration passExpiry,
+                                String computedAt) {
+        int written = 0;
+        int failed = 0;
+        List<Map<String, Object>> batch = new ArrayList<>();
+
+        for (Profile viewer : viewers) {
+            ActionedUserSet excluded = new ActionedUserSet();
+            excluded.add(viewer.getUserId(), false);
+            List<UserAction> actions = actionsByUser.get(viewer.getUserId());
+            if (actions != null) {
+                excluded.merge(actions, null);
+                excluded.expirePasses(passExpiry);
+            }
+
+            int[] ranking = engine.rank(store, viewer, excluded);
+            List<String> candidates = new ArrayList<>();
+            for (int i = 0; i < Math.min(ranking.length, QUEUE_LENGTH); i++) {
+                candidates.add(store.getProfile(ranking[i]).getUserId());
+            }
+
+            Map<String, Object> queue = new HashMap<>();
+            queue.put("user_id", viewer.getUserId());
+            queue.put("computed_at", computedAt);
+            queue.put("candidates", candidates);
+            batch.add(queue);
+
+            if (batch.size() == WRITE_BATCH_SIZE) {
+                if (writeQueues(batch)) {
+                    written += batch.size();
+                } else {
+                    failed += batch.size();
+                }
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            if (writeQueues(batch)) {
+                written += batch.size();
+            } else {
+                failed += batch.size();
+            }
+        }
+        return new int[]{written, failed};
+    }
+
+    private boolean writeQueues(List<Map<String, Object>> queues) {
+        return client.post("/rpc/replace_discover_queues", Map.of("queues", queues), null);
+    }
+
+    private static OffsetDateTime lastChange(Profile profile) {
+        OffsetDateTime created = parse(profile.getCreatedAt());
+        OffsetDateTime updated = parse(profile.getUpdatedAt());
+        if (created == null) {
+            return updated;
+        }
+        return updated != null && updated.isAfter(created) ? updated : created;
+    }
+
+    private static boolean isAfter(OffsetDateTime time, OffsetDateTime than) {
+        return time != null && time.isAfter(than);
+    }
+
+    private static OffsetDateTime parse(String timestamp) {
+        try {
+            return timestamp != null ? OffsetDateTime.parse(timestamp) : null;
+        } catch (Exception e) {
+            return null;
+        }
+    }
+}
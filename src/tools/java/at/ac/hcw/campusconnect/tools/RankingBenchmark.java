@@ -0,0 +1,157 @@
+package at.ac.hcw.campusconnect.tools;
+
+import at.ac.hcw.campusconnect.models.Profile;
+import at.ac.hcw.campusconnect.models.UserFactors;
+import at.ac.hcw.campusconnect.services.ActionedUserSet;
+import at.ac.hcw.campusconnect.services.BioSimilarity;
+import at.ac.hcw.campusconnect.services.CandidateStore;
+import at.ac.hcw.campusconnect.services.CollaborativeScores;
+import at.ac.hcw.campusconnect.services.RankingEngine;
+import at.ac.hcw.campusconnect.services.Scorer;
+import at.ac.hcw.campusconnect.services.Scorers;
+
+import java.time.LocalDate;
+import java.util.*;
+
+/**
+ * Per-candidate cost of every discover scorer and of a whole ranking.
+ * <p>
+ * Builds a synthetic pool, then runs each scorer's pass over the compatible candidates of a
+ * set of viewers and reports nanoseconds per scored candidate. Every built-in scorer is picked
+ * up from Scorers.builtIn(), so a new scorer shows up here without changes; scorers built per
+ * pool (bio similarity, collaborative) are added explicitly.
+ * <p>
+ * Usage: {@code RankingBenchmark [size ...]} (default 10000 100000)
+ */
+public class RankingBenchmark {
+    private static final int VIEWERS = 200;
+    private static final int ROUNDS = 3; // The first round is warm-up
+    private static final int INTERESTS = 40;
+    private static final int STUDY_PROGRAMS = 40;
+    private static final int FACTORS = 16;
+    private static final String[] GENDERS = {"Woman", "Man", "Non-binary"};
+    private static final String[] LOOKING_FOR = {"Friends", "Dating", "Both"};
+    private static final String[] INTERESTED_IN = {"Women", "Men", "Everyone"};
+
+    public static void main(String[] args) {
+        int[] sizes = args.length > 0 ? new int[args.length] : new int[]{10_000, 100_000};
+        for (int i = 0; i < args.length; i++) {
+            sizes[i] = Integer.parseInt(args[i]);
+        }
+        for (int size : sizes) {
+            run(size);
+        }
+    }
+
+    private static void run(int size) {
+        Random random = new Random(size);
+        List<Profile> profiles = new ArrayList<>(size);
+        List<UserFactors> factors = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            Profile profile = randomProfile(random);
+            profiles.add(profile);
+            factors.add(randomFactors(random, profile.getUserId()));
+        }
+
+        CandidateStore store = CandidateStore.of(profiles);
+        List<Scorer> scorers = new ArrayList<>(Scorers.builtIn());
+        scorers.add(BioSimilarity.of(profiles, false));
+        scorers.add(CollaborativeScores.of(store, factors));
+
+        List<Profile> viewers = new ArrayList<>(VIEWERS);
+        for (int i = 0; i < VIEWERS; i++) {
+            viewers.add(profiles.get(random.nextInt(size)));
+        }
+        ActionedUserSet actioned = new ActionedUserSet();
+
+        // Compatible rows per viewer, what the scorers run over in the engine
+        List<int[]> rowsPerViewer = new ArrayList<>(VIEWERS);
+        RankingEngine filterOnly = new RankingEngine();
+        long candidates = 0;
+        for (Profile viewer : viewers) {
+            int[] rows = filterOnly.rank(store, viewer, actioned);
+            rowsPerViewer.add(rows);
+            candidates += rows.length;
+        }
+
+        System.out.printf("%n%,d profiles, %d viewers, %,d compatible candidates per viewer on average%n",
+                size, VIEWERS, candidates / VIEWERS);
+        System.out.printf("%-22s %18s%n", "scorer", "ns per candidate");
+
+        for (Scorer scorer : scorers) {
+            double nanos = 0;
+            for (int round = 0; round < ROUNDS; round++) {
+                long start = System.nanoTime();
+                for (int i = 0; i < VIEWERS; i++) {
+                    scorer.score(store, viewers.get(i), rowsPerViewer.get(i), 1, new int[size]);
+                }
+                nanos = System.nanoTime() - start;
+            }
+            System.out.printf("%-22s %18.2f%n", scorer.getName(), nanos / candidates);
+        }
+
+        // Default weights rather than the configured ones, so runs are comparable
+        RankingEngine builtIn = new RankingEngine();
+        Scorers.builtIn().forEach(scorer -> builtIn.add(scorer, scorer.getDefaultWeight()));
+        RankingEngine all = new RankingEngine();
+        scorers.forEach(scorer -> all.add(scorer, scorer.getDefaultWeight()));
+        System.out.printf("%-22s %18.2f%n", "filter + sort only", rankNanos(filterOnly, store, viewers, actioned) / candidates);
+        System.out.printf("%-22s %18.2f%n", "rank, built-in", rankNanos(builtIn, store, viewers, actioned) / candidates);
+        System.out.printf("%-22s %18.2f%n", "rank, all scorers", rankNanos(all, store, viewers, actioned) / candidates);
+    }
+
+    private static double rankNanos(RankingEngine engine, CandidateStore store, List<Profile> viewers,
+                                    ActionedUserSet actioned) {
+        double nanos = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            long start = System.nanoTime();
+            for (Profile viewer : viewers) {
+                engine.rank(store, viewer, actioned);
+            }
+            nanos = System.nanoTime() - start;
+        }
+        return nanos;
+    }
+
+    private static Profile randomProfile(Random random) {
+        Profile profile = new Profile();
+        profile.setUserId(new UUID(random.nextLong(), random.nextLong()).toString());
+        profile.setGender(GENDERS[random.nextInt(GENDERS.length)]);
+        profile.setLookingFor(LOOKING_FOR[random.nextInt(LOOKING_FOR.length)]);
+        profile.setInterestedIn(INTERESTED_IN[random.nextInt(INTERESTED_IN.length)]);
+        profile.setStudyProgram("Program " + random.nextInt(STUDY_PROGRAMS));
+        profile.setSemester(1 + random.nextInt(8));
+        profile.setBirthdate(LocalDate.of(1995, 1, 1).plusDays(random.nextInt(12 * 365)).toString());
+
+        Set<String> interests = new HashSet<>();
+        int interestCount = 3 + random.nextInt(6);
+        while (interests.size() < interestCount) {
+            interests.add("interest" + random.nextInt(INTERESTS));
+        }
+        profile.setInterests(interests);
+
+        StringBuilder bio = new StringBuilder();
+        int words = 10 + random.nextInt(20);
+        for (int i = 0; i < words; i++) {
+            bio.append("word").append(random.nextInt(2000)).append(' ');
+        }
+        profile.setBio(bio.toString());
+        return profile;
+    }
+
+    private static UserFactors randomFactors(Random random, String userId) {
+        UserFactors factors = new UserFactors();
+        factors.setUserId(userId);
+        factors.setTaste(randomVector(random));
+        factors.setAppeal(randomVector(random));
+        return factors;
+    }
+
+    private static float[] randomVector(Random random) {
+        float[] vector = new float[FACTORS];
+        for (int i = 0; i < FACTORS; i++) {
+            vector[i] = (float) random.nextGaussian() * 0.25f;
+        }
+        return vector;
+    }
+}
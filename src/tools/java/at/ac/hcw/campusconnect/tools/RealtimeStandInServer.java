@@ -0,0 +1,361 @@
+package at.ac.hcw.campusconnect.tools;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.*;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.time.OffsetDateTime;
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Local stand-in for Supabase Realtime, enough to run RealtimeClient (and the app) offline.
+ * <p>
+ * Speaks WebSocket (RFC 6455, text frames, ping and close) and the Phoenix channel messages the
+ * client uses: phx_join with postgres_changes subscriptions, heartbeat and access_token. Inserts
+ * are typed on stdin and pushed to every client whose subscription matches:
+ * <pre>
+ * insert messages {"id":"...","match_id":"...","sender_id":"...","receiver_id":"...","content":"Hi"}
+ * insert matches {"id":"...","user1_id":"...","user2_id":"..."}
+ * drop       close every connection without a close frame (client reconnects)
+ * mute       stop answering heartbeats (client detects the dead connection)
+ * unmute     answer heartbeats again
+ * clients    list connections and their subscriptions
+ * </pre>
+ * Usage: {@code RealtimeStandInServer [port]} (default 4000), then set
+ * SUPABASE_REALTIME_URL=ws://localhost:4000/socket in the .env file.
+ */
+public class RealtimeStandInServer {
+    private static final String WEBSOCKET_GUID = "258EAFA5-E914-47DA-95CA-C5AB0DC85B11";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final List<Client> clients = new CopyOnWriteArrayList<>();
+    private volatile boolean muted;
+
+    public static void main(String[] args) throws Exception {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 4000;
+        RealtimeStandInServer server = new RealtimeStandInServer();
+        ServerSocket serverSocket = new ServerSocket(port);
+        System.out.println("Realtime stand-in listening on ws://localhost:" + port + "/socket");
+
+        Thread acceptor = new Thread(() -> {
+            while (!serverSocket.isClosed()) {
+                try {
+                    Socket socket = serverSocket.accept();
+                    new Thread(() -> server.serve(socket), "client-" + socket.getPort()).start();
+                } catch (IOException e) {
+                    break;
+                }
+            }
+        });
+        acceptor.setDaemon(true);
+        acceptor.start();
+
+        BufferedReader console = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8));
+        String line;
+        while ((line = console.readLine()) != null) {
+            server.command(line.trim());
+        }
+        serverSocket.close();
+    }
+
+    private void command(String line) {
+        try {
+            if (line.startsWith("insert ")) {
+                String[] parts = line.split(" ", 3);
+                int delivered = insert(parts[1], objectMapper.readTree(parts[2]));
+                System.out.println("Delivered to " + delivered + " client(s)");
+            } else if (line.equals("drop")) {
+                clients.forEach(Client::close);
+                System.out.println("Dropped all connections");
+            } else if (line.equals("mute") || line.equals("unmute")) {
+                muted = line.equals("mute");
+                System.out.println(muted ? "Heartbeats are not answered" : "Heartbeats are answered");
+            } else if (line.equals("clients")) {
+                clients.forEach(client -> System.out.println(client.name + " " + client.subscriptions));
+            } else if (!line.isEmpty()) {
+                System.out.println("Unknown command: " + line);
+            }
+        } catch (Exception e) {
+            System.out.println("Failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Push an insert to the clients subscribed to it
+     *
+     * @return Number of clients it was sent to
+     */
+    private int insert(String table, JsonNode record) {
+        int delivered = 0;
+        for (Client client : clients) {
+            List<Integer> ids = new ArrayList<>();
+            for (int i = 0; i < client.subscriptions.size(); i++) {
+                if (client.subscriptions.get(i).matches(table, record)) {
+                    ids.add(i + 1);
+                }
+            }
+            if (ids.isEmpty() || client.topic == null) {
+                continue;
+            }
+
+            ObjectNode data = objectMapper.createObjectNode();
+            data.put("schema", "public");
+            data.put("table", table);
+            data.put("commit_timestamp", OffsetDateTime.now().toString());
+            data.put("type", "INSERT");
+            data.set("record", record);
+            data.putArray("columns");
+            ObjectNode payload = objectMapper.createObjectNode();
+            ArrayNode idArray = payload.putArray("ids");
+            ids.forEach(idArray::add);
+            payload.set("data", data);
+            client.sendMessage(client.topic, "postgres_changes", payload, null);
+            delivered++;
+        }
+        return delivered;
+    }
+
+    private void serve(Socket socket) {
+        Client client = new Client(socket);
+        try {
+            if (!client.handshake()) {
+                socket.close();
+                return;
+            }
+            clients.add(client);
+            System.out.println(client.name + " connected");
+            String text;
+            while ((text = client.readText()) != null) {
+                handle(client, objectMapper.readTree(text));
+            }
+        } catch (IOException e) {
+            // Connection closed
+        } finally {
+            clients.remove(client);
+            client.close();
+            System.out.println(client.name + " disconnected");
+        }
+    }
+
+    private void handle(Client client, JsonNode message) {
+        String topic = message.path("topic").asText();
+        String event = message.path("event").asText();
+        String ref = message.path("ref").asText(null);
+        JsonNode payload = message.path("payload");
+
+        switch (event) {
+            case "heartbeat" -> {
+                if (!muted) {
+                    client.sendMessage("phoenix", "phx_reply", ok(objectMapper.createObjectNode()), ref);
+                }
+            }
+            case "phx_join" -> {
+                client.topic = topic;
+                client.subscriptions.clear();
+                ObjectNode response = objectMapper.createObjectNode();
+                ArrayNode accepted = response.putArray("postgres_changes");
+                for (JsonNode change : payload.path("config").path("postgres_changes")) {
+                    Subscription subscription = new Subscription(change.path("table").asText(), change.path("filter").asText(""));
+                    client.subscriptions.add(subscription);
+                    accepted.add(((ObjectNode) change.deepCopy()).put("id", client.subscriptions.size()));
+                }
+                client.sendMessage(topic, "phx_reply", ok(response), ref);
+                System.out.println(client.name + " joined " + topic + " " + client.subscriptions);
+            }
+            case "access_token" -> System.out.println(client.name + " refreshed its access token");
+            case "phx_leave" -> {
+                client.topic = null;
+                client.subscriptions.clear();
+                client.sendMessage(topic, "phx_reply", ok(objectMapper.createObjectNode()), ref);
+            }
+            default -> System.out.println(client.name + " sent unsupported event " + event);
+        }
+    }
+
+    private ObjectNode ok(JsonNode response) {
+        ObjectNode payload = objectMapper.createObjectNode();
+        payload.put("status", "ok");
+        payload.set("response", response);
+        return payload;
+    }
+
+    /**
+     * An INSERT subscription with an optional column=eq.value filter
+     */
+    private record Subscription(String table, String filter) {
+        boolean matches(String insertedTable, JsonNode record) {
+            if (!table.equals(insertedTable)) {
+                return false;
+            }
+            if (filter.isEmpty()) {
+                return true;
+            }
+            int separator = filter.indexOf("=eq.");
+            return separator > 0 && record.path(filter.substring(0, separator)).asText()
+                    .equals(filter.substring(separator + 4));
+        }
+
+        @Override
+        public String toString() {
+            return table + (filter.isEmpty() ? "" : "[" + filter + "]");
+        }
+    }
+
+    /**
+     * One WebSocket connection: handshake and framing
+     */
+    private class Client {
+        private final Socket socket;
+        private final String name;
+        private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+        private volatile String topic;
+        private DataInputStream in;
+        private OutputStream out;
+
+        private Client(Socket socket) {
+            this.socket = socket;
+            this.name = "client " + socket.getPort();
+        }
+
+        boolean handshake() throws IOException {
+            in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            out = socket.getOutputStream();
+
+            String key = null;
+            String line;
+            while ((line = readLine()) != null && !line.isEmpty()) {
+                int colon = line.indexOf(':');
+                if (colon > 0 && line.substring(0, colon).trim().equalsIgnoreCase("Sec-WebSocket-Key")) {
+                    key = line.substring(colon + 1).trim();
+                }
+            }
+            if (key == null) {
+                return false;
+            }
+
+            String accept;
+            try {
+                byte[] digest = MessageDigest.getInstance("SHA-1")
+                        .digest((key + WEBSOCKET_GUID).getBytes(StandardCharsets.US_ASCII));
+                accept = Base64.getEncoder().encodeToString(digest);
+            } catch (Exception e) {
+                throw new IOException(e);
+            }
+            String response = "HTTP/1.1 101 Switching Protocols\r\n"
+                    + "Upgrade: websocket\r\n"
+                    + "Connection: Upgrade\r\n"
+                    + "Sec-WebSocket-Accept: " + accept + "\r\n\r\n";
+            synchronized (this) {
+                out.write(response.getBytes(StandardCharsets.US_ASCII));
+                out.flush();
+            }
+            return true;
+        }
+
+        /**
+         * Next complete text message, answering pings on the way
+         *
+         * @return The text, or null once the client closed the connection
+         */
+        String readText() throws IOException {
+            ByteArrayOutputStream message = new ByteArrayOutputStream();
+            while (true) {
+                int first = in.readUnsignedByte();
+                int second = in.readUnsignedByte();
+                boolean fin = (first & 0x80) != 0;
+                int opcode = first & 0x0F;
+                long length = second & 0x7F;
+                if (length == 126) {
+                    length = in.readUnsignedShort();
+                } else if (length == 127) {
+                    length = in.readLong();
+                }
+                byte[] mask = new byte[4];
+                if ((second & 0x80) != 0) {
+                    in.readFully(mask);
+                }
+                byte[] payload = new byte[(int) length];
+                in.readFully(payload);
+                for (int i = 0; i < payload.length; i++) {
+                    payload[i] ^= mask[i % 4];
+                }
+
+                switch (opcode) {
+                    case 0x8 -> {
+                        sendFrame(0x8, payload);
+                        return null;
+                    }
+                    case 0x9 -> sendFrame(0xA, payload);
+                    case 0x0, 0x1 -> {
+                        message.write(payload);
+                        if (fin) {
+                            return message.toString(StandardCharsets.UTF_8);
+                        }
+                    }
+                    default -> {
+                        // Pongs and binary frames are not used
+                    }
+                }
+            }
+        }
+
+        void sendMessage(String messageTopic, String event, JsonNode payload, String ref) {
+            ObjectNode message = objectMapper.createObjectNode();
+            message.put("topic", messageTopic);
+            message.put("event", event);
+            message.set("payload", payload);
+            message.put("ref", ref);
+            try {
+                sendFrame(0x1, message.toString().getBytes(StandardCharsets.UTF_8));
+            } catch (IOException e) {
+                close();
+            }
+        }
+
+        synchronized void sendFrame(int opcode, byte[] payload) throws IOException {
+            ByteArrayOutputStream frame = new ByteArrayOutputStream(payload.length + 10);
+            frame.write(0x80 | opcode);
+            if (payload.length < 126) {
+                frame.write(payload.length);
+            } else if (payload.length < 65536) {
+                frame.write(126);
+                frame.write(payload.length >>> 8);
+                frame.write(payload.length & 0xFF);
+            } else {
+                frame.write(127);
+                for (int shift = 56; shift >= 0; shift -= 8) {
+                    frame.write((int) ((long) payload.length >>> shift) & 0xFF);
+                }
+            }
+            frame.write(payload);
+            out.write(frame.toByteArray());
+            out.flush();
+        }
+
+        void close() {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                // Already closed
+            }
+        }
+
+        private String readLine() throws IOException {
+            StringBuilder line = new StringBuilder();
+            int c;
+            while ((c = in.read()) != -1 && c != '\n') {
+                if (c != '\r') {
+                    line.append((char) c);
+                }
+            }
+            return c == -1 && line.isEmpty() ? null : line.toString();
+        }
+    }
+}
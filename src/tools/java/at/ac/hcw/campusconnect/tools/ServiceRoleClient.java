@@ -0,0 +1,106 @@
+package at.ac.hcw.campusconnect.tools;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.github.cdimascio.dotenv.Dotenv;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Minimal PostgREST client for the headless tools, authenticated with the service role key
+ * (bypasses row level security, never use it in the app).
+ */
+class ServiceRoleClient {
+    private static final int PAGE_SIZE = 1000;
+
+    private final String restUrl;
+    private final String serviceKey;
+    private final HttpClient httpClient;
+    private final ObjectMapper objectMapper;
+
+    ServiceRoleClient(String supabaseUrl, String serviceKey) {
+        this.restUrl = supabaseUrl + "/rest/v1";
+        this.serviceKey = serviceKey;
+        this.httpClient = HttpClient.newHttpClient();
+        this.objectMapper = new ObjectMapper();
+    }
+
+    /**
+     * Read SUPABASE_URL and SUPABASE_SERVICE_ROLE_KEY from the .env file
+     */
+    static ServiceRoleClient fromEnv() {
+        Dotenv dotenv = Dotenv.configure()
+                .filename(".env")
+                .ignoreIfMalformed()
+                .ignoreIfMissing()
+                .load();
+        String supabaseUrl = dotenv.get("SUPABASE_URL");
+        String serviceKey = dotenv.get("SUPABASE_SERVICE_ROLE_KEY");
+        if (supabaseUrl == null || serviceKey == null) {
+            throw new IllegalStateException("SUPABASE_URL and SUPABASE_SERVICE_ROLE_KEY must be set in .env file");
+        }
+        return new ServiceRoleClient(supabaseUrl, serviceKey);
+    }
+
+    /**
+     * Page through a table with limit/offset (the query must have a stable order)
+     */
+    <T> List<T> fetchAll(String query, TypeReference<List<T>> type) throws Exception {
+        List<T> all = new ArrayList<>();
+        for (int offset = 0; ; offset += PAGE_SIZE) {
+            HttpRequest request = HttpRequest.newBuilder()
+                    .uri(URI.create(restUrl + query + "&limit=" + PAGE_SIZE + "&offset=" + offset))
+                    .header("apikey", serviceKey)
+                    .header("Authorization", "Bearer " + serviceKey)
+                    .GET()
+                    .build();
+
+            HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() != 200) {
+                throw new IllegalStateException("Loading " + query + " failed: " + response.statusCode() + " " + response.body());
+            }
+            List<T> page = objectMapper.readValue(response.body(), type);
+            all.addAll(page);
+            if (page.size() < PAGE_SIZE) {
+                return all;
+            }
+        }
+    }
+
+    /**
+     * POST a JSON body
+     *
+     * @param prefer Value of the Prefer header, or null
+     * @return Whether the request succeeded, failures are logged
+     */
+    boolean post(String path, Object body, String prefer) {
+        try {
+            String jsonBody = objectMapper.writeValueAsString(body);
+
+            HttpRequest.Builder builder = HttpRequest.newBuilder()
+                    .uri(URI.create(restUrl + path))
+                    .header("apikey", serviceKey)
+                    .header("Authorization", "Bearer " + serviceKey)
+                    .header("Content-Type", "application/json");
+            if (prefer != null) {
+                builder.header("Prefer", prefer);
+            }
+            HttpRequest request = builder.POST(HttpRequest.BodyPublishers.ofString(jsonBody)).build();
+
+            HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() >= 200 && response.statusCode() < 300) {
+                return true;
+            }
+            System.err.println("POST " + path + " failed: " + response.statusCode() + " " + response.body());
+            return false;
+        } catch (Exception e) {
+            e.printStackTrace();
+            return false;
+        }
+    }
+}